@@ -0,0 +1,61 @@
+package com.example.backend.analytics.service;
+
+import com.example.backend.analytics.dto.AnalysisResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExcelExportService xlsx and csv export of an analysis with 12 categories.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExcelExportBenchmark {
+
+    // Total questions in the analysis
+    @Param({"1000", "20000"})
+    private int questions;
+
+    private final ExcelExportService exportService = new ExcelExportService();
+    private AnalysisResponse analysis;
+
+    @Setup
+    public void setUp() {
+        ReflectionTestUtils.setField(exportService, "rowWindow", 100);
+
+        int categories = 12;
+        List<AnalysisResponse.CategoryData> data = new ArrayList<>();
+        for (int c = 0; c < categories; c++) {
+            List<AnalysisResponse.QuestionData> categoryQuestions = new ArrayList<>();
+            for (int q = 0; q < questions / categories; q++) {
+                categoryQuestions.add(new AnalysisResponse.QuestionData(
+                    "כמה זמן לוקח משלוח של הזמנה מספר " + q + " לאזור " + c + "?", 1 + q % 7));
+            }
+            data.add(new AnalysisResponse.CategoryData("קטגוריה " + c, "📦", categoryQuestions, categoryQuestions.size()));
+        }
+        analysis = new AnalysisResponse(data, "סיכום", questions);
+    }
+
+    @Benchmark
+    public void exportToExcel() throws IOException {
+        exportService.exportToExcel(analysis, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void exportToCsv() throws IOException {
+        exportService.exportToCsv(analysis, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.backend.auth.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JwtService on every authenticated request: parse + signature check, and token creation at login.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtBenchmark {
+
+    private final JwtService jwtService = new JwtService();
+    private UserDetails user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        // 256-bit HS256 key, base64 (same shape as security.jwt.secret-key)
+        ReflectionTestUtils.setField(jwtService, "secretKey", "3cfa76ef14937c1c0ea519f8fc057a80fcd04a7420f8e8bcd0a7567c272e007b");
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 3_600_000L);
+
+        user = User.withUsername("user@example.com").password("unused").authorities("USER").build();
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean parseAndVerify() {
+        return jwtService.isTokenValid(token, user);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtService.generateToken(user);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.backend.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Compares a JMH JSON result with the stored baseline and exits non-zero on a regression.
+ * All benchmarks use average time, so a higher score is slower.
+ *
+ * Usage: BaselineCheck result.json baseline.json maxRegression (e.g. 0.25 = 25% slower)
+ * To accept new numbers, copy target/jmh-result.json over src/jmh/baseline.json.
+ */
+public final class BaselineCheck {
+
+    private BaselineCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        File resultFile = new File(args[0]);
+        File baselineFile = new File(args[1]);
+        double maxRegression = Double.parseDouble(args[2]);
+
+        if (!baselineFile.exists()) {
+            System.out.println("⚠️ No baseline at " + baselineFile + " - skipping the regression check");
+            return;
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Double> baseline = scores(mapper.readTree(baselineFile));
+        Map<String, Double> results = scores(mapper.readTree(resultFile));
+
+        int regressions = 0;
+        for (Map.Entry<String, Double> entry : results.entrySet()) {
+            Double expected = baseline.get(entry.getKey());
+            if (expected == null) {
+                System.out.printf("🆕 %s: %.3f (no baseline)%n", entry.getKey(), entry.getValue());
+                continue;
+            }
+
+            double change = (entry.getValue() - expected) / expected;
+            boolean regressed = change > maxRegression;
+            if (regressed) {
+                regressions++;
+            }
+            System.out.printf("%s %s: %.3f vs %.3f (%+.1f%%)%n",
+                regressed ? "❌" : "✅", entry.getKey(), entry.getValue(), expected, change * 100);
+        }
+
+        if (regressions > 0) {
+            System.out.printf("❌ %d benchmark(s) more than %.0f%% slower than the baseline%n",
+                regressions, maxRegression * 100);
+            System.exit(1);
+        }
+        System.out.println("✅ No benchmark regressed beyond " + Math.round(maxRegression * 100) + "%");
+    }
+
+    // "benchmark [param=value, ...]" -> score
+    private static Map<String, Double> scores(JsonNode runs) {
+        Map<String, Double> scores = new HashMap<>();
+        for (JsonNode run : runs) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+            JsonNode params = run.path("params");
+            if (params.isObject()) {
+                key.append(" [");
+                Iterator<Map.Entry<String, JsonNode>> it = params.fields();
+                while (it.hasNext()) {
+                    Map.Entry<String, JsonNode> param = it.next();
+                    key.append(param.getKey()).append('=').append(param.getValue().asText());
+                    if (it.hasNext()) {
+                        key.append(", ");
+                    }
+                }
+                key.append(']');
+            }
+            scores.put(key.toString(), run.path("primaryMetric").path("score").asDouble());
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.backend.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sample site content (a shipping/returns/warranty page) in Hebrew and English,
+ * repeated to the size of a typical uploaded document.
+ */
+public final class BenchmarkTexts {
+
+    public static final String HEBREW = "hebrew";
+    public static final String ENGLISH = "english";
+
+    private BenchmarkTexts() {
+    }
+
+    public static String load(String language) {
+        try (InputStream in = BenchmarkTexts.class.getResourceAsStream("/benchmark/" + language + ".txt")) {
+            if (in == null) {
+                throw new IllegalArgumentException("No benchmark text for " + language);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The sample text repeated until it has at least the given number of characters
+    public static String document(String language, int characters) {
+        String page = load(language);
+        StringBuilder builder = new StringBuilder(characters + page.length());
+        while (builder.length() < characters) {
+            builder.append(page).append("\n\n");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.backend.common.infrastructure.document;
+
+import com.example.backend.benchmark.BenchmarkTexts;
+import dev.langchain4j.data.segment.TextSegment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DocumentChunkingService.chunkDocument on a ~60k character document (about 20 PDF pages).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ChunkingBenchmark {
+
+    @Param({BenchmarkTexts.HEBREW, BenchmarkTexts.ENGLISH})
+    private String language;
+
+    private final DocumentChunkingService chunkingService = new DocumentChunkingService();
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = BenchmarkTexts.document(language, 60_000);
+    }
+
+    @Benchmark
+    public List<TextSegment> chunkDocument() {
+        return chunkingService.chunkDocument(text, "policy.pdf", 1L);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.backend.document.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DocumentService.calculateHash (SHA-256 + hex) on upload-sized files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HashBenchmark {
+
+    // 1 MB and 10 MB
+    @Param({"1048576", "10485760"})
+    private int size;
+
+    private byte[] data;
+
+    @Setup
+    public void setUp() {
+        data = new byte[size];
+        new Random(42).nextBytes(data);
+    }
+
+    @Benchmark
+    public String calculateHash() {
+        return DocumentService.calculateHash(data);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.backend.query.service;
+
+import com.example.backend.benchmark.BenchmarkTexts;
+import com.example.backend.common.infrastructure.document.DocumentChunkingService;
+import com.example.backend.common.infrastructure.vectordb.SparseVectorEncoder;
+import com.example.backend.query.dto.PublicQueryRequest;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU work done per /api/query/ask besides the model and Qdrant calls:
+ * language detection, token estimation, context assembly and prompt building.
+ * Candidates are real chunks of the sample text with descending scores, as the reranker returns them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryPathBenchmark {
+
+    @Param({BenchmarkTexts.HEBREW, BenchmarkTexts.ENGLISH})
+    private String language;
+
+    private final OpenAiTokenizer tokenizer = new OpenAiTokenizer("gpt-4");
+
+    private QueryService queryService;
+    private ContextAssemblyService contextAssemblyService;
+
+    private String question;
+    private String chunk;
+    private List<QueryService.RelevantDocument> candidates;
+    private List<PublicQueryRequest.HistoryMessage> history;
+
+    @Setup
+    public void setUp() {
+        PromptService promptService = new PromptService();
+        promptService.init();
+        queryService = new QueryService(null, null, null, null, promptService, null, null, null, null);
+
+        contextAssemblyService = new ContextAssemblyService(new SparseVectorEncoder());
+        ReflectionTestUtils.setField(contextAssemblyService, "maxPromptTokens", 6000);
+        ReflectionTestUtils.setField(contextAssemblyService, "maxChunkTokens", 2500);
+        ReflectionTestUtils.setField(contextAssemblyService, "mmrLambda", 0.7);
+
+        boolean hebrew = BenchmarkTexts.HEBREW.equals(language);
+        question = hebrew
+            ? "כמה זמן לוקח משלוח לאילת והאם אפשר להחזיר מוצר שנפתח?"
+            : "How long does shipping to Eilat take and can I return an opened product?";
+
+        List<TextSegment> segments = new DocumentChunkingService()
+            .chunkDocument(BenchmarkTexts.document(language, 20_000), "policy.pdf", 1L);
+        chunk = segments.get(0).text();
+
+        // 15 reranked candidates, as handed to the assembler by QueryService
+        candidates = new ArrayList<>();
+        for (int i = 0; i < 15 && i < segments.size(); i++) {
+            QueryService.RelevantDocument doc = new QueryService.RelevantDocument();
+            doc.setText(segments.get(i).text());
+            doc.setScore(0.9 - i * 0.02);
+            doc.setDocumentName("policy.pdf");
+            doc.setDocumentId("1");
+            doc.setChunkIndex(i);
+            candidates.add(doc);
+        }
+
+        // Full history window (10 messages)
+        history = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            history.add(new PublicQueryRequest.HistoryMessage(
+                i % 2 == 0 ? "user" : "assistant", segments.get(i % segments.size()).text()));
+        }
+    }
+
+    @Benchmark
+    public String detectLanguage() {
+        return QueryService.detectLanguage(question);
+    }
+
+    @Benchmark
+    public int estimateChunkTokens() {
+        return tokenizer.estimateTokenCountInText(chunk);
+    }
+
+    @Benchmark
+    public ContextAssemblyService.AssembledContext assembleContext() {
+        return contextAssemblyService.assemble(candidates, history, 400, 5);
+    }
+
+    @Benchmark
+    public List<ChatMessage> buildMessagesWithHistory() {
+        return queryService.buildMessagesWithHistory(question, candidates.subList(0, 5), history);
+    }
+}
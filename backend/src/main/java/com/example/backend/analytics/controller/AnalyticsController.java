@@ -4,12 +4,13 @@ import com.example.backend.analytics.dto.AnalysisResponse;
 import com.example.backend.analytics.service.AnalyticsService;
 import com.example.backend.analytics.dto.SaveQuestionsRequest;
 import com.example.backend.analytics.service.ExcelExportService;
+import com.example.backend.analytics.service.QuestionBatchingService;
 import com.example.backend.user.model.User;
+import com.example.backend.common.exception.ResourceNotFoundException;
 import com.example.backend.common.exception.UnauthorizedException;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -17,7 +18,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -32,11 +35,13 @@ public class AnalyticsController {
 
     private final AnalyticsService analyticsService;
     private final ExcelExportService excelExportService;
+    private final QuestionBatchingService questionBatchingService;
 
 
     /**
      * Receiving questions from the widget
-     * This is the endpoint the widget sends the questions to
+     * This is the endpoint the widget sends the questions to.
+     * Questions are queued and filtered in batches, so the response is 202 Accepted
      */
     @PostMapping("/save-questions")
     public ResponseEntity<Map<String, Object>> saveQuestions(
@@ -49,8 +54,8 @@ public class AnalyticsController {
         // find the user by secretKey
         User user = analyticsService.getUserBySecretKey(request.getSecretKey());
 
-        // save the question with automatic filter
-        analyticsService.appendQuestionsToFile(
+        // queue the questions for batched filtering
+        questionBatchingService.submit(
                 user,
                 request.getQuestions(),
                 request.getSiteCategory()
@@ -59,8 +64,9 @@ public class AnalyticsController {
         // return the respone
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
+        response.put("queued", request.getQuestions().size());
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
     }
 
     /**
@@ -68,23 +74,26 @@ public class AnalyticsController {
      * It's happend when the website owner press on "הורד קובץ" button un the deashbard page
      */
     @GetMapping("/download")
-    public ResponseEntity<ByteArrayResource> downloadFile() {
+    public ResponseEntity<StreamingResponseBody> downloadFile() {
         // get the conected user
         User currentUser = getCurrentUser();
+        questionBatchingService.flushUser(currentUser.getId());
 
-        // download the questions file from s3
-        byte[] fileBytes = analyticsService.downloadQuestionsFile(currentUser);
+        if (analyticsService.countQuestions(currentUser) == 0) {
+            log.warn("⚠️ No questions to download for user: {}", currentUser.getId());
+            throw new ResourceNotFoundException("לא נמצאו שאלות. אנא נסה לאסוף שאלות תחילה.");
+        }
 
-        // wrap with Resource
-        ByteArrayResource resource = new ByteArrayResource(fileBytes);
+        // stream the questions file straight from the question store
+        StreamingResponseBody body = outputStream ->
+                analyticsService.writeQuestionsFile(currentUser, outputStream);
 
         // return as download file
         return ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION,
                         "attachment; filename=unanswered_questions.txt")
-                .contentType(MediaType.TEXT_PLAIN)
-                .contentLength(fileBytes.length)
-                .body(resource);
+                .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+                .body(body);
     }
 
     /**
@@ -95,8 +104,9 @@ public class AnalyticsController {
     public ResponseEntity<Map<String, Object>> clearFile() {
         User currentUser = getCurrentUser();
 
-        // delete the file
-        analyticsService.deleteQuestionsFile(currentUser);
+        // drop queued questions (and wait for running flushes), then delete the stored ones
+        questionBatchingService.discardUser(currentUser.getId());
+        analyticsService.deleteQuestions(currentUser);
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
@@ -126,14 +136,17 @@ public class AnalyticsController {
 
     /**
      * ניתוח חכם של השאלות עם AI
+     * Served from the cached analysis; refresh=true forces a full recluster
      */
     @GetMapping("/analyze")
-    public ResponseEntity<Map<String, Object>> analyzeQuestions() {
+    public ResponseEntity<Map<String, Object>> analyzeQuestions(
+            @RequestParam(defaultValue = "false") boolean refresh) {
         User currentUser = getCurrentUser();
 
         log.info("📊 Starting AI analysis for user: {}", currentUser.getId());
+        questionBatchingService.flushUser(currentUser.getId());
 
-        AnalysisResponse analysis = analyticsService.analyzeQuestions(currentUser);
+        AnalysisResponse analysis = analyticsService.analyzeQuestions(currentUser, refresh);
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
@@ -142,34 +155,41 @@ public class AnalyticsController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Download the analysis as a file, streamed straight to the response
+     * format=xlsx (default) or format=csv
+     */
     @GetMapping("/download-excel")
-    public ResponseEntity<ByteArrayResource> downloadExcelAnalysis() {
+    public ResponseEntity<StreamingResponseBody> downloadExcelAnalysis(
+            @RequestParam(defaultValue = "xlsx") String format) {
         User currentUser = getCurrentUser();
 
-        log.info("📊 Generating Excel analysis for user: {}", currentUser.getId());
-
-        try {
-            // Get analysis
-            AnalysisResponse analysis = analyticsService.analyzeQuestions(currentUser);
-            
-            // Generate Excel file
-            byte[] excelBytes = excelExportService.exportToExcel(analysis);
-            
-            // Wrap with Resource
-            ByteArrayResource resource = new ByteArrayResource(excelBytes);
-            
-            // Return as download file
+        log.info("📊 Generating {} analysis for user: {}", format, currentUser.getId());
+        questionBatchingService.flushUser(currentUser.getId());
+
+        // Get the cached analysis (only new questions are analyzed)
+        AnalysisResponse analysis = analyticsService.analyzeQuestions(currentUser);
+
+        if ("csv".equalsIgnoreCase(format)) {
+            StreamingResponseBody body = outputStream ->
+                    excelExportService.exportToCsv(analysis, outputStream);
+
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=analyzed_questions.xlsx")
-                    .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
-                    .contentLength(excelBytes.length)
-                    .body(resource);
-                    
-        } catch (Exception e) {
-            log.error("❌ Failed to generate Excel", e);
-            throw new RuntimeException("נכשל ביצירת קובץ Excel: " + e.getMessage());
+                            "attachment; filename=analyzed_questions.csv")
+                    .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                    .body(body);
         }
+
+        // Generate the Excel file directly into the response
+        StreamingResponseBody body = outputStream ->
+                excelExportService.exportToExcel(analysis, outputStream);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=analyzed_questions.xlsx")
+                .contentType(MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .body(body);
     }
 
 }
\ No newline at end of file
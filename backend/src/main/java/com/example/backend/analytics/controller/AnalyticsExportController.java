@@ -0,0 +1,198 @@
+package com.example.backend.analytics.controller;
+
+import com.example.backend.analytics.event.ExportJobUpdatedEvent;
+import com.example.backend.analytics.model.AnalyticsExportJob;
+import com.example.backend.analytics.model.AnalyticsExportJob.ExportFormat;
+import com.example.backend.analytics.model.AnalyticsExportJob.ExportStatus;
+import com.example.backend.analytics.service.AnalyticsExportService;
+import com.example.backend.common.exception.UnauthorizedException;
+import com.example.backend.common.exception.ValidationException;
+import com.example.backend.common.infrastructure.storage.S3Service;
+import com.example.backend.user.model.User;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Background analytics exports: submit, follow progress (poll or SSE), download.
+ */
+@RestController
+@RequestMapping("/api/analytics/exports")
+@RequiredArgsConstructor
+@Slf4j
+@CrossOrigin(origins = "*")
+public class AnalyticsExportController {
+
+    private static final long SSE_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    private final AnalyticsExportService exportService;
+
+    // SSE subscribers per export job
+    private final Map<Long, CopyOnWriteArrayList<SseEmitter>> jobEmitters = new ConcurrentHashMap<>();
+
+    /**
+     * Start an export (format=xlsx or csv). Returns 202 with the job right away
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> submitExport(
+            @RequestParam(defaultValue = "xlsx") String format) {
+        User currentUser = getCurrentUser();
+
+        AnalyticsExportJob job = exportService.submit(currentUser, parseFormat(format));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("job", toJobData(job));
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> getExport(@PathVariable Long id) {
+        AnalyticsExportJob job = exportService.getJob(id, getCurrentUser());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("job", toJobData(job));
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Progress stream of one export; sends the current state first and completes
+     * once the job has finished or failed
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamExport(@PathVariable Long id) {
+        User currentUser = getCurrentUser();
+        exportService.getJob(id, currentUser);
+
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MS);
+        emitter.onCompletion(() -> removeEmitter(id, emitter));
+        emitter.onTimeout(() -> removeEmitter(id, emitter));
+        emitter.onError(ex -> removeEmitter(id, emitter));
+
+        jobEmitters.computeIfAbsent(id, k -> new CopyOnWriteArrayList<>()).add(emitter);
+
+        // The job may have moved on while subscribing; re-read and send the current state
+        AnalyticsExportJob job = exportService.getJob(id, currentUser);
+        Map<String, Object> data = new HashMap<>();
+        data.put("status", job.getStatus());
+        data.put("progress", job.getProgress());
+        data.put("errorMessage", job.getErrorMessage());
+        send(id, emitter, data, !job.isActive());
+
+        return emitter;
+    }
+
+    @GetMapping("/{id}/download-url")
+    public ResponseEntity<Map<String, Object>> getDownloadUrl(@PathVariable Long id) {
+        S3Service.PresignedUrl presignedUrl = exportService.getDownloadUrl(id, getCurrentUser());
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("url", presignedUrl.getUrl());
+        response.put("expiresIn", presignedUrl.getExpiresInSeconds());
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Forward job updates to the job's SSE subscribers
+     */
+    @EventListener
+    public void handleExportJobUpdated(ExportJobUpdatedEvent event) {
+        List<SseEmitter> emitters = jobEmitters.get(event.getJobId());
+        if (emitters == null || emitters.isEmpty()) {
+            return;
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("status", event.getStatus());
+        data.put("progress", event.getProgress());
+        data.put("errorMessage", event.getErrorMessage());
+
+        boolean finished = event.getStatus() == ExportStatus.COMPLETED || event.getStatus() == ExportStatus.FAILED;
+        emitters.forEach(emitter -> send(event.getJobId(), emitter, data, finished));
+    }
+
+    private void send(Long jobId, SseEmitter emitter, Map<String, Object> data, boolean finished) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name("export-progress")
+                    .data(data));
+
+            if (finished) {
+                emitter.complete();
+            }
+        } catch (IOException e) {
+            log.debug("SSE client of export {} disconnected", jobId);
+            removeEmitter(jobId, emitter);
+        }
+    }
+
+    private void removeEmitter(Long jobId, SseEmitter emitter) {
+        CopyOnWriteArrayList<SseEmitter> emitters = jobEmitters.get(jobId);
+        if (emitters != null) {
+            emitters.remove(emitter);
+            if (emitters.isEmpty()) {
+                jobEmitters.remove(jobId);
+            }
+        }
+    }
+
+    private ExportFormat parseFormat(String format) {
+        try {
+            return ExportFormat.valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("format", "פורמט לא נתמך: " + format);
+        }
+    }
+
+    private Map<String, Object> toJobData(AnalyticsExportJob job) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", job.getId());
+        data.put("format", job.getFormat().getExtension());
+        data.put("status", job.getStatus());
+        data.put("progress", job.getProgress());
+        data.put("fileSize", job.getFileSize());
+        data.put("errorMessage", job.getErrorMessage());
+        data.put("createdAt", job.getCreatedAt());
+        data.put("completedAt", job.getCompletedAt());
+        data.put("expiresAt", job.getExpiresAt());
+        return data;
+    }
+
+    /**
+     * Get the conected user
+     */
+    private User getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication == null || !authentication.isAuthenticated()) {
+            throw new UnauthorizedException("משתמש לא מחובר");
+        }
+
+        Object principal = authentication.getPrincipal();
+        if (!(principal instanceof User)) {
+            throw new UnauthorizedException("משתמש לא תקין");
+        }
+
+        return (User) principal;
+    }
+}
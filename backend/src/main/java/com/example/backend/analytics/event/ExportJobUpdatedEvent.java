@@ -0,0 +1,21 @@
+package com.example.backend.analytics.event;
+
+import com.example.backend.analytics.model.AnalyticsExportJob.ExportStatus;
+import lombok.Getter;
+
+@Getter
+public class ExportJobUpdatedEvent {
+    private final Long jobId;
+    private final Long userId;
+    private final ExportStatus status;
+    private final int progress;
+    private final String errorMessage;
+
+    public ExportJobUpdatedEvent(Long jobId, Long userId, ExportStatus status, int progress, String errorMessage) {
+        this.jobId = jobId;
+        this.userId = userId;
+        this.status = status;
+        this.progress = progress;
+        this.errorMessage = errorMessage;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.backend.analytics.model;
+
+import com.example.backend.user.model.User;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cached question analysis of a user. Covers all questions with id <= watermark;
+ * newer questions are folded in incrementally until the next full recluster.
+ */
+@Entity
+@Table(name = "analytics_analyses")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsAnalysis {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false, unique = true)
+    private User user;
+
+    // AnalysisResponse as JSON
+    @Column(name = "analysis_json", nullable = false, columnDefinition = "TEXT")
+    private String analysisJson;
+
+    // Highest analytics_questions.id included in the analysis
+    @Column(name = "watermark", nullable = false)
+    private Long watermark;
+
+    // Cluster centroids (little-endian floats) when the analysis was clustered locally
+    @Column(name = "centroids")
+    private byte[] centroids;
+
+    // Category name of each centroid, as a JSON array in centroid order
+    @Column(name = "centroid_categories", columnDefinition = "TEXT")
+    private String centroidCategories;
+
+    // Incremental updates since the last full analysis
+    @Column(name = "incremental_updates", nullable = false)
+    @Builder.Default
+    private Integer incrementalUpdates = 0;
+
+    @Column(name = "full_analysis_at")
+    private LocalDateTime fullAnalysisAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.backend.analytics.model;
+
+import com.example.backend.user.model.User;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Background export of the question analysis (xlsx / csv).
+ * The finished file is stored in S3 under the user's prefix until expiresAt.
+ */
+@Entity
+@Table(
+    name = "analytics_export_jobs",
+    indexes = {
+        @Index(name = "idx_analytics_export_jobs_user", columnList = "user_id, status"),
+        @Index(name = "idx_analytics_export_jobs_expires", columnList = "expires_at")
+    }
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsExportJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "format", nullable = false, length = 10)
+    private ExportFormat format;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    @Builder.Default
+    private ExportStatus status = ExportStatus.QUEUED;
+
+    @Column(name = "progress", nullable = false)
+    @Builder.Default
+    private Integer progress = 0;
+
+    @Column(name = "file_path", length = 500)
+    private String filePath;
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Job row and file are removed after this time
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+
+    public boolean isActive() {
+        return status == ExportStatus.QUEUED || status == ExportStatus.RUNNING;
+    }
+
+    public enum ExportFormat {
+        XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+        CSV("csv", "text/csv; charset=UTF-8");
+
+        private final String extension;
+        private final String contentType;
+
+        ExportFormat(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    public enum ExportStatus {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
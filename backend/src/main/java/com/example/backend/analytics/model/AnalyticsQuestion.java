@@ -0,0 +1,66 @@
+package com.example.backend.analytics.model;
+
+import com.example.backend.user.model.User;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One collected (unanswered) widget question. Rows are only ever inserted or bulk-deleted.
+ * Sequence ids with a large allocation size let Hibernate batch the inserts.
+ */
+@Entity
+@Table(
+    name = "analytics_questions",
+    indexes = {
+        @Index(name = "idx_analytics_questions_user_id", columnList = "user_id, id"),
+        @Index(name = "idx_analytics_questions_user_hash", columnList = "user_id, normalized_hash")
+    }
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalyticsQuestion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "analytics_questions_seq")
+    @SequenceGenerator(name = "analytics_questions_seq", sequenceName = "analytics_questions_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(name = "question", nullable = false, columnDefinition = "TEXT")
+    private String question;
+
+    // SHA-256 of the normalized text, for exact-duplicate checks
+    @Column(name = "normalized_hash", length = 64)
+    private String normalizedHash;
+
+    // 64-bit SimHash, for near-duplicate checks
+    @Column(name = "sim_hash")
+    private Long simHash;
+
+    // Reduced, normalized embedding (little-endian floats) for clustering; null until embedded
+    @Column(name = "embedding")
+    private byte[] embedding;
+
+    @Column(name = "site_category")
+    private String siteCategory;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+    }
+}
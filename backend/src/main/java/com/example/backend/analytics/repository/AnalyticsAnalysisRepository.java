@@ -0,0 +1,28 @@
+package com.example.backend.analytics.repository;
+
+import com.example.backend.analytics.model.AnalyticsAnalysis;
+import com.example.backend.user.model.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AnalyticsAnalysisRepository extends JpaRepository<AnalyticsAnalysis, Long> {
+
+    Optional<AnalyticsAnalysis> findByUser(User user);
+
+    // Users whose analysis was updated incrementally since its last full run
+    @Query("SELECT a.user.id FROM AnalyticsAnalysis a WHERE a.incrementalUpdates > 0")
+    List<Long> findUserIdsWithIncrementalUpdates();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AnalyticsAnalysis a WHERE a.user = :user")
+    int deleteByUser(@Param("user") User user);
+}
@@ -0,0 +1,26 @@
+package com.example.backend.analytics.repository;
+
+import com.example.backend.analytics.model.AnalyticsExportJob;
+import com.example.backend.analytics.model.AnalyticsExportJob.ExportFormat;
+import com.example.backend.analytics.model.AnalyticsExportJob.ExportStatus;
+import com.example.backend.user.model.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AnalyticsExportJobRepository extends JpaRepository<AnalyticsExportJob, Long> {
+
+    Optional<AnalyticsExportJob> findByIdAndUser(Long id, User user);
+
+    // A queued or running export of the same format is reused instead of starting another
+    Optional<AnalyticsExportJob> findFirstByUserAndFormatAndStatusIn(User user, ExportFormat format, Collection<ExportStatus> statuses);
+
+    List<AnalyticsExportJob> findByExpiresAtBefore(LocalDateTime time);
+
+    List<AnalyticsExportJob> findByStatusInAndCreatedAtBefore(Collection<ExportStatus> statuses, LocalDateTime time);
+}
@@ -0,0 +1,56 @@
+package com.example.backend.analytics.repository;
+
+import com.example.backend.analytics.model.AnalyticsQuestion;
+import com.example.backend.user.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface AnalyticsQuestionRepository extends JpaRepository<AnalyticsQuestion, Long> {
+
+    long countByUser(User user);
+
+    /**
+     * Keyset page of a user's questions (id > afterId), used to stream them in order
+     */
+    List<AnalyticsQuestion> findTop500ByUserAndIdGreaterThanOrderByIdAsc(User user, Long afterId);
+
+    // Same, with a caller-chosen page size (analysis batches)
+    List<AnalyticsQuestion> findByUserAndIdGreaterThanOrderByIdAsc(User user, Long afterId, Pageable pageable);
+
+    // Id, text and embedding only, for clustering
+    @Query("SELECT q.id AS id, q.question AS question, q.embedding AS embedding FROM AnalyticsQuestion q " +
+           "WHERE q.user = :user AND q.id > :afterId ORDER BY q.id")
+    List<QuestionVector> findVectors(@Param("user") User user, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE AnalyticsQuestion q SET q.embedding = :embedding WHERE q.id = :id")
+    int updateEmbedding(@Param("id") Long id, @Param("embedding") byte[] embedding);
+
+    @Query("SELECT q.normalizedHash FROM AnalyticsQuestion q WHERE q.user = :user AND q.normalizedHash IN :hashes")
+    List<String> findExistingHashes(@Param("user") User user, @Param("hashes") List<String> hashes);
+
+    // SimHashes of the user's most recent questions (newest first)
+    @Query("SELECT q.simHash FROM AnalyticsQuestion q WHERE q.user = :user AND q.simHash IS NOT NULL ORDER BY q.id DESC")
+    List<Long> findRecentSimHashes(@Param("user") User user, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AnalyticsQuestion q WHERE q.user = :user")
+    int deleteByUser(@Param("user") User user);
+
+    // Projection used by findVectors
+    interface QuestionVector {
+        Long getId();
+        String getQuestion();
+        byte[] getEmbedding();
+    }
+}
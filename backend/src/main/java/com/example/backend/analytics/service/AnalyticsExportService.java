@@ -0,0 +1,254 @@
+package com.example.backend.analytics.service;
+
+import com.example.backend.analytics.dto.AnalysisResponse;
+import com.example.backend.analytics.event.ExportJobUpdatedEvent;
+import com.example.backend.analytics.model.AnalyticsExportJob;
+import com.example.backend.analytics.model.AnalyticsExportJob.ExportFormat;
+import com.example.backend.analytics.model.AnalyticsExportJob.ExportStatus;
+import com.example.backend.analytics.repository.AnalyticsExportJobRepository;
+import com.example.backend.common.exception.ExternalServiceException;
+import com.example.backend.common.exception.ResourceNotFoundException;
+import com.example.backend.common.exception.ValidationException;
+import com.example.backend.common.infrastructure.storage.S3Service;
+import com.example.backend.user.model.User;
+import com.example.backend.user.repository.UserRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs analysis exports in the background on a bounded executor.
+ * The request thread only creates the job; progress is tracked on the job row
+ * (and pushed as ExportJobUpdatedEvent), and the finished file is stored in S3
+ * under the user's prefix until the job expires.
+ */
+@Service
+@Slf4j
+public class AnalyticsExportService {
+
+    private static final List<ExportStatus> ACTIVE = List.of(ExportStatus.QUEUED, ExportStatus.RUNNING);
+
+    private final AnalyticsExportJobRepository jobRepository;
+    private final AnalyticsService analyticsService;
+    private final QuestionBatchingService questionBatchingService;
+    private final ExcelExportService excelExportService;
+    private final S3Service s3Service;
+    private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Executor exportExecutor;
+
+    // How long a finished export can be downloaded
+    @Value("${analytics.export.ttl-hours:24}")
+    private long ttlHours;
+
+    // Jobs still active after this long were interrupted (e.g. by a restart)
+    @Value("${analytics.export.max-runtime-minutes:30}")
+    private long maxRuntimeMinutes;
+
+    @Value("${analytics.export.download-url-seconds:300}")
+    private int downloadUrlSeconds;
+
+    public AnalyticsExportService(
+            AnalyticsExportJobRepository jobRepository,
+            AnalyticsService analyticsService,
+            QuestionBatchingService questionBatchingService,
+            ExcelExportService excelExportService,
+            S3Service s3Service,
+            UserRepository userRepository,
+            ApplicationEventPublisher eventPublisher,
+            @Qualifier("analyticsExportExecutor") Executor exportExecutor) {
+        this.jobRepository = jobRepository;
+        this.analyticsService = analyticsService;
+        this.questionBatchingService = questionBatchingService;
+        this.excelExportService = excelExportService;
+        this.s3Service = s3Service;
+        this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.exportExecutor = exportExecutor;
+    }
+
+    // Create an export job and queue it; an active job of the same format is returned instead
+    public AnalyticsExportJob submit(User user, ExportFormat format) {
+        Optional<AnalyticsExportJob> active = jobRepository.findFirstByUserAndFormatAndStatusIn(user, format, ACTIVE);
+        if (active.isPresent()) {
+            log.info("ℹ️ Reusing active export job {} for user {}", active.get().getId(), user.getId());
+            return active.get();
+        }
+
+        AnalyticsExportJob job = jobRepository.save(AnalyticsExportJob.builder()
+                .user(user)
+                .format(format)
+                .expiresAt(LocalDateTime.now().plusHours(ttlHours))
+                .build());
+
+        Long jobId = job.getId();
+        Long userId = user.getId();
+
+        try {
+            exportExecutor.execute(() -> run(jobId, userId));
+        } catch (RejectedExecutionException e) {
+            jobRepository.delete(job);
+            log.warn("⚠️ Export queue is full - rejected export for user {}", userId);
+            throw new ExternalServiceException("ייצוא", "יותר מדי ייצואים פעילים, נסה שוב בעוד מספר דקות");
+        }
+
+        log.info("📤 Export job {} ({}) queued for user {}", jobId, format, userId);
+        return job;
+    }
+
+    public AnalyticsExportJob getJob(Long jobId, User user) {
+        return jobRepository.findByIdAndUser(jobId, user)
+                .orElseThrow(() -> new ResourceNotFoundException("ייצוא", jobId));
+    }
+
+    // Short-lived presigned URL of a finished export
+    public S3Service.PresignedUrl getDownloadUrl(Long jobId, User user) {
+        AnalyticsExportJob job = getJob(jobId, user);
+
+        if (job.getStatus() != ExportStatus.COMPLETED) {
+            throw new ValidationException("הייצוא עדיין לא הסתיים");
+        }
+
+        ExportFormat format = job.getFormat();
+        return s3Service.presign(
+                job.getFilePath(),
+                downloadUrlSeconds,
+                "attachment; filename=analyzed_questions." + format.getExtension(),
+                format.getContentType()
+        );
+    }
+
+    // Analyze, write the file to a temp file, upload it to S3
+    private void run(Long jobId, Long userId) {
+        AnalyticsExportJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+
+        ExportFormat format = job.getFormat();
+        Path tempFile = null;
+
+        try {
+            User user = userRepository.findById(userId)
+                    .orElseThrow(() -> new ResourceNotFoundException("משתמש", userId));
+
+            update(job, ExportStatus.RUNNING, 5);
+
+            // Include questions still waiting in the batch buffer
+            questionBatchingService.flushUser(userId);
+            update(job, ExportStatus.RUNNING, 20);
+
+            AnalysisResponse analysis = analyticsService.analyzeQuestions(user);
+            update(job, ExportStatus.RUNNING, 70);
+
+            tempFile = Files.createTempFile("analytics-export-" + jobId + "-", "." + format.getExtension());
+            try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                if (format == ExportFormat.CSV) {
+                    excelExportService.exportToCsv(analysis, outputStream);
+                } else {
+                    excelExportService.exportToExcel(analysis, outputStream);
+                }
+            }
+            update(job, ExportStatus.RUNNING, 85);
+
+            String filePath = String.format("users/%d/analytics/exports/%d.%s", userId, jobId, format.getExtension());
+            long size = Files.size(tempFile);
+            try (InputStream inputStream = Files.newInputStream(tempFile)) {
+                s3Service.uploadFile(inputStream, filePath, format.getContentType(), size);
+            }
+
+            job.setFilePath(filePath);
+            job.setFileSize(size);
+            job.setCompletedAt(LocalDateTime.now());
+            job.setExpiresAt(LocalDateTime.now().plusHours(ttlHours));
+            update(job, ExportStatus.COMPLETED, 100);
+
+            log.info("✅ Export job {} completed ({} bytes)", jobId, size);
+
+        } catch (Exception e) {
+            log.error("❌ Export job {} failed", jobId, e);
+
+            String message = e.getMessage() != null ? e.getMessage() : "הייצוא נכשל";
+            job.setErrorMessage(message.length() > 1000 ? message.substring(0, 1000) : message);
+            job.setCompletedAt(LocalDateTime.now());
+            update(job, ExportStatus.FAILED, job.getProgress());
+
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    log.debug("Could not delete temp export file {}", tempFile);
+                }
+            }
+        }
+    }
+
+    private void update(AnalyticsExportJob job, ExportStatus status, int progress) {
+        job.setStatus(status);
+        job.setProgress(progress);
+        jobRepository.save(job);
+
+        eventPublisher.publishEvent(new ExportJobUpdatedEvent(
+                job.getId(), job.getUser().getId(), status, progress, job.getErrorMessage()));
+    }
+
+    /**
+     * Remove expired jobs and their files, and fail jobs that never finished.
+     */
+    @Scheduled(fixedDelayString = "${analytics.export.cleanup-interval-ms:3600000}")
+    public void cleanupExpired() {
+        LocalDateTime now = LocalDateTime.now();
+
+        for (AnalyticsExportJob job : jobRepository.findByStatusInAndCreatedAtBefore(ACTIVE, now.minusMinutes(maxRuntimeMinutes))) {
+            job.setErrorMessage("הייצוא הופסק");
+            job.setCompletedAt(now);
+            update(job, ExportStatus.FAILED, job.getProgress());
+        }
+
+        List<AnalyticsExportJob> expired = jobRepository.findByExpiresAtBefore(now);
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        List<String> filePaths = expired.stream()
+                .map(AnalyticsExportJob::getFilePath)
+                .filter(path -> path != null)
+                .toList();
+
+        // Keep rows whose file could not be deleted, so the next run retries
+        Set<String> failed = new HashSet<>();
+        if (!filePaths.isEmpty()) {
+            failed.addAll(s3Service.deleteFiles(filePaths).getFailedKeys());
+        }
+
+        List<AnalyticsExportJob> removable = new ArrayList<>();
+        for (AnalyticsExportJob job : expired) {
+            if (job.getFilePath() == null || !failed.contains(job.getFilePath())) {
+                removable.add(job);
+            }
+        }
+        jobRepository.deleteAll(removable);
+
+        log.info("🧹 Removed {} expired export jobs ({} files)", removable.size(), filePaths.size() - failed.size());
+    }
+}
@@ -1,8 +1,13 @@
 package com.example.backend.analytics.service;
 
 import com.example.backend.analytics.dto.AnalysisResponse;
+import com.example.backend.analytics.model.AnalyticsAnalysis;
+import com.example.backend.analytics.model.AnalyticsQuestion;
+import com.example.backend.analytics.repository.AnalyticsAnalysisRepository;
+import com.example.backend.analytics.repository.AnalyticsQuestionRepository;
 import com.example.backend.collection.service.CollectionService;
 import com.example.backend.user.model.User;
+import com.example.backend.user.repository.UserRepository;
 import com.example.backend.user.service.TokenService;
 import com.example.backend.common.infrastructure.storage.S3Service;
 import com.example.backend.query.service.PromptService;
@@ -12,17 +17,32 @@ import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.model.output.Response;
 import dev.langchain4j.data.message.AiMessage;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 @RequiredArgsConstructor
@@ -34,60 +54,157 @@ public class AnalyticsService {
     private final OpenAiChatModel chatModel;
     private final PromptService promptService;
     private final TokenService tokenService;
+    private final AnalyticsQuestionRepository questionRepository;
+    private final QuestionDedupService dedupService;
+    private final QuestionRelevanceService relevanceService;
+    private final QuestionClusteringService clusteringService;
+    private final AnalyticsAnalysisRepository analysisRepository;
+    private final UserRepository userRepository;
 
-    // Get user by the key
-    public User getUserBySecretKey(String secretKey) {
-        return collectionService.validateSecretKey(secretKey);
-    }
+    private final ObjectMapper mapper = new ObjectMapper();
 
-    // Append the questions to the questions file in S3
-    public void appendQuestionsToFile(User user, List<String> newQuestions, String siteCategory) {
-        String filePath = getFilePath(user);
+    // Representative questions per category sent with an incremental update
+    private static final int REPRESENTATIVE_QUESTIONS = 10;
 
-        List<String> allQuestions = new ArrayList<>();
+    // Representative questions per cluster sent for naming
+    private static final int NAMING_SAMPLES = 5;
 
-        // 1. Check if the file exists, if not read the content
-        try {
-            InputStream existing = s3Service.downloadFile(filePath);
-            String content = new String(existing.readAllBytes(), StandardCharsets.UTF_8);
+    // Questions read / embedded per round trip when clustering
+    private static final int VECTOR_PAGE_SIZE = 2000;
+    private static final int EMBED_BATCH_SIZE = 500;
 
-            // Extract the questions from the file
-            String[] lines = content.split("\n");
-            for (String line : lines) {
-                line = line.trim();
-                // Take the questions only without empty lines
-                if (!line.isEmpty() && !line.startsWith("שאלה")) {
-                    allQuestions.add(line);
-                }
-            }
+    // Most questions sent in one full analysis prompt (when clustering is disabled)
+    @Value("${analytics.analysis.full-max-questions:2000}")
+    private int fullMaxQuestions;
 
-            log.info("📖 Found {} existing questions in file", allQuestions.size());
+    // New questions assigned per incremental prompt
+    @Value("${analytics.analysis.incremental-batch-size:300}")
+    private int incrementalBatchSize;
 
-        } catch (Exception e) {
-            log.info("📝 No existing file found, will create new one");
+    // Users whose legacy S3 questions file was already checked in this process
+    private final Set<Long> legacyChecked = ConcurrentHashMap.newKeySet();
+
+    // One analysis per user at a time (one small lock per user that ever analyzed)
+    private final Map<Long, ReentrantLock> analysisLocks = new ConcurrentHashMap<>();
+
+    // Get user by the key
+    public User getUserBySecretKey(String secretKey) {
+        return collectionService.validateSecretKey(secretKey);
+    }
+
+    // Append the questions to the user's question store (insert-only, batched)
+    public void appendQuestions(User user, List<String> newQuestions, String siteCategory) {
+        importLegacyFile(user);
+
+        // 1. Drop exact and near-duplicates locally
+        List<String> unique = dedupService.removeDuplicates(user, newQuestions);
+        if (unique.isEmpty()) {
+            log.info("ℹ️ All {} questions were duplicates", newQuestions.size());
+            return;
         }
 
-        // 2. Filter the questions with AI
+        List<String> accepted;
+        // Embeddings computed by the relevance check, so accepted questions aren't embedded twice
+        Map<String, float[]> embeddings = new HashMap<>();
+
+        // 2. Filter by relevance to the site category
         if (siteCategory != null && !siteCategory.trim().isEmpty()) {
             log.info("🔍 Filtering {} new questions for category: {}",
-                    newQuestions.size(), siteCategory);
+                    unique.size(), siteCategory);
 
-            List<String> filteredNew = filterWithLLM(newQuestions, siteCategory, user);
-            allQuestions.addAll(filteredNew);
+            accepted = filterByRelevance(unique, siteCategory, user, embeddings);
 
             log.info("✅ Added {} relevant questions (filtered from {} total)",
-                    filteredNew.size(), newQuestions.size());
+                    accepted.size(), newQuestions.size());
         } else {
             // If there is no category add the questions without filter
-            allQuestions.addAll(newQuestions);
+            accepted = unique;
             log.info("ℹ️ No category provided - added all {} questions without filtering",
-                    newQuestions.size());
+                    unique.size());
         }
 
-        // 3. Save all questions back to file
-        saveQuestionsToFile(user, allQuestions);
+        saveQuestions(user, accepted, siteCategory, embeddings);
+    }
+
+    // Embedding similarity decides the clear cases; only borderline questions go to the LLM
+    private List<String> filterByRelevance(
+            List<String> questions, String siteCategory, User user, Map<String, float[]> embeddings) {
+        if (!relevanceService.isEnabled()) {
+            return filterWithLLM(questions, siteCategory, user);
+        }
 
-        log.info("✅ Total questions in file now: {}", allQuestions.size());
+        try {
+            QuestionRelevanceService.RelevanceResult result = relevanceService.classify(questions, siteCategory);
+            embeddings.putAll(result.getEmbeddings());
+
+            List<String> accepted = new ArrayList<>(result.getRelevant());
+            if (!result.getBorderline().isEmpty()) {
+                accepted.addAll(filterWithLLM(result.getBorderline(), siteCategory, user));
+            }
+            return accepted;
+
+        } catch (Exception e) {
+            log.warn("⚠️ Embedding relevance check failed, falling back to LLM filter", e);
+            return filterWithLLM(questions, siteCategory, user);
+        }
+    }
+
+    private void saveQuestions(
+            User user, List<String> questions, String siteCategory, Map<String, float[]> embeddings) {
+        List<AnalyticsQuestion> rows = new ArrayList<>();
+        List<float[]> known = new ArrayList<>();
+        for (String raw : questions) {
+            String question = raw.trim();
+            if (question.isEmpty()) {
+                continue;
+            }
+            rows.add(AnalyticsQuestion.builder()
+                    .user(user)
+                    .question(question)
+                    .normalizedHash(dedupService.hash(question))
+                    .simHash(dedupService.simHash(question))
+                    .siteCategory(siteCategory)
+                    .build());
+            known.add(embeddings.get(raw));
+        }
+
+        if (!rows.isEmpty()) {
+            embedQuestions(rows, known);
+            questionRepository.saveAll(rows);
+        }
+        log.info("💾 Stored {} questions for user {}", rows.size(), user.getId());
+    }
+
+    /**
+     * Store the clustering embedding with each question. Embeddings already computed by the
+     * relevance check (same model) are only reduced; the rest are embedded in one call.
+     * Missing ones are backfilled at analysis time.
+     */
+    private void embedQuestions(List<AnalyticsQuestion> rows, List<float[]> known) {
+        if (!clusteringService.isEnabled()) {
+            return;
+        }
+
+        List<AnalyticsQuestion> missing = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (known.get(i) != null) {
+                rows.get(i).setEmbedding(clusteringService.toBytes(clusteringService.reduce(known.get(i))));
+            } else {
+                missing.add(rows.get(i));
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<float[]> vectors = clusteringService.embed(missing.stream().map(AnalyticsQuestion::getQuestion).toList());
+            for (int i = 0; i < missing.size(); i++) {
+                missing.get(i).setEmbedding(clusteringService.toBytes(vectors.get(i)));
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Failed to embed {} questions, will embed them at analysis time", missing.size(), e);
+        }
     }
 
     // Filter the questions with AI
@@ -158,173 +275,561 @@ public class AnalyticsService {
         }
     }
 
-    // Save the questions list to file
-    private void saveQuestionsToFile(User user, List<String> questions) {
-        String filePath = getFilePath(user);
+    // Number of stored questions
+    public long countQuestions(User user) {
+        importLegacyFile(user);
+        return questionRepository.countByUser(user);
+    }
 
-        // Build file content
-        StringBuilder content = new StringBuilder();
-        for (int i = 0; i < questions.size(); i++) {
-            content.append("שאלה ").append(i + 1).append("\n");
-            content.append(questions.get(i)).append("\n\n");
+    /**
+     * Stream the questions file ("שאלה N" + question) page by page, so memory stays
+     * flat no matter how many questions were collected.
+     */
+    public void writeQuestionsFile(User user, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+
+        int number = 1;
+        Long lastId = 0L;
+        List<AnalyticsQuestion> page;
+
+        do {
+            page = questionRepository.findTop500ByUserAndIdGreaterThanOrderByIdAsc(user, lastId);
+            for (AnalyticsQuestion question : page) {
+                writer.write("שאלה " + number++ + "\n");
+                writer.write(question.getQuestion() + "\n\n");
+                lastId = question.getId();
+            }
+        } while (!page.isEmpty());
+
+        writer.flush();
+    }
+
+    // Delete all questions of the user
+    public void deleteQuestions(User user) {
+        if (countQuestions(user) == 0) {
+            log.warn("⚠️ No questions to delete for user: {}", user.getId());
+            throw new com.example.backend.common.exception.ResourceNotFoundException("אין שאלות למחיקה. הקובץ לא קיים.");
+        }
+
+        int deleted = questionRepository.deleteByUser(user);
+        analysisRepository.deleteByUser(user);
+        log.info("🗑️ Deleted {} questions of user {}", deleted, user.getId());
+    }
+
+    /**
+     * One-time import of the old S3 questions.txt into the question store.
+     * Checked once per user per process; the file is deleted after a successful import.
+     */
+    private void importLegacyFile(User user) {
+        if (!legacyChecked.add(user.getId())) {
+            return;
         }
 
-        // Convert to bytes
-        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        String filePath = getLegacyFilePath(user);
+
+        try {
+            if (!s3Service.fileExists(filePath)) {
+                return;
+            }
+
+            String content;
+            try (InputStream inputStream = s3Service.downloadFile(filePath)) {
+                content = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+            }
+
+            List<String> questions = new ArrayList<>();
+            for (String line : content.split("\n")) {
+                line = line.trim();
+                // Skip empty lines and "Question N" headers
+                if (!line.isEmpty() && !line.startsWith("שאלה")) {
+                    questions.add(line);
+                }
+            }
+
+            saveQuestions(user, questions, null, Map.of());
+            s3Service.deleteFile(filePath);
 
-        // Upload to S3
-        s3Service.uploadFile(
-                new ByteArrayInputStream(bytes),
-                filePath,
-                "text/plain; charset=UTF-8",
-                bytes.length
-        );
+            log.info("📦 Imported {} questions from legacy file {}", questions.size(), filePath);
 
-        log.info("💾 Saved {} questions to S3: {}", questions.size(), filePath);
+        } catch (Exception e) {
+            // Try again on the next access
+            legacyChecked.remove(user.getId());
+            log.error("❌ Failed to import legacy questions file: {}", filePath, e);
+        }
     }
 
-    // Download the questions file
-    public byte[] downloadQuestionsFile(User user) {
-        String filePath = getFilePath(user);
+    // Old S3 location of the questions file
+    private String getLegacyFilePath(User user) {
+        return String.format("users/%d/analytics/questions.txt", user.getId());
+    }
+
+    /**
+     * Analyze questions with AI
+     * Groups questions by category, removes duplicates, and provides insights.
+     * Served from the cached analysis; only questions newer than its watermark are processed.
+     */
+    public AnalysisResponse analyzeQuestions(User user) {
+        return analyzeQuestions(user, false);
+    }
 
+    /**
+     * Analyze questions, optionally forcing a full recluster of all stored questions.
+     * A full analysis clusters all questions locally (or, with clustering disabled, sends the oldest
+     * analytics.analysis.full-max-questions to the AI); everything after the watermark is assigned
+     * to the existing categories in batches.
+     */
+    public AnalysisResponse analyzeQuestions(User user, boolean fullRecluster) {
+        // Concurrent callers (/analyze, Excel download, export, nightly recluster) wait for the
+        // running analysis and then reuse what it stored, instead of inserting and billing twice
+        ReentrantLock lock = analysisLocks.computeIfAbsent(user.getId(), id -> new ReentrantLock());
+        LocalDateTime requestedAt = LocalDateTime.now();
+
+        lock.lock();
         try {
-            InputStream inputStream = s3Service.downloadFile(filePath);
-            byte[] fileBytes = inputStream.readAllBytes();
-            
-            // Check if file is empty or contains only whitespace
-            if (fileBytes.length == 0) {
-                log.warn("⚠️ Questions file is empty for user: {}", user.getId());
-                throw new com.example.backend.common.exception.ResourceNotFoundException("קובץ השאלות ריק. אין שאלות להורדה.");
+            return analyzeLocked(user, fullRecluster, requestedAt);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private AnalysisResponse analyzeLocked(User user, boolean fullRecluster, LocalDateTime requestedAt) {
+        importLegacyFile(user);
+
+        try {
+            AnalyticsAnalysis stored = analysisRepository.findByUser(user).orElse(null);
+            AnalysisResponse analysis;
+
+            // A full analysis that finished while this caller waited already covers its recluster
+            if (fullRecluster && stored != null && stored.getFullAnalysisAt() != null
+                    && stored.getFullAnalysisAt().isAfter(requestedAt)) {
+                log.info("ℹ️ Full analysis of user {} finished while waiting - reusing it", user.getId());
+                fullRecluster = false;
             }
-            
-            // Check if file contains actual questions (not just whitespace)
-            String content = new String(fileBytes, StandardCharsets.UTF_8).trim();
-            if (content.isEmpty()) {
-                log.warn("⚠️ Questions file contains only whitespace for user: {}", user.getId());
-                throw new com.example.backend.common.exception.ResourceNotFoundException("קובץ השאלות ריק. אין שאלות להורדה.");
+
+            if (stored == null || fullRecluster) {
+                if (stored == null) {
+                    stored = AnalyticsAnalysis.builder().user(user).build();
+                }
+
+                if (clusteringService.isEnabled()) {
+                    analysis = runClusterAnalysis(user, stored);
+                } else {
+                    List<AnalyticsQuestion> batch = loadQuestionsAfter(user, 0L, fullMaxQuestions);
+
+                    if (batch.isEmpty()) {
+                        log.warn("⚠️ No questions stored for user: {}", user.getId());
+                        throw new com.example.backend.common.exception.ResourceNotFoundException("לא נמצאו שאלות לניתוח.");
+                    }
+
+                    analysis = runFullAnalysis(user, texts(batch));
+                    stored.setWatermark(lastId(batch));
+                    stored.setCentroids(null);
+                    stored.setCentroidCategories(null);
+                }
+
+                stored.setIncrementalUpdates(0);
+                stored.setFullAnalysisAt(LocalDateTime.now());
+                storeAnalysis(stored, analysis);
+            } else {
+                analysis = mapper.readValue(stored.getAnalysisJson(), AnalysisResponse.class);
             }
-            
-            return fileBytes;
+
+            // Fold in questions collected since the watermark:
+            // locally by nearest centroid when clustered, otherwise through the AI
+            Map<String, float[]> representativeVectors = new HashMap<>();
+            List<AnalyticsQuestion> newer;
+            while (!(newer = loadQuestionsAfter(user, stored.getWatermark(), incrementalBatchSize)).isEmpty()) {
+                if (stored.getCentroids() != null) {
+                    assignToClusters(analysis, stored, newer, representativeVectors);
+                } else {
+                    assignIncrementally(user, analysis, texts(newer));
+                }
+
+                stored.setWatermark(lastId(newer));
+                stored.setIncrementalUpdates(stored.getIncrementalUpdates() + 1);
+                storeAnalysis(stored, analysis);
+            }
+
+            return analysis;
+
         } catch (com.example.backend.common.exception.ResourceNotFoundException e) {
             // Re-throw ResourceNotFoundException as-is
             throw e;
         } catch (Exception e) {
-            log.error("❌ File not found: {}", filePath);
-            throw new com.example.backend.common.exception.ResourceNotFoundException("לא נמצאו שאלות. אנא נסה לאסוף שאלות תחילה.");
+            log.error("❌ Failed to analyze questions", e);
+            throw new RuntimeException("נכשל בניתוח השאלות: " + e.getMessage());
         }
     }
 
-    // Delete questions file
-    public void deleteQuestionsFile(User user) {
-        String filePath = getFilePath(user);
-        
-        // Check if file exists before trying to delete
-        if (!s3Service.fileExists(filePath)) {
-            log.warn("⚠️ No questions file to delete for user: {}", user.getId());
-            throw new com.example.backend.common.exception.ResourceNotFoundException("אין שאלות למחיקה. הקובץ לא קיים.");
+    /**
+     * Nightly full recluster of analyses that were extended incrementally,
+     * so categories don't drift as new questions keep being folded in.
+     */
+    @Scheduled(cron = "${analytics.analysis.recluster-cron:0 0 3 * * *}")
+    public void reclusterUpdatedAnalyses() {
+        List<Long> userIds = analysisRepository.findUserIdsWithIncrementalUpdates();
+        if (userIds.isEmpty()) {
+            return;
+        }
+
+        log.info("🔄 Reclustering {} question analyses", userIds.size());
+
+        for (Long userId : userIds) {
+            try {
+                userRepository.findById(userId).ifPresent(user -> analyzeQuestions(user, true));
+            } catch (Exception e) {
+                log.error("❌ Failed to recluster analysis of user {}", userId, e);
+            }
+        }
+    }
+
+    /**
+     * Full analysis by local clustering of all stored questions.
+     * The AI only names the clusters from a few representative questions each.
+     */
+    private AnalysisResponse runClusterAnalysis(User user, AnalyticsAnalysis stored) throws IOException {
+        List<Long> ids = new ArrayList<>();
+        List<String> questions = new ArrayList<>();
+        List<float[]> vectors = new ArrayList<>();
+
+        Long lastId = 0L;
+        List<AnalyticsQuestionRepository.QuestionVector> page;
+        do {
+            page = questionRepository.findVectors(user, lastId, PageRequest.of(0, VECTOR_PAGE_SIZE));
+            for (AnalyticsQuestionRepository.QuestionVector row : page) {
+                ids.add(row.getId());
+                questions.add(row.getQuestion());
+                vectors.add(clusteringService.fromBytes(row.getEmbedding()));
+                lastId = row.getId();
+            }
+        } while (!page.isEmpty());
+
+        if (ids.isEmpty()) {
+            log.warn("⚠️ No questions stored for user: {}", user.getId());
+            throw new com.example.backend.common.exception.ResourceNotFoundException("לא נמצאו שאלות לניתוח.");
         }
-        
+
+        log.info("🔍 Clustering {} questions", ids.size());
+        backfillEmbeddings(ids, questions, vectors);
+
+        List<QuestionClusteringService.Cluster> clusters =
+                clusteringService.cluster(vectors.toArray(new float[0][]));
+
+        // Name the clusters from their most common intents
+        StringBuilder clustersText = new StringBuilder();
+        for (int c = 0; c < clusters.size(); c++) {
+            QuestionClusteringService.Cluster cluster = clusters.get(c);
+            clustersText.append("קבוצה ").append(c + 1)
+                    .append(" (").append(cluster.getSize()).append(" שאלות):\n");
+            cluster.getIntents().stream()
+                    .limit(NAMING_SAMPLES)
+                    .forEach(intent -> clustersText.append("- ").append(questions.get(intent.getLeader())).append("\n"));
+        }
+
+        JsonNode naming = mapper.createObjectNode();
         try {
-            s3Service.deleteFile(filePath);
-            log.info("🗑️ Deleted questions file: {}", filePath);
+            String fullPrompt = promptService.getAnalyticsClusterNamingPrompt(clustersText.toString());
+            naming = mapper.readTree(generate(user, fullPrompt, "cluster naming"));
         } catch (Exception e) {
-            log.error("❌ Failed to delete file: {}", filePath, e);
-            throw new RuntimeException("שגיאה במחיקת הקובץ: " + e.getMessage());
+            log.warn("⚠️ Failed to name clusters, using generic names", e);
         }
-    }
 
-    // Get file path in S3
-    private String getFilePath(User user) {
-        return String.format("users/%d/analytics/questions.txt", user.getId());
+        Map<Integer, JsonNode> namesByIndex = new HashMap<>();
+        for (JsonNode category : naming.path("categories")) {
+            namesByIndex.put(category.path("index").asInt(0) - 1, category);
+        }
+
+        List<AnalysisResponse.CategoryData> categories = new ArrayList<>();
+        List<String> centroidCategories = new ArrayList<>();
+        float[][] centroids = new float[clusters.size()][];
+
+        for (int c = 0; c < clusters.size(); c++) {
+            QuestionClusteringService.Cluster cluster = clusters.get(c);
+            JsonNode name = namesByIndex.getOrDefault(c, mapper.createObjectNode());
+
+            String categoryName = name.path("categoryName").asText("").trim();
+            if (categoryName.isEmpty() || centroidCategories.contains(categoryName)) {
+                categoryName = (categoryName.isEmpty() ? "קטגוריה" : categoryName) + " " + (c + 1);
+            }
+
+            List<AnalysisResponse.QuestionData> representatives = new ArrayList<>();
+            for (QuestionClusteringService.Intent intent : cluster.getIntents()) {
+                representatives.add(new AnalysisResponse.QuestionData(questions.get(intent.getLeader()), intent.getCount()));
+            }
+
+            categories.add(AnalysisResponse.CategoryData.builder()
+                    .categoryName(categoryName)
+                    .icon(name.path("icon").asText("❓"))
+                    .questions(representatives)
+                    .totalCount(cluster.getSize())
+                    .build());
+            centroidCategories.add(categoryName);
+            centroids[c] = cluster.getCentroid();
+        }
+
+        stored.setWatermark(lastId);
+        stored.setCentroids(clusteringService.matrixToBytes(centroids));
+        stored.setCentroidCategories(mapper.writeValueAsString(centroidCategories));
+
+        log.info("✅ Analysis completed: {} categories found", categories.size());
+
+        return AnalysisResponse.builder()
+                .categories(categories)
+                .summary(naming.path("summary").asText(""))
+                .totalQuestions(ids.size())
+                .build();
     }
 
     /**
-     * Analyze questions with AI
-     * Groups questions by category, removes duplicates, and provides insights
+     * Assign new questions to the nearest stored centroid and, inside it, to the closest
+     * representative question with the same intent (or add a new representative). No AI call.
      */
-    public AnalysisResponse analyzeQuestions(User user) {
-        String filePath = getFilePath(user);
+    private void assignToClusters(AnalysisResponse analysis, AnalyticsAnalysis stored,
+                                  List<AnalyticsQuestion> questions, Map<String, float[]> representativeVectors) throws IOException {
+        float[][] centroids = clusteringService.matrixFromBytes(stored.getCentroids());
+        List<String> centroidCategories = mapper.readValue(stored.getCentroidCategories(), new TypeReference<List<String>>() {});
+
+        List<Long> ids = questions.stream().map(AnalyticsQuestion::getId).toList();
+        List<String> texts = texts(questions);
+        List<float[]> vectors = new ArrayList<>();
+        for (AnalyticsQuestion question : questions) {
+            vectors.add(clusteringService.fromBytes(question.getEmbedding()));
+        }
+        backfillEmbeddings(ids, texts, vectors);
+
+        // Representative questions are embedded once per analysis run
+        List<String> missing = analysis.getCategories().stream()
+                .flatMap(category -> category.getQuestions().stream())
+                .map(AnalysisResponse.QuestionData::getQuestion)
+                .filter(question -> !representativeVectors.containsKey(question))
+                .distinct()
+                .toList();
+        if (!missing.isEmpty()) {
+            List<float[]> embedded = clusteringService.embed(missing);
+            for (int i = 0; i < missing.size(); i++) {
+                representativeVectors.put(missing.get(i), embedded.get(i));
+            }
+        }
 
-        try {
-            // 1. Check if questions file exists
-            if (!s3Service.fileExists(filePath)) {
-                log.warn("⚠️ No questions file found for user: {}", user.getId());
-                throw new com.example.backend.common.exception.ResourceNotFoundException("לא נמצאו שאלות לניתוח.");
+        for (int i = 0; i < texts.size(); i++) {
+            float[] vector = vectors.get(i);
+            String categoryName = centroidCategories.get(QuestionClusteringService.nearest(vector, centroids));
+            AnalysisResponse.CategoryData category = findOrAddCategory(analysis, categoryName, "❓");
+
+            AnalysisResponse.QuestionData best = null;
+            double bestSimilarity = clusteringService.getIntentThreshold();
+            for (AnalysisResponse.QuestionData representative : category.getQuestions()) {
+                float[] representativeVector = representativeVectors.get(representative.getQuestion());
+                if (representativeVector == null) {
+                    continue;
+                }
+                double similarity = QuestionClusteringService.similarity(vector, representativeVector);
+                if (similarity >= bestSimilarity) {
+                    bestSimilarity = similarity;
+                    best = representative;
+                }
             }
 
-            // 2. Download file from S3
-            InputStream inputStream = s3Service.downloadFile(filePath);
-            String content = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+            if (best == null) {
+                best = new AnalysisResponse.QuestionData(texts.get(i), 0);
+                category.getQuestions().add(best);
+                representativeVectors.put(texts.get(i), vector);
+            }
+            best.setCount(best.getCount() + 1);
+            category.setTotalCount(category.getTotalCount() + 1);
+        }
 
-            // 3. Extract questions from file content
-            List<String> questions = new ArrayList<>();
-            String[] lines = content.split("\n");
-            for (String line : lines) {
-                line = line.trim();
-                // Skip empty lines and "Question N" headers
-                if (!line.isEmpty() && !line.startsWith("שאלה")) {
-                    questions.add(line);
-                }
+        sortByCount(analysis);
+        analysis.setTotalQuestions(analysis.getTotalQuestions() + questions.size());
+
+        log.info("✅ Assigned {} new questions to {} clusters locally", questions.size(), centroids.length);
+    }
+
+    // Embed questions stored without a (current) embedding and persist the result
+    private void backfillEmbeddings(List<Long> ids, List<String> questions, List<float[]> vectors) {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < vectors.size(); i++) {
+            if (vectors.get(i) == null) {
+                missing.add(i);
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        log.info("🔢 Embedding {} questions without a stored embedding", missing.size());
+
+        for (int from = 0; from < missing.size(); from += EMBED_BATCH_SIZE) {
+            List<Integer> batch = missing.subList(from, Math.min(from + EMBED_BATCH_SIZE, missing.size()));
+            List<float[]> embedded = clusteringService.embed(batch.stream().map(questions::get).toList());
+
+            for (int j = 0; j < batch.size(); j++) {
+                int index = batch.get(j);
+                vectors.set(index, embedded.get(j));
+                questionRepository.updateEmbedding(ids.get(index), clusteringService.toBytes(embedded.get(j)));
             }
+        }
+    }
+
+    // Full analysis of the given questions
+    private AnalysisResponse runFullAnalysis(User user, List<String> questions) throws IOException {
+        log.info("🔍 Analyzing {} questions with AI", questions.size());
+
+        String fullPrompt = promptService.getAnalyticsAnalysisPrompt(numbered(questions));
+        String aiResponse = generate(user, fullPrompt, "analysis");
 
-            // 4. Check if there are actual questions to analyze
-            if (questions.isEmpty()) {
-                log.warn("⚠️ Questions file is empty for user: {}", user.getId());
-                throw new com.example.backend.common.exception.ResourceNotFoundException("קובץ השאלות ריק.");
+        AnalysisResponse analysis = mapper.readValue(aiResponse, AnalysisResponse.class);
+        if (analysis.getCategories() == null) {
+            analysis.setCategories(new ArrayList<>());
+        }
+        for (AnalysisResponse.CategoryData category : analysis.getCategories()) {
+            if (category.getQuestions() == null) {
+                category.setQuestions(new ArrayList<>());
             }
+        }
+        analysis.setTotalQuestions(questions.size());
 
-            log.info("🔍 Analyzing {} questions with AI", questions.size());
+        log.info("✅ Analysis completed: {} categories found", analysis.getCategories().size());
+        return analysis;
+    }
 
-            // 5. Build questions text for prompt
-            StringBuilder questionsText = new StringBuilder();
-            for (int i = 0; i < questions.size(); i++) {
-                questionsText.append((i + 1)).append(". ").append(questions.get(i)).append("\n");
+    /**
+     * Assign new questions to the existing categories (or new ones) and update the counts.
+     * Only the category names and top representative questions are sent, so the prompt stays small.
+     */
+    private void assignIncrementally(User user, AnalysisResponse analysis, List<String> questions) throws IOException {
+        log.info("🔍 Assigning {} new questions to {} existing categories",
+                questions.size(), analysis.getCategories().size());
+
+        StringBuilder existing = new StringBuilder();
+        for (AnalysisResponse.CategoryData category : analysis.getCategories()) {
+            existing.append("- ").append(category.getIcon()).append(" ").append(category.getCategoryName()).append("\n");
+            category.getQuestions().stream()
+                    .limit(REPRESENTATIVE_QUESTIONS)
+                    .forEach(q -> existing.append("  * ").append(q.getQuestion()).append("\n"));
+        }
+
+        String fullPrompt = promptService.getAnalyticsIncrementalPrompt(existing.toString(), numbered(questions));
+        JsonNode assignments = mapper.readTree(generate(user, fullPrompt, "incremental analysis")).path("assignments");
+
+        int assigned = 0;
+        for (JsonNode assignment : assignments) {
+            int index = assignment.path("index").asInt(0) - 1;
+            String categoryName = assignment.path("categoryName").asText("").trim();
+            if (index < 0 || index >= questions.size() || categoryName.isEmpty()) {
+                continue;
             }
 
-            // 6. Get prompt from PromptService (includes system message in first line)
-            String fullPrompt = promptService.getAnalyticsAnalysisPrompt(questionsText.toString());
+            String question = assignment.path("question").asText("").trim();
+            if (question.isEmpty()) {
+                question = questions.get(index);
+            }
 
-            // 7. Build message for token counting
-            UserMessage userMsg = UserMessage.from(fullPrompt);
+            AnalysisResponse.CategoryData category = findOrAddCategory(analysis, categoryName, assignment.path("icon").asText(""));
+            AnalysisResponse.QuestionData representative = findOrAddQuestion(category, question);
+            representative.setCount(representative.getCount() + 1);
+            category.setTotalCount(category.getTotalCount() + 1);
+            assigned++;
+        }
 
-            // 8. Send to AI for analysis - using the prompt as-is (no separate system message needed)
-            Response<AiMessage> response = chatModel.generate(userMsg);
+        sortByCount(analysis);
+        analysis.setTotalQuestions(analysis.getTotalQuestions() + questions.size());
 
-            String aiResponse = response.content().text().trim();
-            log.info("📥 AI Response received: {}", aiResponse);
+        log.info("✅ Assigned {} of {} new questions", assigned, questions.size());
+    }
 
-            // 9. Calculate and consume tokens
-            OpenAiTokenizer tokenizer = new OpenAiTokenizer("gpt-4");
-            int inputTokens = tokenizer.estimateTokenCountInMessage(userMsg);
-            int outputTokens = tokenizer.estimateTokenCountInMessage(response.content());
-            int totalTokens = inputTokens + outputTokens;
-            
-            try {
-                tokenService.consumeTokens(user, totalTokens);
-                log.info("💰 Consumed {} tokens (analysis) for user {}", totalTokens, user.getId());
-            } catch (Exception e) {
-                log.error("Failed to consume tokens for analysis", e);
+    // Keep the same ordering as a full analysis: most asked first
+    private void sortByCount(AnalysisResponse analysis) {
+        for (AnalysisResponse.CategoryData category : analysis.getCategories()) {
+            category.getQuestions().sort((a, b) -> Integer.compare(b.getCount(), a.getCount()));
+        }
+        analysis.getCategories().sort((a, b) -> Integer.compare(b.getTotalCount(), a.getTotalCount()));
+    }
+
+    private AnalysisResponse.CategoryData findOrAddCategory(AnalysisResponse analysis, String name, String icon) {
+        for (AnalysisResponse.CategoryData category : analysis.getCategories()) {
+            if (category.getCategoryName().trim().equalsIgnoreCase(name)) {
+                return category;
             }
+        }
 
-            // 10. Clean response - remove markdown backticks if present
-            aiResponse = aiResponse
-                    .replaceAll("^```json\\s*", "")
-                    .replaceAll("\\s*```$", "")
-                    .trim();
+        AnalysisResponse.CategoryData category = AnalysisResponse.CategoryData.builder()
+                .categoryName(name)
+                .icon(icon)
+                .questions(new ArrayList<>())
+                .totalCount(0)
+                .build();
+        analysis.getCategories().add(category);
+        return category;
+    }
 
-            // 11. Parse JSON response to AnalysisResponse object
-            ObjectMapper mapper = new ObjectMapper();
-            AnalysisResponse analysis = mapper.readValue(aiResponse, AnalysisResponse.class);
+    private AnalysisResponse.QuestionData findOrAddQuestion(AnalysisResponse.CategoryData category, String question) {
+        for (AnalysisResponse.QuestionData existing : category.getQuestions()) {
+            if (existing.getQuestion().trim().equals(question)) {
+                return existing;
+            }
+        }
 
-            log.info("✅ Analysis completed: {} categories found", analysis.getCategories().size());
-            return analysis;
+        AnalysisResponse.QuestionData added = new AnalysisResponse.QuestionData(question, 0);
+        category.getQuestions().add(added);
+        return added;
+    }
 
-        } catch (com.example.backend.common.exception.ResourceNotFoundException e) {
-            // Re-throw ResourceNotFoundException as-is
-            throw e;
+    // Send the prompt, consume the tokens and return the JSON answer without markdown fences
+    private String generate(User user, String fullPrompt, String purpose) {
+        // Build message for token counting
+        UserMessage userMsg = UserMessage.from(fullPrompt);
+
+        // Send to AI - using the prompt as-is (no separate system message needed)
+        Response<AiMessage> response = chatModel.generate(userMsg);
+
+        String aiResponse = response.content().text().trim();
+        log.info("📥 AI Response received ({}): {}", purpose, aiResponse);
+
+        // Calculate and consume tokens
+        OpenAiTokenizer tokenizer = new OpenAiTokenizer("gpt-4");
+        int inputTokens = tokenizer.estimateTokenCountInMessage(userMsg);
+        int outputTokens = tokenizer.estimateTokenCountInMessage(response.content());
+        int totalTokens = inputTokens + outputTokens;
+
+        try {
+            tokenService.consumeTokens(user, totalTokens);
+            log.info("💰 Consumed {} tokens ({}) for user {}", totalTokens, purpose, user.getId());
         } catch (Exception e) {
-            log.error("❌ Failed to analyze questions", e);
-            throw new RuntimeException("נכשל בניתוח השאלות: " + e.getMessage());
+            log.error("Failed to consume tokens for {}", purpose, e);
+        }
+
+        // Clean response - remove markdown backticks if present
+        return aiResponse
+                .replaceAll("^```json\\s*", "")
+                .replaceAll("\\s*```$", "")
+                .trim();
+    }
+
+    private void storeAnalysis(AnalyticsAnalysis stored, AnalysisResponse analysis) throws IOException {
+        stored.setAnalysisJson(mapper.writeValueAsString(analysis));
+        analysisRepository.save(stored);
+    }
+
+    // Up to limit questions with id > afterId, oldest first
+    private List<AnalyticsQuestion> loadQuestionsAfter(User user, Long afterId, int limit) {
+        return questionRepository.findByUserAndIdGreaterThanOrderByIdAsc(user, afterId, PageRequest.of(0, limit));
+    }
+
+    private List<String> texts(List<AnalyticsQuestion> questions) {
+        return questions.stream().map(AnalyticsQuestion::getQuestion).toList();
+    }
+
+    private Long lastId(List<AnalyticsQuestion> questions) {
+        return questions.get(questions.size() - 1).getId();
+    }
+
+    // "1. question\n2. question\n..."
+    private String numbered(List<String> questions) {
+        StringBuilder questionsText = new StringBuilder();
+        for (int i = 0; i < questions.size(); i++) {
+            questionsText.append((i + 1)).append(". ").append(questions.get(i)).append("\n");
         }
+        return questionsText.toString();
     }
-}
\ No newline at end of file
+}
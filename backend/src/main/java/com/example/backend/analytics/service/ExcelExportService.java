@@ -3,35 +3,50 @@ package com.example.backend.analytics.service;
 import com.example.backend.analytics.dto.AnalysisResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 @Service
 @Slf4j
 public class ExcelExportService {
 
+    // Rows kept in memory by the streaming workbook; older rows are flushed to a temp file
+    @Value("${analytics.export.row-window:100}")
+    private int rowWindow;
+
     /**
      * Export analysis results to Excel format
-     * Creates a structured workbook with categories and questions
+     * Creates a structured workbook with categories and questions.
+     * Uses a streaming (SXSSF) workbook written straight to the output stream,
+     * so memory stays bounded regardless of the number of rows.
      * 
      * @param analysis The analysis results to export
-     * @return byte array of the Excel file
+     * @param outputStream Where the xlsx file is written (not closed)
      * @throws IOException if Excel creation fails
      */
-    public byte[] exportToExcel(AnalysisResponse analysis) throws IOException {
+    public void exportToExcel(AnalysisResponse analysis, OutputStream outputStream) throws IOException {
         log.info("📊 Creating Excel file from analysis");
 
         // Create workbook and sheet
-        try (Workbook workbook = new XSSFWorkbook()) {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+
+        try {
             Sheet sheet = workbook.createSheet("ניתוח שאלות");
 
             // Set RTL (Right-to-Left) for Hebrew
             sheet.setRightToLeft(true);
 
-            // Create styles
+            // Create styles (once per workbook)
             CellStyle headerStyle = createHeaderStyle(workbook);
             CellStyle categoryStyle = createCategoryStyle(workbook);
             CellStyle questionStyle = createQuestionStyle(workbook);
@@ -45,21 +60,21 @@ public class ExcelExportService {
             Cell titleCell = titleRow.createCell(0);
             titleCell.setCellValue("ניתוח שאלות - Custom Site Chat");
             titleCell.setCellStyle(headerStyle);
-            sheet.addMergedRegion(new org.apache.poi.ss.util.CellRangeAddress(0, 0, 0, 3));
+            sheet.addMergedRegionUnsafe(new CellRangeAddress(0, 0, 0, 3));
 
             // Summary row
             Row summaryRow = sheet.createRow(rowNum++);
             Cell summaryCell = summaryRow.createCell(0);
             summaryCell.setCellValue("סיכום: " + analysis.getSummary());
             summaryCell.setCellStyle(questionStyle);
-            sheet.addMergedRegion(new org.apache.poi.ss.util.CellRangeAddress(1, 1, 0, 3));
+            sheet.addMergedRegionUnsafe(new CellRangeAddress(1, 1, 0, 3));
 
             // Total questions row
             Row totalRow = sheet.createRow(rowNum++);
             Cell totalCell = totalRow.createCell(0);
             totalCell.setCellValue("סה\"כ שאלות: " + analysis.getTotalQuestions());
             totalCell.setCellStyle(questionStyle);
-            sheet.addMergedRegion(new org.apache.poi.ss.util.CellRangeAddress(2, 2, 0, 3));
+            sheet.addMergedRegionUnsafe(new CellRangeAddress(2, 2, 0, 3));
 
             // Empty row
             rowNum++;
@@ -71,7 +86,7 @@ public class ExcelExportService {
                 Cell categoryCell = categoryRow.createCell(0);
                 categoryCell.setCellValue(category.getCategoryName() + " (" + category.getTotalCount() + " שאלות)");
                 categoryCell.setCellStyle(categoryStyle);
-                sheet.addMergedRegion(new org.apache.poi.ss.util.CellRangeAddress(rowNum - 1, rowNum - 1, 0, 3));
+                sheet.addMergedRegionUnsafe(new CellRangeAddress(rowNum - 1, rowNum - 1, 0, 3));
 
                 // Table header row
                 Row headerRow = sheet.createRow(rowNum++);
@@ -117,13 +132,56 @@ public class ExcelExportService {
             sheet.setColumnWidth(1, 15000); // Question column
             sheet.setColumnWidth(2, 4000);  // Count column
 
-            // Write to byte array
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            // Write to the response
             workbook.write(outputStream);
+            outputStream.flush();
             
             log.info("✅ Excel file created successfully");
-            return outputStream.toByteArray();
+        } finally {
+            // Delete the temp files backing the flushed rows
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * Export analysis results as CSV (category, question, count), streamed row by row.
+     * Starts with a UTF-8 BOM so Excel opens the Hebrew text correctly.
+     */
+    public void exportToCsv(AnalysisResponse analysis, OutputStream outputStream) throws IOException {
+        log.info("📊 Creating CSV file from analysis");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writer.write('\uFEFF');
+        writer.write("קטגוריה,שאלה,מספר פעמים\r\n");
+
+        for (AnalysisResponse.CategoryData category : analysis.getCategories()) {
+            for (AnalysisResponse.QuestionData question : category.getQuestions()) {
+                writer.write(csvField(category.getCategoryName()));
+                writer.write(',');
+                writer.write(csvField(question.getQuestion()));
+                writer.write(',');
+                writer.write(String.valueOf(question.getCount()));
+                writer.write("\r\n");
+            }
+        }
+
+        writer.flush();
+        log.info("✅ CSV file created successfully");
+    }
+
+    // Quote a CSV field when needed (RFC 4180); visitor text that looks like a formula is defused
+    private String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (!value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
         }
+        return value;
     }
 
     /**
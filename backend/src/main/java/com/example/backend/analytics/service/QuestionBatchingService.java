@@ -0,0 +1,243 @@
+package com.example.backend.analytics.service;
+
+import com.example.backend.user.model.User;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Buffers widget question submissions per user and site category and hands them to
+ * the LLM relevance filter in one call, once a batch is full or old enough.
+ * Pending questions live in memory only; they are flushed on shutdown.
+ * Batches handed to analyticsExecutor are tracked per user until they finish, so
+ * flushUser and discardUser also cover flushes that are queued or running.
+ */
+@Service
+@Slf4j
+public class QuestionBatchingService {
+
+    private final AnalyticsService analyticsService;
+    private final Executor analyticsExecutor;
+
+    @Value("${analytics.batch.max-size:50}")
+    private int maxBatchSize;
+
+    @Value("${analytics.batch.max-wait-seconds:30}")
+    private long maxWaitSeconds;
+
+    // How long flushUser / discardUser wait for a background flush (one LLM filter call)
+    @Value("${analytics.batch.in-flight-wait-seconds:30}")
+    private long inFlightWaitSeconds;
+
+    private final Map<BatchKey, PendingBatch> pending = new ConcurrentHashMap<>();
+    // Batches handed to the executor and not finished yet, per user
+    private final Map<Long, Set<PendingBatch>> inFlight = new ConcurrentHashMap<>();
+
+    public QuestionBatchingService(
+            AnalyticsService analyticsService,
+            @Qualifier("analyticsExecutor") Executor analyticsExecutor) {
+        this.analyticsService = analyticsService;
+        this.analyticsExecutor = analyticsExecutor;
+    }
+
+    // Queue questions; a full batch is flushed right away in the background
+    public void submit(User user, List<String> questions, String siteCategory) {
+        String category = siteCategory != null ? siteCategory.trim() : "";
+        BatchKey key = new BatchKey(user.getId(), category);
+
+        List<PendingBatch> full = new ArrayList<>();
+
+        pending.compute(key, (k, batch) -> {
+            if (batch == null) {
+                batch = new PendingBatch(user, Instant.now());
+            }
+            batch.questions.addAll(questions);
+
+            if (batch.questions.size() >= maxBatchSize) {
+                full.add(batch);
+                return null;
+            }
+            return batch;
+        });
+
+        full.forEach(batch -> flushAsync(key, batch));
+    }
+
+    // Flush batches that waited long enough
+    @Scheduled(fixedDelayString = "${analytics.batch.check-interval-ms:5000}")
+    public void flushExpired() {
+        Instant cutoff = Instant.now().minus(Duration.ofSeconds(maxWaitSeconds));
+
+        for (BatchKey key : pending.keySet()) {
+            PendingBatch[] expired = new PendingBatch[1];
+
+            pending.computeIfPresent(key, (k, batch) -> {
+                if (batch.createdAt.isBefore(cutoff)) {
+                    expired[0] = batch;
+                    return null;
+                }
+                return batch;
+            });
+
+            if (expired[0] != null) {
+                flushAsync(key, expired[0]);
+            }
+        }
+    }
+
+    // Process the user's pending batches now and wait for background ones, so reads see everything that was submitted
+    public void flushUser(Long userId) {
+        for (BatchKey key : pending.keySet()) {
+            if (key.userId().equals(userId)) {
+                PendingBatch batch = pending.remove(key);
+                if (batch != null) {
+                    flush(key, batch);
+                }
+            }
+        }
+        awaitInFlight(userId);
+    }
+
+    /**
+     * Drop the user's pending questions without filtering them; returns how many were dropped.
+     * Background flushes that haven't started are cancelled, running ones are waited for,
+     * so a delete that follows also removes what they stored.
+     */
+    public int discardUser(Long userId) {
+        int discarded = 0;
+        for (BatchKey key : pending.keySet()) {
+            if (key.userId().equals(userId)) {
+                PendingBatch batch = pending.remove(key);
+                if (batch != null) {
+                    discarded += batch.questions.size();
+                }
+            }
+        }
+
+        for (PendingBatch batch : inFlight.getOrDefault(userId, Set.of())) {
+            if (batch.claimed.compareAndSet(false, true)) {
+                discarded += batch.questions.size();
+            }
+        }
+        awaitInFlight(userId);
+        return discarded;
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        log.info("🔄 Flushing {} pending question batches before shutdown", pending.size());
+        for (BatchKey key : pending.keySet()) {
+            PendingBatch batch = pending.remove(key);
+            if (batch != null) {
+                flush(key, batch);
+            }
+        }
+    }
+
+    private void flushAsync(BatchKey key, PendingBatch batch) {
+        inFlight.computeIfAbsent(key.userId(), id -> ConcurrentHashMap.newKeySet()).add(batch);
+        try {
+            analyticsExecutor.execute(() -> {
+                try {
+                    // Lost to discardUser when it claimed the batch first
+                    if (batch.claimed.compareAndSet(false, true)) {
+                        flush(key, batch);
+                    }
+                } finally {
+                    finished(key.userId(), batch);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Executor full: put the questions back, the next flushExpired run retries them
+            finished(key.userId(), batch);
+            if (!batch.claimed.get()) {
+                requeue(key, batch);
+                log.warn("⚠️ Analytics executor full - {} questions of user {} kept for the next flush",
+                    batch.questions.size(), key.userId());
+            }
+        }
+    }
+
+    // Merge a batch back into pending, in front of anything submitted since; it keeps its age
+    private void requeue(BatchKey key, PendingBatch batch) {
+        pending.merge(key, batch, (current, returned) -> {
+            returned.questions.addAll(current.questions);
+            return returned;
+        });
+    }
+
+    private void finished(Long userId, PendingBatch batch) {
+        inFlight.computeIfPresent(userId, (id, batches) -> {
+            batches.remove(batch);
+            return batches.isEmpty() ? null : batches;
+        });
+        batch.done.complete(null);
+    }
+
+    private void awaitInFlight(Long userId) {
+        for (PendingBatch batch : List.copyOf(inFlight.getOrDefault(userId, Set.of()))) {
+            try {
+                batch.done.get(inFlightWaitSeconds, TimeUnit.SECONDS);
+            } catch (TimeoutException e) {
+                log.warn("⚠️ Background flush for user {} still running after {}s", userId, inFlightWaitSeconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                // flush() logs its own failures
+            }
+        }
+    }
+
+    private void flush(BatchKey key, PendingBatch batch) {
+        try {
+            log.info("📤 Flushing {} questions for user {} (category: '{}')",
+                batch.questions.size(), key.userId(), key.category());
+
+            analyticsService.appendQuestions(batch.user, batch.questions, key.category());
+
+        } catch (Exception e) {
+            log.error("❌ Failed to flush {} questions for user {}", batch.questions.size(), key.userId(), e);
+        }
+    }
+
+    private record BatchKey(Long userId, String category) {
+    }
+
+    private static class PendingBatch {
+        private final User user;
+        private final Instant createdAt;
+        private final List<String> questions = new ArrayList<>();
+        // Taken by whoever gets the batch first: the background flush or discardUser
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PendingBatch(User user, Instant createdAt) {
+            this.user = user;
+            this.createdAt = createdAt;
+        }
+    }
+}
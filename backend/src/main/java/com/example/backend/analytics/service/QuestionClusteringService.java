@@ -0,0 +1,338 @@
+package com.example.backend.analytics.service;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * In-process clustering of question embeddings.
+ * Vectors are truncated text-embedding-3 embeddings (the model supports shortening), L2-normalized,
+ * so cosine similarity is a plain dot product. Spherical k-means is fitted on a sample and then
+ * every question is assigned in parallel; inside each cluster, questions with the same intent are
+ * grouped around a representative ("leader") question.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class QuestionClusteringService {
+
+    private final EmbeddingModel embeddingModel;
+
+    // Fixed seed: the same questions always give the same clusters
+    private static final long SEED = 42L;
+
+    @Value("${analytics.clustering.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analytics.clustering.dimensions:256}")
+    private int dimensions;
+
+    @Value("${analytics.clustering.max-clusters:12}")
+    private int maxClusters;
+
+    // k-means is fitted on at most this many questions, then all are assigned
+    @Value("${analytics.clustering.sample-size:20000}")
+    private int sampleSize;
+
+    @Value("${analytics.clustering.max-iterations:30}")
+    private int maxIterations;
+
+    // Similarity at which two questions count as the same intent
+    @Value("${analytics.clustering.intent-threshold:0.85}")
+    private double intentThreshold;
+
+    // Representative questions tracked per cluster
+    @Value("${analytics.clustering.max-intents:50}")
+    private int maxIntents;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    public double getIntentThreshold() {
+        return intentThreshold;
+    }
+
+    // Embed in one call and reduce to the clustering dimensions
+    public List<float[]> embed(List<String> texts) {
+        List<TextSegment> segments = texts.stream().map(TextSegment::from).toList();
+        List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+        return embeddings.stream().map(embedding -> reduce(embedding.vector())).toList();
+    }
+
+    // Truncate and L2-normalize
+    public float[] reduce(float[] vector) {
+        float[] reduced = new float[dimensions];
+        System.arraycopy(vector, 0, reduced, 0, Math.min(dimensions, vector.length));
+        normalize(reduced);
+        return reduced;
+    }
+
+    public byte[] toBytes(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    // Null when missing or stored with other dimensions
+    public float[] fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != dimensions * Float.BYTES) {
+            return null;
+        }
+        float[] vector = new float[dimensions];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    public byte[] matrixToBytes(float[][] matrix) {
+        ByteBuffer buffer = ByteBuffer.allocate(matrix.length * dimensions * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (float[] row : matrix) {
+            buffer.asFloatBuffer().put(row);
+            buffer.position(buffer.position() + dimensions * Float.BYTES);
+        }
+        return buffer.array();
+    }
+
+    public float[][] matrixFromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length % (dimensions * Float.BYTES) != 0) {
+            return null;
+        }
+        int rows = bytes.length / (dimensions * Float.BYTES);
+        float[][] matrix = new float[rows][dimensions];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        for (float[] row : matrix) {
+            buffer.asFloatBuffer().get(row);
+            buffer.position(buffer.position() + dimensions * Float.BYTES);
+        }
+        return matrix;
+    }
+
+    public static double similarity(float[] a, float[] b) {
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return dot;
+    }
+
+    public static int nearest(float[] vector, float[][] centroids) {
+        int best = 0;
+        double bestSimilarity = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < centroids.length; c++) {
+            double similarity = similarity(vector, centroids[c]);
+            if (similarity > bestSimilarity) {
+                bestSimilarity = similarity;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Cluster the vectors. Returns non-empty clusters, largest first, each with its
+     * intents (representative question index + how many questions share that intent).
+     */
+    public List<Cluster> cluster(float[][] vectors) {
+        long start = System.currentTimeMillis();
+
+        int k = Math.min(maxClusters, Math.max(1, (int) Math.round(Math.sqrt(vectors.length / 2.0))));
+        float[][] centroids = fit(sample(vectors), k);
+        int[] assignments = assign(vectors, centroids);
+        k = centroids.length;
+
+        List<List<Integer>> members = new ArrayList<>();
+        for (int c = 0; c < k; c++) {
+            members.add(new ArrayList<>());
+        }
+        for (int i = 0; i < assignments.length; i++) {
+            members.get(assignments[i]).add(i);
+        }
+
+        List<Cluster> clusters = IntStream.range(0, centroids.length).parallel()
+            .filter(c -> !members.get(c).isEmpty())
+            .mapToObj(c -> new Cluster(centroids[c], members.get(c).size(),
+                groupIntents(vectors, members.get(c), centroids[c])))
+            .sorted(Comparator.comparingInt(Cluster::getSize).reversed())
+            .toList();
+
+        log.info("🧮 Clustered {} questions into {} clusters in {} ms",
+            vectors.length, clusters.size(), System.currentTimeMillis() - start);
+        return clusters;
+    }
+
+    // Evenly spaced sample, so the result does not depend on randomness
+    private float[][] sample(float[][] vectors) {
+        if (vectors.length <= sampleSize) {
+            return vectors;
+        }
+        float[][] sample = new float[sampleSize][];
+        for (int i = 0; i < sampleSize; i++) {
+            sample[i] = vectors[(int) ((long) i * vectors.length / sampleSize)];
+        }
+        return sample;
+    }
+
+    // Spherical k-means with k-means++ seeding
+    private float[][] fit(float[][] vectors, int k) {
+        k = Math.min(k, vectors.length);
+        Random random = new Random(SEED);
+
+        float[][] centroids = new float[k][];
+        centroids[0] = vectors[random.nextInt(vectors.length)].clone();
+
+        double[] distances = new double[vectors.length];
+        for (int c = 1; c < k; c++) {
+            float[] last = centroids[c - 1];
+            boolean first = c == 1;
+            IntStream.range(0, vectors.length).parallel().forEach(i -> {
+                double distance = Math.max(0, 1 - similarity(vectors[i], last));
+                distances[i] = first ? distance : Math.min(distances[i], distance);
+            });
+
+            double total = 0;
+            for (double distance : distances) {
+                total += distance * distance;
+            }
+
+            int chosen = random.nextInt(vectors.length);
+            double target = random.nextDouble() * total;
+            for (int i = 0; i < vectors.length && total > 0; i++) {
+                target -= distances[i] * distances[i];
+                if (target <= 0) {
+                    chosen = i;
+                    break;
+                }
+            }
+            centroids[c] = vectors[chosen].clone();
+        }
+
+        int[] assignments = new int[vectors.length];
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            int[] next = assign(vectors, centroids);
+            boolean changed = iteration == 0 || !Arrays.equals(next, assignments);
+            assignments = next;
+            if (!changed) {
+                break;
+            }
+
+            float[][] sums = new float[k][dimensions];
+            for (int i = 0; i < vectors.length; i++) {
+                float[] sum = sums[assignments[i]];
+                float[] vector = vectors[i];
+                for (int d = 0; d < dimensions; d++) {
+                    sum[d] += vector[d];
+                }
+            }
+            for (int c = 0; c < k; c++) {
+                // An empty cluster keeps its previous centroid
+                if (normalize(sums[c])) {
+                    centroids[c] = sums[c];
+                }
+            }
+        }
+        return centroids;
+    }
+
+    private int[] assign(float[][] vectors, float[][] centroids) {
+        int[] assignments = new int[vectors.length];
+        IntStream.range(0, vectors.length).parallel()
+            .forEach(i -> assignments[i] = nearest(vectors[i], centroids));
+        return assignments;
+    }
+
+    // Leader grouping: most central questions first, each joins the closest leader above the threshold
+    private List<Intent> groupIntents(float[][] vectors, List<Integer> members, float[] centroid) {
+        double[] centrality = new double[members.size()];
+        for (int i = 0; i < members.size(); i++) {
+            centrality[i] = similarity(vectors[members.get(i)], centroid);
+        }
+        List<Integer> ordered = IntStream.range(0, members.size()).boxed()
+            .sorted((a, b) -> Double.compare(centrality[b], centrality[a]))
+            .map(members::get)
+            .toList();
+
+        List<Intent> intents = new ArrayList<>();
+        for (int member : ordered) {
+            Intent best = null;
+            double bestSimilarity = intentThreshold;
+            for (Intent intent : intents) {
+                double similarity = similarity(vectors[member], vectors[intent.getLeader()]);
+                if (similarity >= bestSimilarity) {
+                    bestSimilarity = similarity;
+                    best = intent;
+                }
+            }
+
+            if (best != null) {
+                best.count++;
+            } else if (intents.size() < maxIntents) {
+                intents.add(new Intent(member, 1));
+            } else {
+                // No room for another leader: count the question with the nearest one
+                nearestIntent(vectors, intents, member).count++;
+            }
+        }
+
+        intents.sort(Comparator.comparingInt(Intent::getCount).reversed());
+        return intents;
+    }
+
+    private static Intent nearestIntent(float[][] vectors, List<Intent> intents, int member) {
+        Intent nearest = intents.get(0);
+        double bestSimilarity = Double.NEGATIVE_INFINITY;
+        for (Intent intent : intents) {
+            double similarity = similarity(vectors[member], vectors[intent.getLeader()]);
+            if (similarity > bestSimilarity) {
+                bestSimilarity = similarity;
+                nearest = intent;
+            }
+        }
+        return nearest;
+    }
+
+    private static boolean normalize(float[] vector) {
+        double norm = Math.sqrt(similarity(vector, vector));
+        if (norm == 0) {
+            return false;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] /= norm;
+        }
+        return true;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Cluster {
+        private final float[] centroid;
+        private final int size;
+        private final List<Intent> intents;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Intent {
+        // Index of the representative question
+        private final int leader;
+        private int count;
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.backend.analytics.service;
+
+import com.example.backend.analytics.repository.AnalyticsQuestionRepository;
+import com.example.backend.user.model.User;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Local duplicate detection for collected questions.
+ * Exact duplicates match on a hash of the normalized text; near-duplicates on a
+ * 64-bit SimHash of word shingles within a small Hamming distance.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class QuestionDedupService {
+
+    private final AnalyticsQuestionRepository questionRepository;
+
+    // Max differing SimHash bits to still count as the same question
+    @Value("${analytics.dedup.simhash-distance:3}")
+    private int maxHammingDistance;
+
+    // How many of the user's latest questions near-duplicates are checked against
+    @Value("${analytics.dedup.window:5000}")
+    private int window;
+
+    // Drop exact and near-duplicates, both within the batch and against stored questions
+    public List<String> removeDuplicates(User user, List<String> questions) {
+        List<String> hashes = questions.stream().map(this::hash).toList();
+
+        Set<String> seenHashes = new HashSet<>(questionRepository.findExistingHashes(user, hashes));
+        List<Long> seenSimHashes = new ArrayList<>(
+            questionRepository.findRecentSimHashes(user, PageRequest.of(0, window))
+        );
+
+        List<String> unique = new ArrayList<>();
+        for (int i = 0; i < questions.size(); i++) {
+            String question = questions.get(i).trim();
+            if (question.isEmpty() || !seenHashes.add(hashes.get(i))) {
+                continue;
+            }
+
+            long simHash = simHash(question);
+            if (isNearDuplicate(simHash, seenSimHashes)) {
+                continue;
+            }
+
+            seenSimHashes.add(simHash);
+            unique.add(question);
+        }
+
+        if (unique.size() < questions.size()) {
+            log.info("🧹 Dropped {} duplicate questions for user {}", questions.size() - unique.size(), user.getId());
+        }
+        return unique;
+    }
+
+    // Lowercase, strip accents/niqqud and punctuation, collapse whitespace
+    public String normalize(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFKD);
+        return decomposed
+            .replaceAll("\\p{M}+", "")
+            .replaceAll("[^\\p{L}\\p{N}]+", " ")
+            .trim();
+    }
+
+    public String hash(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalize(text).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // 64-bit SimHash over word unigrams and bigrams
+    public long simHash(String text) {
+        String[] words = normalize(text).split(" ");
+        List<String> features = new ArrayList<>();
+        for (int i = 0; i < words.length; i++) {
+            features.add(words[i]);
+            if (i + 1 < words.length) {
+                features.add(words[i] + " " + words[i + 1]);
+            }
+        }
+
+        int[] weights = new int[64];
+        for (String feature : features) {
+            long featureHash = fnv1a64(feature);
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += ((featureHash >>> bit) & 1) == 1 ? 1 : -1;
+            }
+        }
+
+        long simHash = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                simHash |= 1L << bit;
+            }
+        }
+        return simHash;
+    }
+
+    private boolean isNearDuplicate(long simHash, List<Long> others) {
+        for (long other : others) {
+            if (Long.bitCount(simHash ^ other) <= maxHammingDistance) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long fnv1a64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.backend.analytics.service;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.CosineSimilarity;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scores collected questions against the site category by embedding similarity.
+ * Clear hits are accepted and clear misses rejected locally; only the borderline
+ * band in between is left for the LLM filter.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class QuestionRelevanceService {
+
+    private final EmbeddingModel embeddingModel;
+
+    @Value("${analytics.relevance.enabled:true}")
+    private boolean enabled;
+
+    // similarity >= accept -> relevant, < reject -> irrelevant, in between -> ask the LLM
+    @Value("${analytics.relevance.accept-threshold:0.40}")
+    private double acceptThreshold;
+
+    @Value("${analytics.relevance.reject-threshold:0.20}")
+    private double rejectThreshold;
+
+    // The category comes from the widget request, so the cache is bounded (LRU)
+    @Value("${analytics.relevance.category-cache-size:1000}")
+    private int categoryCacheSize;
+
+    // Longer categories are cut; the prompt only needs the gist
+    private static final int MAX_CATEGORY_LENGTH = 200;
+
+    // Category embeddings never change, so they are embedded once and kept while in use
+    private final LinkedHashMap<String, Embedding> categoryEmbeddings = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public RelevanceResult classify(List<String> questions, String siteCategory) {
+        Embedding category = categoryEmbedding(siteCategory);
+
+        List<TextSegment> segments = questions.stream().map(TextSegment::from).toList();
+        List<Embedding> embeddings = embeddingModel.embedAll(segments).content();
+
+        RelevanceResult result = new RelevanceResult();
+        for (int i = 0; i < questions.size(); i++) {
+            double similarity = CosineSimilarity.between(embeddings.get(i), category);
+
+            if (similarity >= acceptThreshold) {
+                result.relevant.add(questions.get(i));
+                result.embeddings.put(questions.get(i), embeddings.get(i).vector());
+            } else if (similarity >= rejectThreshold) {
+                result.borderline.add(questions.get(i));
+                result.embeddings.put(questions.get(i), embeddings.get(i).vector());
+            } else {
+                result.rejected++;
+            }
+        }
+
+        log.info("🎯 Relevance for '{}': {} relevant, {} borderline, {} rejected",
+            siteCategory, result.relevant.size(), result.borderline.size(), result.rejected);
+        return result;
+    }
+
+    // Embedded outside the lock; two threads missing on the same category just embed it twice
+    private Embedding categoryEmbedding(String siteCategory) {
+        String key = siteCategory.trim().toLowerCase();
+        if (key.length() > MAX_CATEGORY_LENGTH) {
+            key = key.substring(0, MAX_CATEGORY_LENGTH);
+        }
+
+        lock.lock();
+        try {
+            Embedding cached = categoryEmbeddings.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Embedding embedding = embeddingModel.embed("Questions a visitor could ask on a website about: " + key).content();
+
+        lock.lock();
+        try {
+            categoryEmbeddings.put(key, embedding);
+            Iterator<String> eldest = categoryEmbeddings.keySet().iterator();
+            while (categoryEmbeddings.size() > categoryCacheSize && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return embedding;
+    }
+
+    @Getter
+    public static class RelevanceResult {
+        private final List<String> relevant = new ArrayList<>();
+        private final List<String> borderline = new ArrayList<>();
+        private int rejected;
+        // Full embeddings of the relevant and borderline questions, reused for clustering
+        private final Map<String, float[]> embeddings = new HashMap<>();
+    }
+}
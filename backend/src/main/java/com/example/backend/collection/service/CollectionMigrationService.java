@@ -0,0 +1,65 @@
+package com.example.backend.collection.service;
+
+import com.example.backend.config.QdrantProperties;
+import com.example.backend.common.infrastructure.vectordb.QdrantVectorService;
+import com.example.backend.user.model.User;
+import com.example.backend.user.repository.UserRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * One-off migration from per-user Qdrant collections to the shared tenant-partitioned collection.
+ * Enabled with qdrant.migrate-to-shared=true together with qdrant.storage-mode=shared.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "qdrant.migrate-to-shared", havingValue = "true")
+public class CollectionMigrationService implements ApplicationRunner {
+
+    private final UserRepository userRepository;
+    private final QdrantVectorService qdrantVectorService;
+    private final QdrantProperties qdrantProperties;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!qdrantProperties.isSharedMode()) {
+            log.warn("⚠️ qdrant.migrate-to-shared is set but storage mode is '{}' - skipping migration",
+                qdrantProperties.getStorageMode());
+            return;
+        }
+
+        log.info("🔄 Migrating per-user collections into '{}'", qdrantProperties.getCollectionName());
+
+        int migrated = 0;
+        int failed = 0;
+
+        for (User user : userRepository.findAll()) {
+            String collectionName = user.getCollectionName();
+            if (collectionName == null || !qdrantVectorService.collectionExists(collectionName)) {
+                continue;
+            }
+
+            try {
+                long points = qdrantVectorService.migrateCollectionToShared(collectionName);
+                log.info("✅ User {}: moved {} points from {}", user.getId(), points, collectionName);
+
+                if (qdrantProperties.isDeleteMigratedCollections()) {
+                    qdrantVectorService.dropCollection(collectionName);
+                }
+                migrated++;
+
+            } catch (Exception e) {
+                log.error("❌ Failed to migrate collection {} of user {}", collectionName, user.getId(), e);
+                failed++;
+            }
+        }
+
+        log.info("✅ Collection migration finished - migrated: {}, failed: {}", migrated, failed);
+    }
+}
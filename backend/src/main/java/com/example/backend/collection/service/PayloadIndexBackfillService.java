@@ -0,0 +1,59 @@
+package com.example.backend.collection.service;
+
+import com.example.backend.config.QdrantProperties;
+import com.example.backend.common.infrastructure.vectordb.QdrantVectorService;
+import com.example.backend.user.model.User;
+import com.example.backend.user.repository.UserRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+/**
+ * Backfill payload indexes on collections created before indexes were added at creation time.
+ * Enabled with qdrant.backfill-payload-indexes=true; safe to re-run.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "qdrant.backfill-payload-indexes", havingValue = "true")
+public class PayloadIndexBackfillService implements ApplicationRunner {
+
+    private final UserRepository userRepository;
+    private final QdrantVectorService qdrantVectorService;
+    private final QdrantProperties qdrantProperties;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        log.info("🔄 Backfilling Qdrant payload indexes");
+
+        if (qdrantProperties.isSharedMode()) {
+            backfill(qdrantProperties.getCollectionName());
+            return;
+        }
+
+        for (User user : userRepository.findAll()) {
+            String collectionName = user.getCollectionName();
+            if (collectionName != null) {
+                backfill(collectionName);
+            }
+        }
+
+        log.info("✅ Payload index backfill finished");
+    }
+
+    private void backfill(String collectionName) {
+        if (!qdrantVectorService.collectionExists(collectionName)) {
+            return;
+        }
+
+        try {
+            qdrantVectorService.ensurePayloadIndexes(collectionName);
+        } catch (Exception e) {
+            log.error("❌ Failed to backfill payload indexes on {}", collectionName, e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.backend.common.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+* Thrown when a queue or limit is full and the client should retry later
+*/
+
+public class TooManyRequestsException extends BaseException {
+
+    private static final String ERROR_CODE = "TOO_MANY_REQUESTS";
+
+    public TooManyRequestsException(String message) {
+        super(message, HttpStatus.TOO_MANY_REQUESTS, ERROR_CODE);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.backend.common.filter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * With virtual threads Tomcat no longer caps concurrent requests at its thread count,
+ * so a semaphore takes over: requests wait briefly for a permit and get 503 when none frees up.
+ * Only the synchronous part of a request holds a permit; SSE streams release it once they go async.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private final Semaphore permits;
+    private final long waitMillis;
+
+    public ConcurrencyLimitFilter(
+            @Value("${concurrency.requests.max:2000}") int maxConcurrent,
+            @Value("${concurrency.requests.wait-ms:2000}") long waitMillis
+    ) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.waitMillis = waitMillis;
+        log.info("✅ Request concurrency limit on virtual threads - Max: {}, Wait: {} ms", maxConcurrent, waitMillis);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        // Health and metrics must answer even when the node is saturated
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+
+        if (!acquired) {
+            log.warn("⚠️ Request concurrency limit reached, rejecting {} {}", request.getMethod(), request.getRequestURI());
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            response.setContentType("application/json;charset=UTF-8");
+            response.getWriter().write(
+                "{\"success\":false,\"errorCode\":\"SERVER_BUSY\",\"message\":\"השרת עמוס כרגע, נסה שוב בעוד רגע\"}"
+            );
+            return;
+        }
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.example.backend.common.infrastructure.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Bounded local disk cache of S3 objects, keyed by object key and validated by ETag.
+ * Files are written to a temp file and atomically renamed into place; eviction is LRU by total size.
+ * The index lives in memory, so the directory is cleared on startup.
+ * Guarded by a ReentrantLock rather than synchronized: the critical sections touch the disk,
+ * and a virtual thread blocked inside synchronized would pin its carrier.
+ */
+@Component
+@Slf4j
+public class S3DiskCache {
+
+    @Value("${storage.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${storage.cache.dir:${java.io.tmpdir}/custom-site-chat-s3-cache}")
+    private String cacheDir;
+
+    @Value("${storage.cache.max-bytes:536870912}")
+    private long maxBytes;
+
+    // Entries younger than this are served without asking S3
+    @Value("${storage.cache.revalidate-seconds:300}")
+    private long revalidateSeconds;
+
+    private Path directory;
+    private long currentBytes = 0;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, CachedObject> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("S3 disk cache disabled");
+            return;
+        }
+
+        try {
+            directory = Path.of(cacheDir);
+            Files.createDirectories(directory);
+
+            try (Stream<Path> stale = Files.list(directory)) {
+                stale.forEach(this::deleteQuietly);
+            }
+
+            log.info("✅ S3 disk cache at {} (max {} MB)", directory, maxBytes / (1024 * 1024));
+
+        } catch (IOException e) {
+            log.warn("⚠️ Could not initialize S3 disk cache at {} - caching disabled", cacheDir, e);
+            enabled = false;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Objects bigger than a quarter of the cache would just churn it
+    public boolean isCacheable(long size) {
+        return enabled && size <= maxBytes / 4;
+    }
+
+    public CachedObject get(String objectKey) {
+        if (!enabled) {
+            return null;
+        }
+
+        lock.lock();
+        try {
+            CachedObject cached = entries.get(objectKey);
+            if (cached != null && !Files.exists(cached.getPath())) {
+                remove(objectKey);
+                return null;
+            }
+            return cached;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isFresh(CachedObject cached) {
+        return cached.getValidatedAt().plus(Duration.ofSeconds(revalidateSeconds)).isAfter(Instant.now());
+    }
+
+    // S3 confirmed (304) that the cached copy is still current
+    public void markValidated(String objectKey) {
+        lock.lock();
+        try {
+            CachedObject cached = entries.get(objectKey);
+            if (cached != null) {
+                entries.put(objectKey, new CachedObject(cached.getPath(), cached.getETag(),
+                    cached.getContentType(), cached.getSize(), Instant.now()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copy the stream into the cache (temp file + atomic rename) and return the new entry.
+     * The source stream is fully consumed and closed.
+     */
+    public CachedObject put(String objectKey, String eTag, String contentType, InputStream source) throws IOException {
+        Path temp = Files.createTempFile(directory, "download-", ".tmp");
+
+        try (InputStream in = source) {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+
+            Path target = directory.resolve(fileName(objectKey, eTag));
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            CachedObject cached = new CachedObject(target, eTag, contentType, Files.size(target), Instant.now());
+            store(objectKey, cached);
+            return cached;
+
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+    }
+
+    public void invalidate(String objectKey) {
+        if (!enabled) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            remove(objectKey);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Read through a FileChannel; an evicted file stays readable while the channel is open
+    public InputStream open(CachedObject cached) throws IOException {
+        return Channels.newInputStream(FileChannel.open(cached.getPath(), StandardOpenOption.READ));
+    }
+
+    /**
+     * Like open, but null when the file was evicted between get() and now,
+     * so the caller can fall back to S3.
+     */
+    public InputStream tryOpen(CachedObject cached) throws IOException {
+        try {
+            return open(cached);
+        } catch (NoSuchFileException e) {
+            log.debug("Cached file of {} was evicted before it was opened", cached.getPath());
+            return null;
+        }
+    }
+
+    private void store(String objectKey, CachedObject cached) {
+        lock.lock();
+        try {
+            CachedObject previous = entries.put(objectKey, cached);
+            if (previous != null) {
+                currentBytes -= previous.getSize();
+                if (!previous.getPath().equals(cached.getPath())) {
+                    deleteQuietly(previous.getPath());
+                }
+            }
+            currentBytes += cached.getSize();
+
+            // Evict least recently used entries until under budget
+            List<Path> evicted = new ArrayList<>();
+            Iterator<Map.Entry<String, CachedObject>> it = entries.entrySet().iterator();
+            while (currentBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, CachedObject> eldest = it.next();
+                if (eldest.getKey().equals(objectKey)) {
+                    continue;
+                }
+                currentBytes -= eldest.getValue().getSize();
+                evicted.add(eldest.getValue().getPath());
+                it.remove();
+            }
+            evicted.forEach(this::deleteQuietly);
+
+            if (!evicted.isEmpty()) {
+                log.debug("S3 disk cache evicted {} entries ({} bytes in use)", evicted.size(), currentBytes);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void remove(String objectKey) {
+        CachedObject removed = entries.remove(objectKey);
+        if (removed != null) {
+            currentBytes -= removed.getSize();
+            deleteQuietly(removed.getPath());
+        }
+    }
+
+    private String fileName(String objectKey, String eTag) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((objectKey + "|" + eTag).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.debug("Could not delete cache file {}", path);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class CachedObject {
+        private final Path path;
+        private final String eTag;
+        private final String contentType;
+        private final long size;
+        private final Instant validatedAt;
+    }
+}
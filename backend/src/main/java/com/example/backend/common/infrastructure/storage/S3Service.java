@@ -1,16 +1,25 @@
 package com.example.backend.common.infrastructure.storage;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.example.backend.common.metrics.RagMetrics;
+import com.example.backend.common.tracing.ObservedAwsSdkInterceptor;
 import com.example.backend.common.exception.ExternalServiceException;
 import com.example.backend.common.exception.FileProcessingException;
 
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import io.micrometer.observation.ObservationRegistry;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
@@ -20,17 +29,32 @@ import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequ
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.net.URI;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 import lombok.Data;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class S3Service {
 
+    private final S3DiskCache diskCache;
+    private final RagMetrics metrics;
+    private final ObservationRegistry observationRegistry;
+
     @Value("${aws.s3.access-key}")
     private String accessKey;
 
@@ -46,7 +70,38 @@ public class S3Service {
     @Value("${aws.s3.endpoint:}")
     private String customEndpoint;
 
+    // MinIO and most S3-compatible stand-ins need path-style URLs
+    @Value("${aws.s3.path-style-access:false}")
+    private boolean pathStyleAccess;
+
+    // Objects at or above the threshold are uploaded as parallel multipart parts
+    @Value("${aws.s3.multipart-threshold:16777216}")
+    private long multipartThreshold;
+
+    // S3 requires at least 5MB per part (except the last one)
+    @Value("${aws.s3.multipart-part-size:8388608}")
+    private int multipartPartSize;
+
+    @Value("${aws.s3.max-concurrency:16}")
+    private int maxConcurrency;
+
+    private static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    // DeleteObjects accepts at most 1000 keys per request
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    // Objects with cached presigned URLs
+    private static final int PRESIGNED_URL_CACHE_SIZE = 10_000;
+
+    // Reuse a cached presigned URL only while it has at least this much validity left
+    @Value("${aws.s3.presign-min-remaining-seconds:600}")
+    private long presignMinRemainingSeconds;
+
+    // Object key -> variant (expiry, disposition, content type) -> URL; indexed by object so deletes evict directly
+    private final Map<String, Map<String, PresignedUrl>> presignedUrlCache = new ConcurrentHashMap<>();
+
     private S3Client s3Client;
+    private S3AsyncClient s3AsyncClient;
     private S3Presigner presigner;
 
     
@@ -73,10 +128,16 @@ public class S3Service {
             // Create credentials
             AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKey, secretKey);
 
+            // One span per S3 operation on both clients
+            ClientOverrideConfiguration tracing = ClientOverrideConfiguration.builder()
+                .addExecutionInterceptor(new ObservedAwsSdkInterceptor(observationRegistry))
+                .build();
+
             // Build S3Client
             var builder = S3Client.builder()
                 .region(Region.of(region))
-                .credentialsProvider(StaticCredentialsProvider.create(credentials));
+                .credentialsProvider(StaticCredentialsProvider.create(credentials))
+                .overrideConfiguration(tracing);
 
             // If custom endpoint exists (LocalStack, DigitalOcean Spaces, etc.)
             if (customEndpoint != null && !customEndpoint.isEmpty()) {
@@ -84,8 +145,29 @@ public class S3Service {
                 builder.endpointOverride(URI.create(customEndpoint));
             }
 
+            builder.forcePathStyle(pathStyleAccess);
+
             s3Client = builder.build();
 
+            // Async client for non-blocking and multipart uploads
+            var asyncBuilder = S3AsyncClient.builder()
+                .region(Region.of(region))
+                .credentialsProvider(StaticCredentialsProvider.create(credentials))
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder().maxConcurrency(maxConcurrency))
+                .overrideConfiguration(tracing)
+                .forcePathStyle(pathStyleAccess);
+
+            if (customEndpoint != null && !customEndpoint.isEmpty()) {
+                asyncBuilder.endpointOverride(URI.create(customEndpoint));
+            }
+
+            s3AsyncClient = asyncBuilder.build();
+
+            if (multipartPartSize < MIN_PART_SIZE) {
+                log.warn("⚠️ aws.s3.multipart-part-size {} is below the S3 minimum, using 5MB", multipartPartSize);
+                multipartPartSize = MIN_PART_SIZE;
+            }
+
             // Create presigner for temporary URLs
             var presignerBuilder = S3Presigner.builder()
                 .region(Region.of(region))
@@ -95,6 +177,12 @@ public class S3Service {
                 presignerBuilder.endpointOverride(URI.create(customEndpoint));
             }
 
+            presignerBuilder.serviceConfiguration(
+                software.amazon.awssdk.services.s3.S3Configuration.builder()
+                    .pathStyleAccessEnabled(pathStyleAccess)
+                    .build()
+            );
+
             presigner = presignerBuilder.build();
 
             // Create bucket if it doesn't exist
@@ -154,6 +242,9 @@ public class S3Service {
         if (s3Client != null) {
             s3Client.close();
         }
+        if (s3AsyncClient != null) {
+            s3AsyncClient.close();
+        }
         if (presigner != null) {
             presigner.close();
         }
@@ -193,6 +284,7 @@ public class S3Service {
 
         try {
             log.info("📤 Uploading file to S3: {}", objectKey);
+            diskCache.invalidate(objectKey);
 
             s3Client.putObject(
                 PutObjectRequest.builder()
@@ -204,6 +296,8 @@ public class S3Service {
                 RequestBody.fromInputStream(inputStream, size)
             );
 
+            // Again after the PUT, in case a concurrent read re-cached the old version
+            diskCache.invalidate(objectKey);
             log.info("✅ File uploaded successfully: {}", objectKey);
 
         } catch (Exception e) {
@@ -212,20 +306,177 @@ public class S3Service {
         }
     }
 
-    // Download file from S3
+    /**
+     * Non-blocking upload. Small objects go up in a single PUT; objects at or above
+     * aws.s3.multipart-threshold are split into parts that are uploaded in parallel.
+     * The future fails with FileProcessingException if the upload fails.
+     */
+    public CompletableFuture<Void> uploadFileAsync(byte[] data, String objectKey, String contentType) {
+        log.info("📤 Uploading file to S3 (async, {} bytes): {}", data.length, objectKey);
+        diskCache.invalidate(objectKey);
+        long startTime = System.currentTimeMillis();
+
+        CompletableFuture<Void> upload = data.length >= multipartThreshold
+            ? uploadMultipart(data, objectKey, contentType)
+            : s3AsyncClient.putObject(
+                    PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(objectKey)
+                        .contentType(contentType)
+                        .contentLength((long) data.length)
+                        .build(),
+                    AsyncRequestBody.fromBytes(data))
+                .thenApply(response -> null);
+
+        return upload.handle((result, error) -> {
+            if (error != null) {
+                log.error("❌ Failed to upload file: {}", objectKey, error);
+                throw new CompletionException(FileProcessingException.uploadFailed(objectKey));
+            }
+            diskCache.invalidate(objectKey);
+            log.info("✅ File uploaded successfully: {} ({}ms)", objectKey, System.currentTimeMillis() - startTime);
+            return null;
+        });
+    }
+
+    private CompletableFuture<Void> uploadMultipart(byte[] data, String objectKey, String contentType) {
+        return s3AsyncClient.createMultipartUpload(
+                CreateMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectKey)
+                    .contentType(contentType)
+                    .build())
+            .thenCompose(created -> {
+                String uploadId = created.uploadId();
+                int partCount = (int) ((data.length + (long) multipartPartSize - 1) / multipartPartSize);
+                int lanes = Math.min(maxConcurrency, partCount);
+
+                log.info("📦 Multipart upload of {} in {} parts, {} at a time", objectKey, partCount, lanes);
+
+                // Each lane uploads the next pending part when its previous one is done,
+                // so at most maxConcurrency parts are in flight
+                AtomicInteger nextPart = new AtomicInteger();
+                CompletedPart[] completed = new CompletedPart[partCount];
+                List<CompletableFuture<Void>> uploads = new ArrayList<>();
+                for (int i = 0; i < lanes; i++) {
+                    uploads.add(uploadRemainingParts(data, objectKey, uploadId, nextPart, completed));
+                }
+
+                return CompletableFuture.allOf(uploads.toArray(new CompletableFuture[0]))
+                    .thenCompose(done -> s3AsyncClient.completeMultipartUpload(
+                        CompleteMultipartUploadRequest.builder()
+                            .bucket(bucketName)
+                            .key(objectKey)
+                            .uploadId(uploadId)
+                            .multipartUpload(CompletedMultipartUpload.builder()
+                                .parts(completed)
+                                .build())
+                            .build()))
+                    .<Void>thenApply(response -> null)
+                    .whenComplete((result, error) -> {
+                        if (error != null) {
+                            // Don't leave orphaned parts behind (they are billed until aborted)
+                            s3AsyncClient.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                                .bucket(bucketName)
+                                .key(objectKey)
+                                .uploadId(uploadId)
+                                .build());
+                        }
+                    });
+            });
+    }
+
+    private CompletableFuture<Void> uploadRemainingParts(
+            byte[] data, String objectKey, String uploadId, AtomicInteger nextPart, CompletedPart[] completed) {
+        int index = nextPart.getAndIncrement();
+        if (index >= completed.length) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        int partNumber = index + 1;
+        int from = index * multipartPartSize;
+        int length = Math.min(data.length - from, multipartPartSize);
+
+        return s3AsyncClient.uploadPart(
+                UploadPartRequest.builder()
+                    .bucket(bucketName)
+                    .key(objectKey)
+                    .uploadId(uploadId)
+                    .partNumber(partNumber)
+                    .contentLength((long) length)
+                    .build(),
+                new ByteBufferBody(ByteBuffer.wrap(data, from, length).slice().asReadOnlyBuffer()))
+            .thenCompose(response -> {
+                completed[index] = CompletedPart.builder()
+                    .partNumber(partNumber)
+                    .eTag(response.eTag())
+                    .build();
+                return uploadRemainingParts(data, objectKey, uploadId, nextPart, completed);
+            });
+    }
+
+    // Download file from S3 (served from the local disk cache when possible)
     public InputStream downloadFile(String objectKey) {
         try {
+            S3DiskCache.CachedObject cached = diskCache.get(objectKey);
+            if (cached != null && diskCache.isFresh(cached)) {
+                InputStream in = diskCache.tryOpen(cached);
+                if (in != null) {
+                    log.debug("📥 Serving {} from disk cache", objectKey);
+                    metrics.cacheHit("s3-disk");
+                    return in;
+                }
+                // Evicted since get(): nothing left to revalidate
+                cached = null;
+            }
+
             log.info("📥 Downloading file from S3: {}", objectKey);
 
-            var response = s3Client.getObject(
-                GetObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(objectKey)
-                    .build()
+            var request = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey);
+            if (cached != null) {
+                request.ifNoneMatch(cached.getETag());
+            }
+
+            ResponseInputStream<GetObjectResponse> response;
+            try {
+                response = s3Client.getObject(request.build());
+            } catch (S3Exception e) {
+                if (cached == null || e.statusCode() != 304) {
+                    throw e;
+                }
+                InputStream in = diskCache.tryOpen(cached);
+                if (in != null) {
+                    diskCache.markValidated(objectKey);
+                    metrics.cacheHit("s3-disk");
+                    return in;
+                }
+                response = s3Client.getObject(request.ifNoneMatch(null).build());
+            }
+            metrics.cacheMiss("s3-disk");
+
+            GetObjectResponse metadata = response.response();
+            if (!diskCache.isCacheable(metadata.contentLength())) {
+                log.info("✅ File downloaded successfully: {}", objectKey);
+                return response;
+            }
+
+            S3DiskCache.CachedObject stored = diskCache.put(
+                objectKey,
+                metadata.eTag(),
+                metadata.contentType(),
+                response
             );
 
-            log.info("✅ File downloaded successfully: {}", objectKey);
-            return response;
+            InputStream in = diskCache.tryOpen(stored);
+            if (in == null) {
+                // Evicted right away by a concurrent put (cache under pressure): read it from S3 instead
+                in = s3Client.getObject(request.ifNoneMatch(null).build());
+            }
+
+            log.info("✅ File downloaded successfully: {} (cached)", objectKey);
+            return in;
 
         } catch (Exception e) {
             log.error("❌ Failed to download file: {}", objectKey, e);
@@ -233,10 +484,123 @@ public class S3Service {
         }
     }
 
+    /**
+     * Ranged / conditional GET passed straight through to S3.
+     * range is a raw HTTP Range header value ("bytes=0-1023") and ifNoneMatch a raw If-None-Match
+     * header value (one or more ETags, or "*"); both optional.
+     * The caller must close the returned stream.
+     */
+    public ObjectStream openObject(String objectKey, String range, String ifNoneMatch) {
+        try {
+            S3DiskCache.CachedObject cached = diskCache.get(objectKey);
+            if (cached != null && diskCache.isFresh(cached) && (range == null || range.isBlank())) {
+                ObjectStream stream = new ObjectStream();
+                stream.setETag(cached.getETag());
+
+                if (eTagMatches(ifNoneMatch, cached.getETag())) {
+                    metrics.cacheHit("s3-disk");
+                    stream.setStatus(304);
+                    return stream;
+                }
+
+                // Null when evicted since get(); then it is read from S3 below
+                InputStream in = diskCache.tryOpen(cached);
+                if (in != null) {
+                    metrics.cacheHit("s3-disk");
+                    stream.setStatus(200);
+                    stream.setBody(in);
+                    stream.setContentLength(cached.getSize());
+                    stream.setContentType(cached.getContentType());
+                    return stream;
+                }
+            }
+
+            if (range == null || range.isBlank()) {
+                metrics.cacheMiss("s3-disk");
+            }
+
+            var request = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectKey);
+
+            if (range != null && !range.isBlank()) {
+                request.range(range);
+            }
+            if (ifNoneMatch != null && !ifNoneMatch.isBlank()) {
+                request.ifNoneMatch(ifNoneMatch);
+            }
+
+            ResponseInputStream<GetObjectResponse> body = s3Client.getObject(request.build());
+            GetObjectResponse response = body.response();
+
+            ObjectStream stream = new ObjectStream();
+            stream.setStatus(response.contentRange() != null ? 206 : 200);
+            stream.setBody(body);
+            stream.setContentLength(response.contentLength());
+            stream.setContentRange(response.contentRange());
+            stream.setContentType(response.contentType());
+            stream.setETag(response.eTag());
+            stream.setLastModified(response.lastModified());
+            return stream;
+
+        } catch (S3Exception e) {
+            // 304 Not Modified / 416 Range Not Satisfiable come back as exceptions
+            if (e.statusCode() == 304 || e.statusCode() == 416) {
+                ObjectStream stream = new ObjectStream();
+                stream.setStatus(e.statusCode());
+                // The 304 carries the current ETag; the request header may be a list or "*"
+                if (e.awsErrorDetails() != null && e.awsErrorDetails().sdkHttpResponse() != null) {
+                    stream.setETag(e.awsErrorDetails().sdkHttpResponse().firstMatchingHeader("ETag").orElse(null));
+                }
+                return stream;
+            }
+            log.error("❌ Failed to open file: {}", objectKey, e);
+            throw ExternalServiceException.storageServiceError("נכשל בהורדת קובץ מ-S3: " + objectKey);
+
+        } catch (Exception e) {
+            log.error("❌ Failed to open file: {}", objectKey, e);
+            throw ExternalServiceException.storageServiceError("נכשל בהורדת קובץ מ-S3: " + objectKey);
+        }
+    }
+
+    /**
+     * If-None-Match against an ETag (RFC 9110): "*" matches any existing object, otherwise the
+     * header is a comma-separated list of ETags compared weakly (W/ prefix and quotes ignored).
+     */
+    static boolean eTagMatches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank() || eTag == null) {
+            return false;
+        }
+        if ("*".equals(ifNoneMatch.trim())) {
+            return true;
+        }
+
+        String current = opaqueTag(eTag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            if (opaqueTag(candidate).equals(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String tag) {
+        String value = tag.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
     // Delete file from S3
     public void deleteFile(String objectKey) {
         try {
             log.info("🗑️ Deleting file from S3: {}", objectKey);
+            diskCache.invalidate(objectKey);
+            evictPresignedUrls(objectKey);
 
             s3Client.deleteObject(
                 DeleteObjectRequest.builder()
@@ -347,19 +711,9 @@ public class S3Service {
                 return;
             }
 
-            List<ObjectIdentifier> toDelete = new ArrayList<>();
-
-            for (String key : files) {
-                toDelete.add(ObjectIdentifier.builder().key(key).build());
-
-                if (toDelete.size() == 1000) {
-                    deleteObjects(toDelete);
-                    toDelete.clear();
-                }
-            }
-
-            if (!toDelete.isEmpty()) {
-                deleteObjects(toDelete);
+            DeleteResult result = deleteFiles(files);
+            if (!result.getFailedKeys().isEmpty()) {
+                throw new IllegalStateException(result.getFailedKeys().size() + " objects could not be deleted");
             }
 
             log.info("✅ Deleted {} files from folder: {}", files.size(), prefix);
@@ -370,17 +724,76 @@ public class S3Service {
         }
     }
 
-    private void deleteObjects(List<ObjectIdentifier> objects) {
-        s3Client.deleteObjects(
-            DeleteObjectsRequest.builder()
-                .bucket(bucketName)
-                .delete(Delete.builder().objects(objects).build())
-                .build()
-        );
+    /**
+     * Bulk delete via DeleteObjects, 1000 keys per request, batches sent in parallel.
+     * Never throws for S3 errors - keys that could not be deleted are reported in the result.
+     */
+    public DeleteResult deleteFiles(List<String> objectKeys) {
+        log.info("🗑️ Deleting {} files from S3", objectKeys.size());
+
+        List<CompletableFuture<List<String>>> batches = new ArrayList<>();
+
+        for (int from = 0; from < objectKeys.size(); from += DELETE_BATCH_SIZE) {
+            List<String> batch = objectKeys.subList(from, Math.min(objectKeys.size(), from + DELETE_BATCH_SIZE));
+            batch.forEach(diskCache::invalidate);
+            batch.forEach(this::evictPresignedUrls);
+
+            List<ObjectIdentifier> objects = batch.stream()
+                .map(key -> ObjectIdentifier.builder().key(key).build())
+                .toList();
+
+            batches.add(s3AsyncClient.deleteObjects(
+                    DeleteObjectsRequest.builder()
+                        .bucket(bucketName)
+                        .delete(Delete.builder().objects(objects).quiet(true).build())
+                        .build())
+                .thenApply(response -> response.errors().stream()
+                    .map(S3Error::key)
+                    .toList())
+                .exceptionally(error -> {
+                    log.warn("⚠️ DeleteObjects batch of {} keys failed: {}", batch.size(), error.getMessage());
+                    return batch;
+                }));
+        }
+
+        List<String> failedKeys = new ArrayList<>();
+        batches.forEach(batch -> failedKeys.addAll(batch.join()));
+
+        DeleteResult result = new DeleteResult();
+        result.setDeletedCount(objectKeys.size() - failedKeys.size());
+        result.setFailedKeys(failedKeys);
+
+        log.info("✅ Deleted {} of {} files from S3", result.getDeletedCount(), objectKeys.size());
+        return result;
     }
 
     // Generate temporary download URL
     public String getPresignedUrl(String objectKey, int expirySeconds) {
+        return presign(objectKey, expirySeconds, null, null).getUrl();
+    }
+
+    // Presigned URL that also overrides the Content-Disposition / Content-Type S3 responds with
+    public String getPresignedUrl(String objectKey, int expirySeconds, String contentDisposition, String contentType) {
+        return presign(objectKey, expirySeconds, contentDisposition, contentType).getUrl();
+    }
+
+    /**
+     * Presigned URL with its expiry time. A cached URL is reused while it still has
+     * more than aws.s3.presign-min-remaining-seconds left (and at least half its lifetime),
+     * so repeated list/thumbnail requests don't re-sign every time.
+     */
+    public PresignedUrl presign(String objectKey, int expirySeconds, String contentDisposition, String contentType) {
+        String variant = expirySeconds + "|" + contentDisposition + "|" + contentType;
+        long minRemaining = Math.min(presignMinRemainingSeconds, expirySeconds / 2);
+
+        Map<String, PresignedUrl> variants = presignedUrlCache.get(objectKey);
+        PresignedUrl cached = variants != null ? variants.get(variant) : null;
+        if (cached != null && cached.getExpiresAt().isAfter(Instant.now().plusSeconds(minRemaining))) {
+            metrics.cacheHit("presigned-url");
+            return cached;
+        }
+        metrics.cacheMiss("presigned-url");
+
         try {
             log.info("🔗 Generating presigned URL for: {} (expiry: {}s)",
                 objectKey, expirySeconds);
@@ -388,6 +801,8 @@ public class S3Service {
             GetObjectRequest getObjectRequest = GetObjectRequest.builder()
                 .bucket(bucketName)
                 .key(objectKey)
+                .responseContentDisposition(contentDisposition)
+                .responseContentType(contentType)
                 .build();
 
             GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
@@ -396,7 +811,19 @@ public class S3Service {
                 .build();
 
             PresignedGetObjectRequest presignedRequest = presigner.presignGetObject(presignRequest);
-            String url = presignedRequest.url().toString();
+
+            PresignedUrl url = new PresignedUrl();
+            url.setUrl(presignedRequest.url().toString());
+            url.setExpiresAt(presignedRequest.expiration());
+
+            if (variants == null && presignedUrlCache.size() >= PRESIGNED_URL_CACHE_SIZE) {
+                Instant now = Instant.now();
+                presignedUrlCache.values().forEach(urls -> urls.values().removeIf(entry -> entry.getExpiresAt().isBefore(now)));
+                presignedUrlCache.values().removeIf(Map::isEmpty);
+            }
+            if (variants != null || presignedUrlCache.size() < PRESIGNED_URL_CACHE_SIZE) {
+                presignedUrlCache.computeIfAbsent(objectKey, key -> new ConcurrentHashMap<>()).put(variant, url);
+            }
 
             log.info("✅ Presigned URL generated successfully");
             return url;
@@ -407,6 +834,82 @@ public class S3Service {
         }
     }
 
+    // Drop cached URLs of an object that no longer exists
+    private void evictPresignedUrls(String objectKey) {
+        presignedUrlCache.remove(objectKey);
+    }
+
+    @Data
+    public static class PresignedUrl {
+        private String url;
+        private Instant expiresAt;
+
+        public long getExpiresInSeconds() {
+            return Math.max(0, Duration.between(Instant.now(), expiresAt).getSeconds());
+        }
+    }
+
+    /**
+     * Request body over a read-only view of the caller's array. AsyncRequestBody.fromByteBuffer
+     * copies the buffer in this SDK version; this one doesn't, and every subscription (a retry)
+     * starts again from the beginning of the view.
+     */
+    private static class ByteBufferBody implements AsyncRequestBody {
+        private final ByteBuffer buffer;
+
+        private ByteBufferBody(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public Optional<Long> contentLength() {
+            return Optional.of((long) buffer.remaining());
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+            subscriber.onSubscribe(new Subscription() {
+                private final AtomicBoolean done = new AtomicBoolean();
+
+                @Override
+                public void request(long n) {
+                    if (n <= 0) {
+                        if (done.compareAndSet(false, true)) {
+                            subscriber.onError(new IllegalArgumentException("Demand must be positive"));
+                        }
+                        return;
+                    }
+                    if (done.compareAndSet(false, true)) {
+                        subscriber.onNext(buffer.duplicate());
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    done.set(true);
+                }
+            });
+        }
+    }
+
+    @Data
+    public static class DeleteResult {
+        private int deletedCount;
+        private List<String> failedKeys;
+    }
+
+    @Data
+    public static class ObjectStream {
+        private int status;
+        private InputStream body;
+        private Long contentLength;
+        private String contentRange;
+        private String contentType;
+        private String eTag;
+        private Instant lastModified;
+    }
+
     @Data
     public static class FileInfo {
         private String objectName;
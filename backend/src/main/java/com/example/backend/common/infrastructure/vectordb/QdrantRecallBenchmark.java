@@ -0,0 +1,82 @@
+package com.example.backend.common.infrastructure.vectordb;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Recall-vs-latency benchmark of the configured HNSW/quantization settings on a real collection.
+ * Stored vectors are reused as queries, so it costs no embedding calls; each query's own point
+ * is left out of both result lists, otherwise it always finds itself and inflates recall.
+ * Run once with qdrant.benchmark.collection=<name> and compare the logged numbers between settings.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "qdrant.benchmark.collection")
+public class QdrantRecallBenchmark implements ApplicationRunner {
+
+    private final QdrantVectorService qdrantVectorService;
+
+    @Value("${qdrant.benchmark.collection}")
+    private String collectionName;
+
+    @Value("${qdrant.benchmark.queries:100}")
+    private int queryCount;
+
+    @Value("${qdrant.benchmark.top-k:5}")
+    private int topK;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        log.info("📊 Running recall benchmark on '{}' ({} queries, top-{})", collectionName, queryCount, topK);
+
+        List<QdrantVectorService.StoredVector> queries = qdrantVectorService.sampleVectors(collectionName, queryCount);
+        if (queries.isEmpty()) {
+            log.warn("⚠️ Collection '{}' is empty - nothing to benchmark", collectionName);
+            return;
+        }
+
+        double recallSum = 0;
+        long approxNanos = 0;
+        long exactNanos = 0;
+
+        for (QdrantVectorService.StoredVector query : queries) {
+            long start = System.nanoTime();
+            List<String> approx = qdrantVectorService.searchIds(collectionName, query.vector(), topK + 1, false);
+            approxNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            List<String> exact = qdrantVectorService.searchIds(collectionName, query.vector(), topK + 1, true);
+            exactNanos += System.nanoTime() - start;
+
+            List<String> approxOthers = withoutSelf(approx, query.id());
+            Set<String> truth = new HashSet<>(withoutSelf(exact, query.id()));
+            long hits = approxOthers.stream().filter(truth::contains).count();
+            recallSum += truth.isEmpty() ? 1.0 : (double) hits / truth.size();
+        }
+
+        int n = queries.size();
+        log.info("========================================");
+        log.info("📊 Recall@{}: {}", topK, String.format("%.4f", recallSum / n));
+        log.info("📊 Avg latency approximate: {} ms", String.format("%.2f", approxNanos / 1e6 / n));
+        log.info("📊 Avg latency exact:       {} ms", String.format("%.2f", exactNanos / 1e6 / n));
+        log.info("========================================");
+    }
+
+    // Top-k ids without the query's own point
+    private List<String> withoutSelf(List<String> ids, String selfId) {
+        return ids.stream()
+            .filter(id -> !id.equals(selfId))
+            .limit(topK)
+            .toList();
+    }
+}
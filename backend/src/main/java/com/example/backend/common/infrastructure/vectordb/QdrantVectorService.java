@@ -3,9 +3,12 @@ package com.example.backend.common.infrastructure.vectordb;
 import com.example.backend.common.exception.ExternalServiceException;
 import com.example.backend.config.QdrantProperties;
 
-import dev.langchain4j.store.embedding.EmbeddingStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.store.embedding.qdrant.QdrantEmbeddingStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpEntity;
@@ -16,19 +19,38 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class QdrantVectorService {
+
+    // Payload key holding the owning collection name in shared storage mode
+    public static final String TENANT_KEY = "tenant_id";
+    private static final String PAYLOAD_TEXT_KEY = "text_segment";
+
+    // Payload keys used in filters (deletes, lookups) - indexed so filtering doesn't scan
+    private static final List<String> INDEXED_PAYLOAD_KEYS = List.of("document_id", "user_id", "chunk_index");
+
+    // Reciprocal-rank fusion constant (standard value from the RRF paper)
+    private static final int RRF_K = 60;
+
     private final QdrantProperties qdrantProperties;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final SparseVectorEncoder sparseVectorEncoder;
+    // Built by QdrantConfig from the RestTemplateBuilder, so every REST call is traced
+    private final RestTemplate restTemplate;
 
     private String qdrantUrl;
-    private final Map<String, EmbeddingStore<TextSegment>> collectionStoreMap = new ConcurrentHashMap<>();
+
+    // Physical collection -> whether it was created with the sparse vector (older ones weren't)
+    private final Map<String, Boolean> sparseSupportMap = new ConcurrentHashMap<>();
 
     // Connect to Qdrant on startup
     @PostConstruct
@@ -39,6 +61,7 @@ public class QdrantVectorService {
             log.info("Initializing Qdrant Vector service");
             log.info("Qdrant URL: {}", qdrantUrl);
             log.info("Qdrant Port (gRPC): {}", qdrantProperties.getPort());
+            log.info("Qdrant storage mode: {}", qdrantProperties.getStorageMode());
 
             try {
                 String healthUrl = qdrantUrl + "/health";
@@ -62,22 +85,17 @@ public class QdrantVectorService {
         try {
             log.info("Creating collection for user {}: {}", userId, collectionName);
 
-            createCollectionIfNotExists(collectionName);
+            // In shared mode the user's collection name is only a tenant id
+            String physicalName = resolveCollectionName(collectionName);
 
-            if (!waitForCollectionReady(collectionName, 30)) {
+            createCollectionIfNotExists(physicalName);
+
+            if (!waitForCollectionReady(physicalName, 30)) {
                 throw ExternalServiceException.vectorDbError(
-                    "פג זמן ההמתנה ליצירת קולקשן: " + collectionName
+                    "פג זמן ההמתנה ליצירת קולקשן: " + physicalName
                 );
             }
 
-            EmbeddingStore<TextSegment> newStore = QdrantEmbeddingStore.builder()
-                .host(qdrantProperties.getHost())
-                .port(qdrantProperties.getPort())
-                .collectionName(collectionName)
-                .build();
-
-            collectionStoreMap.put(collectionName, newStore);
-
             log.info("✅ User collection created: {}", collectionName);
             return collectionName;
 
@@ -141,19 +159,39 @@ public class QdrantVectorService {
 
             String createUrl = qdrantUrl + "/collections/" + collectionName;
 
-            Map<String, Object> body = Map.of(
-                    "vectors", Map.of(
-                            "size", qdrantProperties.getDimension(),
-                            "distance", qdrantProperties.getDistance()
-                    ),
-                    "hnsw_config", Map.of(
+            boolean shared = qdrantProperties.isSharedMode();
+
+            // Shared mode: skip the global graph (m=0) and build per-tenant graphs (payload_m)
+            Map<String, Object> hnswConfig = shared
+                    ? Map.of(
+                            "m", 0,
+                            "payload_m", qdrantProperties.getHnswPayloadM(),
+                            "ef_construct", qdrantProperties.getHnswEfConstruct())
+                    : Map.of(
                             "m", qdrantProperties.getHnswM(),
-                            "ef_construct", qdrantProperties.getHnswEfConstruct()
-                    ),
-                    "optimizers_config", Map.of(
-                            "indexing_threshold", 10000
-                    )
-            );
+                            "ef_construct", qdrantProperties.getHnswEfConstruct());
+
+            Map<String, Object> body = new HashMap<>();
+            body.put("vectors", Map.of(
+                    "size", qdrantProperties.getDimension(),
+                    "distance", qdrantProperties.getDistance()
+            ));
+            body.put("hnsw_config", hnswConfig);
+            body.put("optimizers_config", Map.of(
+                    "indexing_threshold", 10000
+            ));
+            if (shared) {
+                body.put("shard_number", qdrantProperties.getSharedShardNumber());
+            }
+            if (qdrantProperties.isQuantizationEnabled()) {
+                body.put("quantization_config", buildQuantizationConfig());
+            }
+            if (qdrantProperties.isHybridSearch()) {
+                // Qdrant keeps the IDF statistics of the collection for us
+                body.put("sparse_vectors", Map.of(
+                        qdrantProperties.getSparseVectorName(), Map.of("modifier", "idf")
+                ));
+            }
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
@@ -167,7 +205,9 @@ public class QdrantVectorService {
             );
 
             if (response.getStatusCode().is2xxSuccessful()) {
-                log.info("✅ Collection '{}' created with HNSW optimization", collectionName);
+                log.info("✅ Collection '{}' created with HNSW optimization (quantization: {})",
+                    collectionName, qdrantProperties.getQuantization());
+                ensurePayloadIndexes(collectionName);
             } else {
                 log.error("❌ Failed to create collection '{}': {}", collectionName, response.getBody());
             }
@@ -177,23 +217,70 @@ public class QdrantVectorService {
         }
     }
 
+    // Scalar keeps int8 per dimension (4x smaller), binary keeps 1 bit (32x smaller)
+    private Map<String, Object> buildQuantizationConfig() {
+        if ("binary".equalsIgnoreCase(qdrantProperties.getQuantization())) {
+            return Map.of("binary", Map.of(
+                    "always_ram", qdrantProperties.isQuantizationAlwaysRam()
+            ));
+        }
+
+        return Map.of("scalar", Map.of(
+                "type", "int8",
+                "quantile", 0.99,
+                "always_ram", qdrantProperties.isQuantizationAlwaysRam()
+        ));
+    }
+
+    /**
+     * Create keyword payload indexes for the filtered keys (and the tenant key in shared mode).
+     * Idempotent - Qdrant accepts re-creating an existing index, so it doubles as a backfill.
+     */
+    public void ensurePayloadIndexes(String collectionName) {
+        for (String key : INDEXED_PAYLOAD_KEYS) {
+            createPayloadIndex(collectionName, key, Map.of("type", "keyword"));
+        }
+
+        // Tenant index lets Qdrant co-locate and filter tenant points cheaply
+        if (qdrantProperties.isSharedMode()) {
+            createPayloadIndex(collectionName, TENANT_KEY, Map.of(
+                    "type", "keyword",
+                    "is_tenant", true
+            ));
+        }
+
+        log.info("✅ Payload indexes ensured on collection '{}'", collectionName);
+    }
+
+    private void createPayloadIndex(String collectionName, String fieldName, Map<String, Object> schema) {
+        String indexUrl = qdrantUrl + "/collections/" + collectionName + "/index?wait=true";
+
+        Map<String, Object> body = Map.of(
+                "field_name", fieldName,
+                "field_schema", schema
+        );
+
+        restTemplate.exchange(indexUrl, HttpMethod.PUT, jsonEntity(body), String.class);
+        log.debug("Payload index '{}' ready on collection '{}'", fieldName, collectionName);
+    }
+
     // Delete embeddings by document ID
     public void deleteDocumentEmbeddings(String collectionName, Long documentId) {
         try {
             log.info("🗑️ Deleting embeddings for document {} from collection {}", 
                 documentId, collectionName);
 
-            String deleteUrl = qdrantUrl + "/collections/" + collectionName + "/points/delete";
+            String deleteUrl = qdrantUrl + "/collections/" + resolveCollectionName(collectionName)
+                + "/points/delete";
+
+            List<Map<String, Object>> must = new ArrayList<>();
+            must.add(matchCondition("document_id", documentId.toString()));
+            if (qdrantProperties.isSharedMode()) {
+                must.add(matchCondition(TENANT_KEY, collectionName));
+            }
 
             Map<String, Object> body = Map.of(
-                "filter", Map.of(
-                    "must", List.of(
-                        Map.of(
-                            "key", "document_id",
-                            "match", Map.of("value", documentId.toString())
-                        )
-                    )
-                )
+                "filter", Map.of("must", must)
             );
 
             HttpHeaders headers = new HttpHeaders();
@@ -221,32 +308,253 @@ public class QdrantVectorService {
         }
     }
 
-    // Get or create embedding store
-    public EmbeddingStore<TextSegment> getEmbeddingStoreForCollection(String collectionName) {
-        log.info("🔍 Looking for collection: {}", collectionName);
-        log.info("📊 Available collections: {}", collectionStoreMap.keySet());
+    // Store one chunk with its dense vector and, when the collection supports it, its sparse vector
+    public void addEmbedding(String collectionName, Embedding embedding, TextSegment segment) {
+        String physicalName = resolveCollectionName(collectionName);
+        boolean sparse = supportsSparse(physicalName);
+
+        Map<String, Object> payload = new HashMap<>(segment.metadata().toMap());
+        payload.put(PAYLOAD_TEXT_KEY, segment.text());
+
+        Object vector = embedding.vector();
+        if (sparse) {
+            SparseVectorEncoder.SparseVector sparseVector = sparseVectorEncoder.encodeDocument(segment.text());
+            if (!sparseVector.isEmpty()) {
+                vector = Map.of(
+                    "", embedding.vector(),
+                    qdrantProperties.getSparseVectorName(), sparseVector.toPayload()
+                );
+            }
+        }
+
+        Map<String, Object> point = Map.of(
+            "id", UUID.randomUUID().toString(),
+            "vector", vector,
+            "payload", payload
+        );
+
+        String upsertUrl = qdrantUrl + "/collections/" + physicalName + "/points?wait=true";
+
+        try {
+            restTemplate.exchange(upsertUrl, HttpMethod.PUT, jsonEntity(Map.of("points", List.of(point))), String.class);
+        } catch (Exception e) {
+            log.error("❌ Failed to store embedding in collection {}", physicalName, e);
+            throw ExternalServiceException.vectorDbError("נכשל בשמירת embedding: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Search a user's collection; in shared mode the tenant filter is always applied.
+     * With hybrid search the dense and sparse searches go out in one batch request and
+     * are merged with reciprocal-rank fusion. Matches keep their dense cosine score for
+     * display; chunks found only lexically get the cosine of their stored vector, and are
+     * kept even below minScore since the lexical match is what found them.
+     */
+    public EmbeddingSearchResult<TextSegment> search(
+            String collectionName,
+            Embedding queryEmbedding,
+            String queryText,
+            int maxResults,
+            double minScore) {
+
+        String physicalName = resolveCollectionName(collectionName);
+
+        Map<String, Object> denseSearch = new HashMap<>();
+        denseSearch.put("vector", queryEmbedding.vector());
+        denseSearch.put("limit", maxResults);
+        denseSearch.put("score_threshold", minScore);
+        denseSearch.put("with_payload", true);
+        denseSearch.put("params", buildSearchParams(false));
+        if (qdrantProperties.isSharedMode()) {
+            denseSearch.put("filter", tenantFilter(collectionName));
+        }
+
+        SparseVectorEncoder.SparseVector sparseQuery = sparseVectorEncoder.encodeQuery(queryText);
+        boolean hybrid = qdrantProperties.isHybridSearch()
+            && !sparseQuery.isEmpty()
+            && supportsSparse(physicalName);
+
+        try {
+            if (!hybrid) {
+                String searchUrl = qdrantUrl + "/collections/" + physicalName + "/points/search";
+                JsonNode response = restTemplate.postForObject(searchUrl, jsonEntity(denseSearch), JsonNode.class);
+
+                List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+                if (response != null) {
+                    for (JsonNode point : response.path("result")) {
+                        matches.add(toEmbeddingMatch(point, point.path("score").asDouble()));
+                    }
+                }
+                return new EmbeddingSearchResult<>(matches);
+            }
+
+            Map<String, Object> sparseSearch = new HashMap<>();
+            sparseSearch.put("vector", Map.of(
+                "name", qdrantProperties.getSparseVectorName(),
+                "vector", sparseQuery.toPayload()
+            ));
+            sparseSearch.put("limit", maxResults);
+            sparseSearch.put("with_payload", true);
+            // The dense vector lets sparse-only hits be scored like the rest
+            sparseSearch.put("with_vector", true);
+            if (qdrantProperties.isSharedMode()) {
+                sparseSearch.put("filter", tenantFilter(collectionName));
+            }
+
+            String batchUrl = qdrantUrl + "/collections/" + physicalName + "/points/search/batch";
+            JsonNode response = restTemplate.postForObject(
+                batchUrl,
+                jsonEntity(Map.of("searches", List.of(denseSearch, sparseSearch))),
+                JsonNode.class
+            );
+
+            if (response == null) {
+                return new EmbeddingSearchResult<>(new ArrayList<>());
+            }
+
+            return new EmbeddingSearchResult<>(fuseWithRrf(
+                response.path("result").path(0),
+                response.path("result").path(1),
+                queryEmbedding.vector(),
+                maxResults
+            ));
+
+        } catch (Exception e) {
+            log.error("❌ Qdrant search failed on collection {}", collectionName, e);
+            throw ExternalServiceException.vectorDbError("נכשל בחיפוש וקטורי: " + e.getMessage());
+        }
+    }
+
+    // Merge ranked dense and sparse hits: score(d) = sum over lists of 1 / (k + rank)
+    static List<EmbeddingMatch<TextSegment>> fuseWithRrf(
+            JsonNode denseHits,
+            JsonNode sparseHits,
+            float[] queryVector,
+            int maxResults) {
+
+        Map<String, Double> fusedScores = new HashMap<>();
+        Map<String, JsonNode> points = new HashMap<>();
+        Map<String, Double> denseScores = new HashMap<>();
+
+        int rank = 1;
+        for (JsonNode point : denseHits) {
+            String id = point.path("id").asText();
+            fusedScores.merge(id, 1.0 / (RRF_K + rank++), Double::sum);
+            points.put(id, point);
+            denseScores.put(id, point.path("score").asDouble());
+        }
+
+        rank = 1;
+        for (JsonNode point : sparseHits) {
+            String id = point.path("id").asText();
+            fusedScores.merge(id, 1.0 / (RRF_K + rank++), Double::sum);
+            points.putIfAbsent(id, point);
+        }
+
+        List<String> ranked = new ArrayList<>(fusedScores.keySet());
+        ranked.sort((a, b) -> Double.compare(fusedScores.get(b), fusedScores.get(a)));
+
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+        for (String id : ranked.subList(0, Math.min(maxResults, ranked.size()))) {
+            JsonNode point = points.get(id);
+            Double score = denseScores.get(id);
+            if (score == null) {
+                score = cosine(queryVector, denseVector(point.path("vector")));
+            }
+            matches.add(toEmbeddingMatch(point, score));
+        }
+
+        log.debug("Hybrid search: {} dense + {} sparse hits fused into {}",
+            denseHits.size(), sparseHits.size(), matches.size());
+        return matches;
+    }
+
+    // Cosine similarity; 0 when the stored vector wasn't returned
+    static double cosine(float[] a, float[] b) {
+        if (b == null || a.length != b.length) {
+            return 0.0;
+        }
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0.0 : dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    /**
+     * Whether the physical collection has the sparse vector; also makes sure it exists.
+     * Only a successful lookup is cached - after a failure the next call asks Qdrant again.
+     */
+    private boolean supportsSparse(String physicalName) {
+        Boolean cached = sparseSupportMap.get(physicalName);
+        if (cached != null) {
+            return cached;
+        }
 
-        EmbeddingStore<TextSegment> store = collectionStoreMap.get(collectionName);
+        createCollectionIfNotExists(physicalName);
+        try {
+            JsonNode info = restTemplate.getForObject(qdrantUrl + "/collections/" + physicalName, JsonNode.class);
+            if (info == null) {
+                return false;
+            }
+            boolean supported = info.path("result").path("config").path("params")
+                .path("sparse_vectors").has(qdrantProperties.getSparseVectorName());
+            sparseSupportMap.put(physicalName, supported);
+            return supported;
+        } catch (Exception e) {
+            log.warn("⚠️ Could not read config of collection {}: {}", physicalName, e.getMessage());
+            return false;
+        }
+    }
 
-        if (store == null) {
-            log.warn("❌ Collection not in cache, trying to create...");
-            createCollectionIfNotExists(collectionName);
+    // HNSW and quantization search parameters; exact=true gives brute-force ground truth
+    Map<String, Object> buildSearchParams(boolean exact) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("hnsw_ef", qdrantProperties.getHnswEf());
+        params.put("exact", exact);
+
+        if (qdrantProperties.isQuantizationEnabled()) {
+            // Search the quantized vectors, then rescore the oversampled top hits with the originals
+            params.put("quantization", Map.of(
+                    "ignore", exact,
+                    "rescore", qdrantProperties.isQuantizationRescore(),
+                    "oversampling", qdrantProperties.getQuantizationOversampling()
+            ));
+        }
+        return params;
+    }
 
-            store = QdrantEmbeddingStore.builder()
-                    .host(qdrantProperties.getHost())
-                    .port(qdrantProperties.getPort())
-                    .collectionName(collectionName)
-                    .build();
+    // Convert a Qdrant REST point into a LangChain4j match
+    private static EmbeddingMatch<TextSegment> toEmbeddingMatch(JsonNode point, double score) {
+        JsonNode payload = point.path("payload");
 
-            collectionStoreMap.put(collectionName, store);
+        Map<String, Object> metadata = new HashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = payload.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!PAYLOAD_TEXT_KEY.equals(field.getKey()) && field.getValue().isValueNode()) {
+                metadata.put(field.getKey(), field.getValue().asText());
+            }
         }
 
-        return store;
+        TextSegment segment = TextSegment.from(
+            payload.path(PAYLOAD_TEXT_KEY).asText(""),
+            Metadata.from(metadata)
+        );
+
+        return new EmbeddingMatch<>(
+            score,
+            point.path("id").asText(),
+            null,
+            segment
+        );
     }
 
     // Remove from local cache
     public void removeCollectionFromCache(String collectionName) {
-        collectionStoreMap.remove(collectionName);
+        sparseSupportMap.remove(collectionName);
         log.info("Collection removed from cache: {}", collectionName);
     }
     
@@ -258,18 +566,198 @@ public class QdrantVectorService {
         }
 
         try {
-            log.info("🗑️ Deleting Qdrant collection: {}", collectionName);
-
-            String deleteUrl = qdrantUrl + "/collections/" + collectionName;
-            restTemplate.delete(deleteUrl);
-
-            removeCollectionFromCache(collectionName);
+            // Shared collection: only this tenant's points go away
+            if (qdrantProperties.isSharedMode()) {
+                deleteTenantPoints(qdrantProperties.getCollectionName(), collectionName);
+                return;
+            }
 
-            log.info("✅ Collection '{}' deleted successfully", collectionName);
+            dropCollection(collectionName);
 
         } catch (Exception e) {
             log.error("❌ Failed to delete collection: {}", collectionName, e);
             throw ExternalServiceException.vectorDbError("נכשל במחיקת קולקשן: " + collectionName);
         }
     }
-}
\ No newline at end of file
+
+    // Drop a physical collection regardless of storage mode
+    public void dropCollection(String collectionName) {
+        log.info("🗑️ Deleting Qdrant collection: {}", collectionName);
+
+        String deleteUrl = qdrantUrl + "/collections/" + collectionName;
+        restTemplate.delete(deleteUrl);
+
+        removeCollectionFromCache(collectionName);
+
+        log.info("✅ Collection '{}' deleted successfully", collectionName);
+    }
+
+    // Remove every point of one tenant from a shared collection
+    private void deleteTenantPoints(String sharedCollection, String tenantId) {
+        log.info("🗑️ Deleting tenant '{}' points from shared collection {}", tenantId, sharedCollection);
+
+        String deleteUrl = qdrantUrl + "/collections/" + sharedCollection + "/points/delete?wait=true";
+
+        Map<String, Object> body = Map.of(
+            "filter", Map.of("must", List.of(matchCondition(TENANT_KEY, tenantId)))
+        );
+
+        restTemplate.exchange(deleteUrl, HttpMethod.POST, jsonEntity(body), String.class);
+
+        log.info("✅ Tenant '{}' points deleted", tenantId);
+    }
+
+    /**
+     * Copy all points of a per-user collection into the shared collection,
+     * stamping each point with the tenant key. Returns the number of points moved.
+     */
+    public long migrateCollectionToShared(String collectionName) {
+        String sharedCollection = qdrantProperties.getCollectionName();
+        createCollectionIfNotExists(sharedCollection);
+
+        String scrollUrl = qdrantUrl + "/collections/" + collectionName + "/points/scroll";
+        String upsertUrl = qdrantUrl + "/collections/" + sharedCollection + "/points?wait=true";
+
+        long moved = 0;
+        JsonNode offset = null;
+
+        do {
+            Map<String, Object> scrollBody = new HashMap<>();
+            scrollBody.put("limit", 256);
+            scrollBody.put("with_payload", true);
+            scrollBody.put("with_vector", true);
+            if (offset != null) {
+                scrollBody.put("offset", offset);
+            }
+
+            JsonNode response = restTemplate.postForObject(scrollUrl, jsonEntity(scrollBody), JsonNode.class);
+            if (response == null) {
+                break;
+            }
+
+            List<Map<String, Object>> points = new ArrayList<>();
+            for (JsonNode point : response.path("result").path("points")) {
+                Map<String, Object> payload = new HashMap<>();
+                point.path("payload").fields()
+                    .forEachRemaining(field -> payload.put(field.getKey(), field.getValue()));
+                payload.put(TENANT_KEY, collectionName);
+
+                points.add(Map.of(
+                    "id", point.path("id"),
+                    "vector", point.path("vector"),
+                    "payload", payload
+                ));
+            }
+
+            if (!points.isEmpty()) {
+                restTemplate.exchange(upsertUrl, HttpMethod.PUT, jsonEntity(Map.of("points", points)), String.class);
+                moved += points.size();
+            }
+
+            offset = response.path("result").path("next_page_offset");
+        } while (offset != null && !offset.isNull() && !offset.isMissingNode());
+
+        log.info("✅ Migrated {} points from '{}' to shared collection '{}'",
+            moved, collectionName, sharedCollection);
+        return moved;
+    }
+
+    // Read up to `limit` stored points with their dense vectors (used as benchmark queries)
+    public List<StoredVector> sampleVectors(String collectionName, int limit) {
+        String scrollUrl = qdrantUrl + "/collections/" + collectionName + "/points/scroll";
+
+        Map<String, Object> body = Map.of(
+            "limit", limit,
+            "with_payload", false,
+            "with_vector", true
+        );
+
+        JsonNode response = restTemplate.postForObject(scrollUrl, jsonEntity(body), JsonNode.class);
+
+        List<StoredVector> vectors = new ArrayList<>();
+        if (response != null) {
+            for (JsonNode point : response.path("result").path("points")) {
+                float[] values = denseVector(point.path("vector"));
+                if (values != null) {
+                    vectors.add(new StoredVector(point.path("id").asText(), values));
+                }
+            }
+        }
+        return vectors;
+    }
+
+    /**
+     * Dense part of a stored point's vector: a plain array on dense-only collections,
+     * the unnamed ("") entry of the named-vector object on hybrid ones. Null when missing.
+     */
+    static float[] denseVector(JsonNode vector) {
+        JsonNode dense = vector.isObject() ? vector.path("") : vector;
+        if (!dense.isArray()) {
+            return null;
+        }
+        float[] values = new float[dense.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) dense.get(i).asDouble();
+        }
+        return values;
+    }
+
+    // Ids of the top-k points for a raw vector, approximate or exact
+    public List<String> searchIds(String collectionName, float[] vector, int limit, boolean exact) {
+        String searchUrl = qdrantUrl + "/collections/" + collectionName + "/points/search";
+
+        Map<String, Object> body = Map.of(
+            "vector", vector,
+            "limit", limit,
+            "with_payload", false,
+            "params", buildSearchParams(exact)
+        );
+
+        JsonNode response = restTemplate.postForObject(searchUrl, jsonEntity(body), JsonNode.class);
+
+        List<String> ids = new ArrayList<>();
+        if (response != null) {
+            for (JsonNode point : response.path("result")) {
+                ids.add(point.path("id").asText());
+            }
+        }
+        return ids;
+    }
+
+    // Whether a collection exists in Qdrant
+    public boolean collectionExists(String collectionName) {
+        try {
+            return restTemplate.getForEntity(qdrantUrl + "/collections/" + collectionName, String.class)
+                .getStatusCode().is2xxSuccessful();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    // Map a user's collection name to the physical Qdrant collection
+    private String resolveCollectionName(String collectionName) {
+        return qdrantProperties.isSharedMode()
+            ? qdrantProperties.getCollectionName()
+            : collectionName;
+    }
+
+    private Map<String, Object> tenantFilter(String tenantId) {
+        return Map.of("must", List.of(matchCondition(TENANT_KEY, tenantId)));
+    }
+
+    private Map<String, Object> matchCondition(String key, String value) {
+        return Map.of(
+            "key", key,
+            "match", Map.of("value", value)
+        );
+    }
+
+    private HttpEntity<Object> jsonEntity(Object body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new HttpEntity<>(body, headers);
+    }
+
+    public record StoredVector(String id, float[] vector) {
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.backend.common.infrastructure.vectordb;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Local lexical encoder for the sparse (BM25-style) vector.
+ * Documents get a saturated term-frequency weight; Qdrant applies the per-collection IDF
+ * through the "idf" modifier on the sparse vector, so no statistics are kept here.
+ */
+@Component
+public class SparseVectorEncoder {
+
+    // BM25 parameters; chunks are ~500 chars, roughly 80 tokens
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double AVG_CHUNK_TOKENS = 80.0;
+
+    // Hebrew one-letter prefixes (ו, ה, ב, ל, מ, ש, כ) stripped as an extra term
+    private static final String HEBREW_PREFIXES = "והבלמשכ";
+
+    // Encode a chunk for indexing
+    public SparseVector encodeDocument(String text) {
+        List<String> tokens = tokenize(text);
+
+        Map<Integer, Integer> termFrequencies = new LinkedHashMap<>();
+        for (String token : tokens) {
+            termFrequencies.merge(termIndex(token), 1, Integer::sum);
+        }
+
+        double lengthNorm = 1 - B + B * (tokens.size() / AVG_CHUNK_TOKENS);
+
+        int[] indices = new int[termFrequencies.size()];
+        float[] values = new float[termFrequencies.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Integer> entry : termFrequencies.entrySet()) {
+            int tf = entry.getValue();
+            indices[i] = entry.getKey();
+            values[i] = (float) (tf * (K1 + 1) / (tf + K1 * lengthNorm));
+            i++;
+        }
+        return new SparseVector(indices, values);
+    }
+
+    // Encode a query: every distinct term weighs 1, IDF comes from the collection
+    public SparseVector encodeQuery(String text) {
+        Map<Integer, Float> terms = new LinkedHashMap<>();
+        for (String token : tokenize(text)) {
+            terms.put(termIndex(token), 1f);
+        }
+
+        int[] indices = new int[terms.size()];
+        float[] values = new float[terms.size()];
+        int i = 0;
+        for (Map.Entry<Integer, Float> entry : terms.entrySet()) {
+            indices[i] = entry.getKey();
+            values[i] = entry.getValue();
+            i++;
+        }
+        return new SparseVector(indices, values);
+    }
+
+    /**
+     * Split on anything that is not a letter or digit, keeping codes such as "AB-1234" or "v2.1"
+     * whole as well as split, so both exact SKUs and their parts match.
+     */
+    public List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        for (String raw : text.toLowerCase(Locale.ROOT).split("[\\s,;:!?()\\[\\]{}\"'«»״׳]+")) {
+            String word = stripEdges(raw);
+            if (word.isEmpty()) {
+                continue;
+            }
+
+            String[] parts = word.split("[^\\p{L}\\p{N}]+");
+            if (parts.length > 1 && containsDigit(word)) {
+                tokens.add(word);
+            }
+
+            for (String part : parts) {
+                if (part.isEmpty() || (part.length() == 1 && !Character.isDigit(part.charAt(0)))) {
+                    continue;
+                }
+                tokens.add(part);
+
+                if (isHebrewWithPrefix(part)) {
+                    tokens.add(part.substring(1));
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private String stripEdges(String word) {
+        int start = 0;
+        int end = word.length();
+        while (start < end && !Character.isLetterOrDigit(word.charAt(start))) start++;
+        while (end > start && !Character.isLetterOrDigit(word.charAt(end - 1))) end--;
+        return word.substring(start, end);
+    }
+
+    private boolean containsDigit(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.isDigit(word.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isHebrewWithPrefix(String word) {
+        char first = word.charAt(0);
+        return word.length() > 3
+            && first >= '֐' && first <= '׿'
+            && HEBREW_PREFIXES.indexOf(first) >= 0;
+    }
+
+    // Stable non-negative term id
+    private int termIndex(String token) {
+        return token.hashCode() & 0x7fffffff;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class SparseVector {
+        private final int[] indices;
+        private final float[] values;
+
+        public boolean isEmpty() {
+            return indices.length == 0;
+        }
+
+        public Map<String, Object> toPayload() {
+            return Map.of(
+                "indices", indices,
+                "values", values
+            );
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.backend.common.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Micrometer meters for the RAG pipelines (query answering and document ingestion).
+ *
+ * rag.stage        observation per stage (timer + trace span), tags: pipeline, stage, outcome, model
+ * rag.tokens       counter, tags: pipeline, kind (rewrite/input/output/embedding), model, tenant
+ * rag.cache        counter, tags: cache, result (hit/miss)
+ * rag.qdrant.results  summary of matches returned per search, tags: pipeline
+ *
+ * The tenant tag is bounded: the first metrics.tenant-tag-limit tenants seen get their own
+ * value, every later one is reported as "other".
+ */
+@Component
+@RequiredArgsConstructor
+public class RagMetrics {
+
+    public static final String QUERY = "query";
+    public static final String INGEST = "ingest";
+
+    public static final String SUCCESS = "success";
+    public static final String ERROR = "error";
+    public static final String EMPTY = "empty";
+
+    private final MeterRegistry registry;
+    private final ObservationRegistry observationRegistry;
+
+    @Value("${openai.chat.model:gpt-4o}")
+    private String chatModel;
+
+    @Value("${openai.embedding.model:text-embedding-3-large}")
+    private String embeddingModel;
+
+    @Value("${metrics.tenant-tag-limit:50}")
+    private int tenantTagLimit;
+
+    private final Set<String> trackedTenants = ConcurrentHashMap.newKeySet();
+
+    // Stage running on the calling thread; spans started inside it become its children
+    public Stage stage(String pipeline, String stage) {
+        return start(pipeline, stage, "none", true);
+    }
+
+    // Stage that calls the chat model
+    public Stage chatStage(String pipeline, String stage) {
+        return start(pipeline, stage, chatModel, true);
+    }
+
+    // Stage that calls the embedding model
+    public Stage embeddingStage(String pipeline, String stage) {
+        return start(pipeline, stage, embeddingModel, true);
+    }
+
+    // Stage that completes on another thread (e.g. a CompletableFuture callback), so no scope is opened
+    public Stage asyncStage(String pipeline, String stage) {
+        return start(pipeline, stage, "none", false);
+    }
+
+    private Stage start(String pipeline, String stage, String model, boolean scoped) {
+        Observation observation = Observation.createNotStarted("rag.stage", observationRegistry)
+            .contextualName(pipeline + " " + stage)
+            .lowCardinalityKeyValue("pipeline", pipeline)
+            .lowCardinalityKeyValue("stage", stage)
+            .lowCardinalityKeyValue("model", model)
+            .start();
+        return new Stage(observation, scoped ? observation.openScope() : null);
+    }
+
+    public void chatTokens(String pipeline, String kind, Long tenantId, long tokens) {
+        tokens(pipeline, kind, chatModel, tenantId, tokens);
+    }
+
+    public void embeddingTokens(String pipeline, Long tenantId, long tokens) {
+        tokens(pipeline, "embedding", embeddingModel, tenantId, tokens);
+    }
+
+    private void tokens(String pipeline, String kind, String model, Long tenantId, long tokens) {
+        if (tokens <= 0) {
+            return;
+        }
+        Counter.builder("rag.tokens")
+            .description("Tokens sent to / received from the models")
+            .tag("pipeline", pipeline)
+            .tag("kind", kind)
+            .tag("model", model)
+            .tag("tenant", tenantTag(tenantId))
+            .register(registry)
+            .increment(tokens);
+    }
+
+    public void cacheHit(String cache) {
+        cache(cache, "hit");
+    }
+
+    public void cacheMiss(String cache) {
+        cache(cache, "miss");
+    }
+
+    private void cache(String cache, String result) {
+        Counter.builder("rag.cache")
+            .tag("cache", cache)
+            .tag("result", result)
+            .register(registry)
+            .increment();
+    }
+
+    public void qdrantResults(String pipeline, int results) {
+        DistributionSummary.builder("rag.qdrant.results")
+            .description("Matches returned by a Qdrant search")
+            .tag("pipeline", pipeline)
+            .register(registry)
+            .record(results);
+    }
+
+    // Bounded tenant tag value, shared by other per-tenant meters
+    public String tenantTag(Long tenantId) {
+        if (tenantId == null) {
+            return "none";
+        }
+        String tag = tenantId.toString();
+        if (trackedTenants.contains(tag)) {
+            return tag;
+        }
+        if (trackedTenants.size() < tenantTagLimit && trackedTenants.add(tag)) {
+            return tag;
+        }
+        return "other";
+    }
+
+    /**
+     * A running stage. The outcome defaults to error, so a stage left by an exception is
+     * reported as failed; close it with try-with-resources on the thread that started it.
+     */
+    public static class Stage implements AutoCloseable {
+        private final Observation observation;
+        private final Observation.Scope scope;
+        private String outcome = ERROR;
+
+        private Stage(Observation observation, Observation.Scope scope) {
+            this.observation = observation;
+            this.scope = scope;
+        }
+
+        public void outcome(String outcome) {
+            this.outcome = outcome;
+        }
+
+        public void success() {
+            outcome(SUCCESS);
+        }
+
+        public void error(Throwable error) {
+            outcome(ERROR);
+            observation.error(error);
+        }
+
+        @Override
+        public void close() {
+            if (scope != null) {
+                scope.close();
+            }
+            observation.lowCardinalityKeyValue("outcome", outcome).stop();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.backend.common.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+
+/**
+ * One observation (span) per AWS SDK operation (GetObject, PutObject, UploadPart...).
+ * The span is started on the calling thread, so it is parented to the current stage even for
+ * the async client; it ends when the SDK reports the final result or failure (after retries).
+ */
+@RequiredArgsConstructor
+public class ObservedAwsSdkInterceptor implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Observation> OBSERVATION = new ExecutionAttribute<>("observation");
+
+    private final ObservationRegistry registry;
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes attributes) {
+        String service = attributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME);
+        String operation = attributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+
+        Observation observation = Observation.createNotStarted("aws.sdk", registry)
+            .contextualName(service + "." + operation)
+            .lowCardinalityKeyValue("service", String.valueOf(service))
+            .lowCardinalityKeyValue("operation", String.valueOf(operation))
+            .start();
+        attributes.putAttribute(OBSERVATION, observation);
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes attributes) {
+        Observation observation = attributes.getAttribute(OBSERVATION);
+        if (observation != null) {
+            observation.lowCardinalityKeyValue("status", String.valueOf(context.httpResponse().statusCode()));
+            observation.stop();
+        }
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes attributes) {
+        Observation observation = attributes.getAttribute(OBSERVATION);
+        if (observation != null) {
+            observation.error(context.exception());
+            observation.stop();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.backend.common.tracing;
+
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * One observation (span) per OpenAI chat call.
+ * LangChain4j calls the listener on the calling thread around the HTTP request, so the span
+ * becomes a child of whatever stage is current; the observation travels in the call attributes.
+ */
+@RequiredArgsConstructor
+public class ObservedChatModelListener implements ChatModelListener {
+
+    private static final String OBSERVATION = "observation";
+
+    private final ObservationRegistry registry;
+
+    @Override
+    public void onRequest(ChatModelRequestContext context) {
+        String model = context.request().model();
+        Observation observation = Observation.createNotStarted("openai.chat", registry)
+            .contextualName("chat " + model)
+            .lowCardinalityKeyValue("model", String.valueOf(model))
+            .start();
+        context.attributes().put(OBSERVATION, observation);
+    }
+
+    @Override
+    public void onResponse(ChatModelResponseContext context) {
+        Observation observation = (Observation) context.attributes().get(OBSERVATION);
+        if (observation == null) {
+            return;
+        }
+        if (context.response().tokenUsage() != null) {
+            observation.highCardinalityKeyValue("tokens.input",
+                String.valueOf(context.response().tokenUsage().inputTokenCount()));
+            observation.highCardinalityKeyValue("tokens.output",
+                String.valueOf(context.response().tokenUsage().outputTokenCount()));
+        }
+        observation.stop();
+    }
+
+    @Override
+    public void onError(ChatModelErrorContext context) {
+        Observation observation = (Observation) context.attributes().get(OBSERVATION);
+        if (observation != null) {
+            observation.error(context.error());
+            observation.stop();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.backend.common.tracing;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Embedding model decorator recording one observation (span) per OpenAI embedding call.
+ * LangChain4j has no listener hook for embedding models; every embed() goes through embedAll().
+ */
+@RequiredArgsConstructor
+public class ObservedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final String modelName;
+    private final ObservationRegistry registry;
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+        return Observation.createNotStarted("openai.embedding", registry)
+            .contextualName("embedding " + modelName)
+            .lowCardinalityKeyValue("model", modelName)
+            .highCardinalityKeyValue("segments", String.valueOf(segments.size()))
+            .observe(() -> delegate.embedAll(segments));
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+}
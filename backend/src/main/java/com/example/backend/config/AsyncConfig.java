@@ -1,19 +1,28 @@
 package com.example.backend.config;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
 
 @Configuration
 @EnableAsync  
+@EnableScheduling
 @Slf4j
 public class AsyncConfig {
 
+    // Every pool runs tasks with the submitter's context (trace span, MDC), so async work stays in the request's trace
+
     @Bean(name = "documentProcessingExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
     public Executor documentProcessingExecutor() {
         log.info("🔵 Creating Document Processing Thread Pool");
         
@@ -22,9 +31,83 @@ public class AsyncConfig {
         executor.setMaxPoolSize(10);
         executor.setQueueCapacity(100);
         executor.setThreadNamePrefix("DocProcessor-");
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
         executor.initialize();
         
         log.info("✅ Thread Pool ready - CoreSize: 5, MaxSize: 10");
         return executor;
     }
-}
\ No newline at end of file
+
+    // Ingestion is I/O-bound (S3, OpenAI, Qdrant, Postgres); with virtual threads the semaphore is the only limit
+    @Bean(name = "documentProcessingExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Executor virtualDocumentProcessingExecutor(
+            @Value("${async.document-processing.max-concurrent:50}") int maxConcurrent,
+            @Value("${async.document-processing.max-pending:1000}") int maxPending) {
+        log.info("✅ Document processing on virtual threads - MaxConcurrent: {}, MaxPending: {}", maxConcurrent, maxPending);
+        return new BoundedVirtualThreadExecutor("DocProcessor-", maxConcurrent, maxPending,
+            new ContextPropagatingTaskDecorator());
+    }
+
+    // Flushes of batched analytics questions (LLM filter + insert)
+    @Bean(name = "analyticsExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public Executor analyticsExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("Analytics-");
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        executor.initialize();
+
+        log.info("✅ Analytics Thread Pool ready - CoreSize: 2, MaxSize: 4");
+        return executor;
+    }
+
+    @Bean(name = "analyticsExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public Executor virtualAnalyticsExecutor(
+            @Value("${async.analytics.max-concurrent:20}") int maxConcurrent,
+            @Value("${async.analytics.max-pending:500}") int maxPending) {
+        log.info("✅ Analytics on virtual threads - MaxConcurrent: {}, MaxPending: {}", maxConcurrent, maxPending);
+        return new BoundedVirtualThreadExecutor("Analytics-", maxConcurrent, maxPending,
+            new ContextPropagatingTaskDecorator());
+    }
+
+    // Background analytics exports; bounded so concurrent exports can't exhaust memory.
+    // Stays a platform pool in both modes: the limit here is heap, not threads
+    @Bean(name = "analyticsExportExecutor")
+    public Executor analyticsExportExecutor(
+            @Value("${analytics.export.max-concurrent:2}") int maxConcurrent,
+            @Value("${analytics.export.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("AnalyticsExport-");
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        executor.initialize();
+
+        log.info("✅ Analytics Export Thread Pool ready - Size: {}, Queue: {}", maxConcurrent, queueCapacity);
+        return executor;
+    }
+
+    // S3 cleanup of deleted documents; its retries sleep between attempts, so it gets
+    // its own small pool instead of holding ingestion threads. Platform threads in both modes
+    @Bean(name = "storageCleanupExecutor")
+    public Executor storageCleanupExecutor(
+            @Value("${storage.cleanup.max-concurrent:2}") int maxConcurrent,
+            @Value("${storage.cleanup.queue-capacity:500}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("StorageCleanup-");
+        executor.setTaskDecorator(new ContextPropagatingTaskDecorator());
+        executor.initialize();
+
+        log.info("✅ Storage Cleanup Thread Pool ready - Size: {}, Queue: {}", maxConcurrent, queueCapacity);
+        return executor;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.backend.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskExecutor;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Starts one virtual thread per task; a semaphore, not a pool size, caps how many run at once.
+ * Tasks over the cap park on the semaphore inside their own virtual thread, so the caller never blocks;
+ * once more than maxPending are waiting, new tasks are rejected like a full pool queue.
+ */
+@Slf4j
+public class BoundedVirtualThreadExecutor implements TaskExecutor {
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxPending;
+    private final Semaphore permits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ThreadFactory threadFactory;
+    private final TaskDecorator taskDecorator;
+
+    public BoundedVirtualThreadExecutor(String name, int maxConcurrent, int maxPending, TaskDecorator taskDecorator) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxPending = maxPending;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.threadFactory = Thread.ofVirtual().name(name, 0).factory();
+        this.taskDecorator = taskDecorator;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (inFlight.incrementAndGet() > maxConcurrent + maxPending) {
+            inFlight.decrementAndGet();
+            throw new RejectedExecutionException(name + " is full (" + maxConcurrent + " running, "
+                + maxPending + " pending)");
+        }
+
+        Runnable decorated = taskDecorator != null ? taskDecorator.decorate(task) : task;
+        try {
+            threadFactory.newThread(() -> run(decorated)).start();
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void run(Runnable task) {
+        try {
+            permits.acquire();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            log.warn("{} task interrupted while waiting for a permit", name);
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package com.example.backend.config;
 
+import com.example.backend.common.tracing.ObservedChatModelListener;
+import com.example.backend.common.tracing.ObservedEmbeddingModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.openai.OpenAiChatModel;
 import dev.langchain4j.model.openai.OpenAiEmbeddingModel;
+import io.micrometer.observation.ObservationRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
 
 @Configuration
 @RequiredArgsConstructor
@@ -17,20 +24,37 @@ import org.springframework.context.annotation.Configuration;
 public class QdrantConfig {
 
     private final QdrantProperties qdrantProperties;
+    private final ObservationRegistry observationRegistry;
 
     @Value("${OPENAI_API_KEY}")
     private String openaiApiKey;
 
+    // Overridable so load tests can point at a local stub instead of api.openai.com
+    @Value("${openai.base-url:https://api.openai.com/v1}")
+    private String openaiBaseUrl;
+
+    /**
+     * RestTemplate for the Qdrant REST API; built from Boot's builder so calls are observed (metrics + spans)
+     */
+    @Bean
+    public RestTemplate qdrantRestTemplate(RestTemplateBuilder builder) {
+        return builder.build();
+    }
+
     /**
-     * create EmbeddingModel of OpenAI
+     * create EmbeddingModel of OpenAI (traced: one span per call)
      */
     @Bean
     public EmbeddingModel embeddingModel() {
-        log.info("Creating OpenAI embedding model with text-embedding-3-large");
-        return OpenAiEmbeddingModel.builder()
+        log.info("Creating OpenAI embedding model with text-embedding-3-large ({} dimensions)",
+                qdrantProperties.getDimension());
+        EmbeddingModel model = OpenAiEmbeddingModel.builder()
+                .baseUrl(openaiBaseUrl)
                 .apiKey(openaiApiKey)
                 .modelName("text-embedding-3-large")
+                .dimensions(qdrantProperties.getDimension())
                 .build();
+        return new ObservedEmbeddingModel(model, "text-embedding-3-large", observationRegistry);
     }
 
     /**
@@ -40,9 +64,11 @@ public class QdrantConfig {
     public OpenAiChatModel openAiChatModel() {
         log.info("🚀 Creating OpenAI Chat model with GPT-4o");
         return OpenAiChatModel.builder()
+                .baseUrl(openaiBaseUrl)
                 .apiKey(openaiApiKey)
                 .modelName("gpt-4o")
                 .temperature(0.7)
+                .listeners(List.of(new ObservedChatModelListener(observationRegistry)))
                 .build();
     }
 }
\ No newline at end of file
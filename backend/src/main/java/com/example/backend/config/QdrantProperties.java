@@ -15,13 +15,41 @@ public class QdrantProperties {
     private boolean useTls = false;
     private String apiKey;
 
+    // text-embedding-3-large is Matryoshka-trained; lower values are sent as the API "dimensions" parameter
     private int dimension = 3072;
     private String distance = "Cosine";
 
+    // Vector quantization: "none", "scalar" (int8) or "binary"
+    private String quantization = "none";
+    private boolean quantizationAlwaysRam = true;
+    private boolean quantizationRescore = true;
+    private double quantizationOversampling = 2.0;
+
     private int defaultMaxResults = 5;
     private double defaultMinScore = 0.5;
 
+    // Hybrid retrieval: BM25-style sparse vector alongside the dense one, fused with RRF
+    private boolean hybridSearch = true;
+    private String sparseVectorName = "bm25";
+
     private int hnswM = 16;
     private int hnswEfConstruct = 200;
     private int hnswEf = 128;
+
+    // Storage mode: "per-user" (collection per user) or "shared" (collectionName partitioned by tenant)
+    private String storageMode = "per-user";
+    private int sharedShardNumber = 1;
+    private int hnswPayloadM = 16;
+
+    // Copy existing per-user collections into the shared collection on startup
+    private boolean migrateToShared = false;
+    private boolean deleteMigratedCollections = false;
+
+    public boolean isQuantizationEnabled() {
+        return "scalar".equalsIgnoreCase(quantization) || "binary".equalsIgnoreCase(quantization);
+    }
+
+    public boolean isSharedMode() {
+        return "shared".equalsIgnoreCase(storageMode);
+    }
 }
\ No newline at end of file
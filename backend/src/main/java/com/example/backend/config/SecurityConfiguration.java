@@ -49,6 +49,9 @@ public class SecurityConfiguration {
                 // ✅ SSE endpoint - requires authentication
                 .requestMatchers("/api/tokens/stream").permitAll() // ✅ לא צריך authenticated
                 
+                // Health + Prometheus scrape, served only on the unpublished management port
+                .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                
                 // all the another need authentication
                 .anyRequest().authenticated()
             )
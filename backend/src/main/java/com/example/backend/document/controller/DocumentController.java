@@ -1,7 +1,9 @@
 package com.example.backend.document.controller;
 
+import com.example.backend.document.dto.BulkUploadResponse;
 import com.example.backend.document.dto.DocumentResponse;
 import com.example.backend.document.dto.DuplicateCheckResponse;
+import com.example.backend.document.service.BulkUploadService;
 import com.example.backend.document.service.DocumentService;
 import com.example.backend.common.infrastructure.storage.S3Service;
 import com.example.backend.user.model.User;
@@ -10,7 +12,9 @@ import com.example.backend.common.exception.UnauthorizedException;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -19,8 +23,13 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,8 +42,18 @@ import java.util.Map;
 public class DocumentController {
 
     private final DocumentService documentService;
+    private final BulkUploadService bulkUploadService;
     private final S3Service s3Service;
 
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int REDIRECT_URL_EXPIRY_SECONDS = 300;
+    private static final int PRESIGNED_URL_EXPIRY_SECONDS = 3600;
+    private static final int MAX_BATCH_URLS = 100;
+
+    // "redirect" (presigned S3 URL) or "stream" (proxy through the backend)
+    @Value("${documents.delivery:redirect}")
+    private String deliveryMode;
+
 
     /**
      * Check if a file with the same name already exists
@@ -94,6 +113,39 @@ public class DocumentController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Bulk upload of many PDFs as multipart "files" parts
+     * Files are streamed to staging, duplicates (same content) are skipped and reported
+     */
+    @PostMapping(value = "/bulk-upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Map<String, Object>> bulkUpload(
+            @RequestParam("files") List<MultipartFile> files) {
+
+        BulkUploadResponse result = bulkUploadService.uploadFiles(files, getCurrentUser());
+        return bulkUploadResponse(result);
+    }
+
+    /**
+     * Bulk upload of a zip archive sent as the request body, read entry by entry
+     * Non-PDF entries are skipped; folders inside the archive are ignored
+     */
+    @PostMapping(value = "/bulk-upload", consumes = {"application/zip", "application/x-zip-compressed"})
+    public ResponseEntity<Map<String, Object>> bulkUploadZip(InputStream body) {
+
+        BulkUploadResponse result = bulkUploadService.uploadZip(body, getCurrentUser());
+        return bulkUploadResponse(result);
+    }
+
+    private ResponseEntity<Map<String, Object>> bulkUploadResponse(BulkUploadResponse result) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", String.format("%d מסמכים הועלו ומעובדים ברקע", result.getDocuments().size()));
+        response.put("documents", result.getDocuments());
+        response.put("skipped", result.getSkipped());
+
+        return ResponseEntity.ok(response);
+    }
+
    // Get all documents for current user
     @GetMapping("/my-documents")
     public ResponseEntity<Map<String, Object>> getMyDocuments() {
@@ -126,66 +178,173 @@ public class DocumentController {
 
     // Download document as attachment
     @GetMapping("/{id}/download")
-    public ResponseEntity<?> downloadDocument(@PathVariable Long id) {
+    public ResponseEntity<?> downloadDocument(
+            @PathVariable Long id,
+            @RequestParam(value = "proxy", defaultValue = "false") boolean proxy,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
         User currentUser = getCurrentUser();
 
         DocumentResponse document = documentService.getDocument(id, currentUser);
 
-        InputStream fileStream = s3Service.downloadFile(document.getFilePath());
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_PDF);
-        headers.setContentDispositionFormData(
-            "attachment",
-            document.getOriginalFileName()
-        );
-
-        return ResponseEntity.ok()
-            .headers(headers)
-            .body(new InputStreamResource(fileStream));
+        return serveDocument(document, "attachment", proxy, range, ifNoneMatch);
     }
 
     // View document inline in browser
     @GetMapping("/{id}/view")
-    public ResponseEntity<?> viewDocument(@PathVariable Long id) {
+    public ResponseEntity<?> viewDocument(
+            @PathVariable Long id,
+            @RequestParam(value = "proxy", defaultValue = "false") boolean proxy,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
         User currentUser = getCurrentUser();
 
         DocumentResponse document = documentService.getDocument(id, currentUser);
 
-        InputStream fileStream = s3Service.downloadFile(document.getFilePath());
+        return serveDocument(document, "inline", proxy, range, ifNoneMatch);
+    }
+
+    /**
+     * Redirect to a short-lived presigned URL (bytes never pass through the backend),
+     * or with proxy=true / documents.delivery=stream stream through a fixed-size buffer,
+     * passing Range and If-None-Match on to S3.
+     */
+    private ResponseEntity<?> serveDocument(
+            DocumentResponse document,
+            String dispositionType,
+            boolean proxy,
+            String range,
+            String ifNoneMatch) {
+
+        ContentDisposition disposition = ContentDisposition.builder(dispositionType)
+            .filename(document.getOriginalFileName(), StandardCharsets.UTF_8)
+            .build();
+
+        if (!proxy && "redirect".equalsIgnoreCase(deliveryMode)) {
+            String presignedUrl = s3Service.getPresignedUrl(
+                document.getFilePath(),
+                REDIRECT_URL_EXPIRY_SECONDS,
+                disposition.toString(),
+                MediaType.APPLICATION_PDF_VALUE
+            );
+
+            return ResponseEntity.status(HttpStatus.FOUND)
+                .location(URI.create(presignedUrl))
+                .cacheControl(CacheControl.noStore())
+                .build();
+        }
+
+        S3Service.ObjectStream object = s3Service.openObject(document.getFilePath(), range, ifNoneMatch);
 
         HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setCacheControl(CacheControl.maxAge(Duration.ofHours(1)).cachePrivate().mustRevalidate());
+        if (object.getETag() != null) {
+            headers.setETag(object.getETag());
+        }
+
+        if (object.getStatus() == HttpStatus.NOT_MODIFIED.value()
+                || object.getStatus() == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+            return ResponseEntity.status(object.getStatus()).headers(headers).build();
+        }
+
         headers.setContentType(MediaType.APPLICATION_PDF);
-        headers.setContentDispositionFormData(
-            "inline",
-            document.getOriginalFileName()
-        );
+        headers.setContentDisposition(disposition);
+        headers.setContentLength(object.getContentLength());
+        if (object.getContentRange() != null) {
+            headers.set(HttpHeaders.CONTENT_RANGE, object.getContentRange());
+        }
+        if (object.getLastModified() != null) {
+            headers.setLastModified(object.getLastModified());
+        }
 
-        return ResponseEntity.ok()
+        StreamingResponseBody body = outputStream -> {
+            try (InputStream in = object.getBody()) {
+                byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    outputStream.write(buffer, 0, read);
+                }
+            }
+        };
+
+        return ResponseEntity.status(object.getStatus())
             .headers(headers)
-            .body(new InputStreamResource(fileStream));
+            .body(body);
     }
 
-    // Get presigned S3 URL
+    // Get presigned S3 URL (reused from cache while it has enough validity left)
     @GetMapping("/{id}/download-url")
-    public ResponseEntity<Map<String, Object>> getDownloadUrl(@PathVariable Long id) {
+    public ResponseEntity<Map<String, Object>> getDownloadUrl(
+            @PathVariable Long id,
+            @RequestParam(value = "attachment", defaultValue = "false") boolean attachment) {
         User currentUser = getCurrentUser();
 
         DocumentResponse document = documentService.getDocument(id, currentUser);
 
-        String presignedUrl = s3Service.getPresignedUrl(
-            document.getFilePath(),
-            3600
-        );
+        S3Service.PresignedUrl presignedUrl = presignDocument(document, attachment);
 
         Map<String, Object> response = new HashMap<>();
         response.put("success", true);
-        response.put("url", presignedUrl);
-        response.put("expiresIn", 3600);
+        response.put("url", presignedUrl.getUrl());
+        response.put("expiresIn", presignedUrl.getExpiresInSeconds());
 
         return ResponseEntity.ok(response);
     }
 
+    // Presigned URLs for a page of documents in one call
+    @PostMapping("/download-urls")
+    public ResponseEntity<Map<String, Object>> getDownloadUrls(
+            @RequestBody Map<String, List<Long>> requestBody,
+            @RequestParam(value = "attachment", defaultValue = "false") boolean attachment) {
+
+        User currentUser = getCurrentUser();
+        List<Long> documentIds = requestBody.get("documentIds");
+
+        if (documentIds == null || documentIds.isEmpty()) {
+            throw new ValidationException("documentIds", "רשימת מסמכים ריקה");
+        }
+        if (documentIds.size() > MAX_BATCH_URLS) {
+            throw new ValidationException("documentIds", "ניתן לבקש עד " + MAX_BATCH_URLS + " מסמכים בבקשה אחת");
+        }
+
+        List<Map<String, Object>> urls = new ArrayList<>();
+        for (DocumentResponse document : documentService.getDocuments(documentIds, currentUser)) {
+            S3Service.PresignedUrl presignedUrl = presignDocument(document, attachment);
+
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("documentId", document.getId());
+            entry.put("url", presignedUrl.getUrl());
+            entry.put("expiresIn", presignedUrl.getExpiresInSeconds());
+            urls.add(entry);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", urls);
+
+        return ResponseEntity.ok(response);
+    }
+
+    // attachment=true makes S3 answer with Content-Disposition: attachment
+    private S3Service.PresignedUrl presignDocument(DocumentResponse document, boolean attachment) {
+        if (!attachment) {
+            return s3Service.presign(document.getFilePath(), PRESIGNED_URL_EXPIRY_SECONDS, null, null);
+        }
+
+        return s3Service.presign(
+            document.getFilePath(),
+            PRESIGNED_URL_EXPIRY_SECONDS,
+            ContentDisposition.attachment()
+                .filename(document.getOriginalFileName(), StandardCharsets.UTF_8)
+                .build()
+                .toString(),
+            MediaType.APPLICATION_PDF_VALUE
+        );
+    }
+
     // Soft delete single document
     @DeleteMapping("/{id}")
     public ResponseEntity<Map<String, Object>> deleteDocument(@PathVariable Long id) {
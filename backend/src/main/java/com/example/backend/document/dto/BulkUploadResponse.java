@@ -0,0 +1,47 @@
+package com.example.backend.document.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response DTO for a bulk upload
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkUploadResponse {
+
+    /**
+     * Documents created and queued for processing
+     */
+    private List<DocumentResponse> documents;
+
+    /**
+     * Files that were not uploaded, with the reason
+     */
+    private List<SkippedFile> skipped;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SkippedFile {
+
+        private String fileName;
+
+        /**
+         * duplicate, unsupported_type or too_large
+         */
+        private String reason;
+
+        /**
+         * Existing document with the same content (for duplicates)
+         */
+        private Long existingDocumentId;
+    }
+}
@@ -2,6 +2,8 @@ package com.example.backend.document.event;
 
 import lombok.Getter;
 
+import java.nio.file.Path;
+
 @Getter
 public class DocumentCreatedEvent {
     private final Long documentId;
@@ -12,6 +14,8 @@ public class DocumentCreatedEvent {
     private final String filePath;
     private final Long userId;
     private final String collectionName;
+    // Set instead of fileBytes for bulk uploads; the file is read when processing starts
+    private final Path stagedFile;
 
     public DocumentCreatedEvent(
             Long documentId,
@@ -30,5 +34,25 @@ public class DocumentCreatedEvent {
         this.filePath = filePath;
         this.userId = userId;
         this.collectionName = collectionName;
+        this.stagedFile = null;
+    }
+
+    public DocumentCreatedEvent(
+            Long documentId,
+            Path stagedFile,
+            String originalFilename,
+            long fileSize,
+            String filePath,
+            Long userId,
+            String collectionName) {
+        this.documentId = documentId;
+        this.fileBytes = null;
+        this.originalFilename = originalFilename;
+        this.contentType = "application/pdf";
+        this.fileSize = fileSize;
+        this.filePath = filePath;
+        this.userId = userId;
+        this.collectionName = collectionName;
+        this.stagedFile = stagedFile;
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.example.backend.document.event;
 
-import com.example.backend.document.service.DocumentProcessingService;
+import com.example.backend.document.service.IngestionScheduler;
+import com.example.backend.document.service.StorageCleanupService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
@@ -14,29 +15,31 @@ import org.springframework.transaction.event.TransactionalEventListener;
 @Slf4j
 public class DocumentEventListener {
 
-    private final DocumentProcessingService documentProcessingService;
+    private final IngestionScheduler ingestionScheduler;
+    private final StorageCleanupService storageCleanupService;
 
     /**
      * ✅ זה ירוץ אחרי שה-transaction מסתיים!
+     * Only queues the document; IngestionScheduler dispatches it fairly between tenants
      */
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
-    @Async("documentProcessingExecutor")
     public void handleDocumentCreated(DocumentCreatedEvent event) {
         log.info("====================================================");
         log.info("📢 DocumentCreatedEvent received for ID: {}", event.getDocumentId());
-        log.info("Transaction committed - starting async processing");
+        log.info("Transaction committed - queueing for processing");
         log.info("====================================================");
         
         // עכשיו המסמך כבר committed ב-DB!
-        documentProcessingService.processDocumentAsync(
-            event.getDocumentId(),
-            event.getFileBytes(),
-            event.getOriginalFilename(),
-            event.getContentType(),
-            event.getFileSize(),
-            event.getFilePath(),
-            event.getUserId(),
-            event.getCollectionName()
-        );
+        ingestionScheduler.submit(event);
     }
-}
\ No newline at end of file
+
+    // S3 cleanup of deleted documents, only once the soft delete is committed
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Async("storageCleanupExecutor")
+    public void handleDocumentFilesDeleted(DocumentFilesDeletedEvent event) {
+        log.info("📢 DocumentFilesDeletedEvent received: {} files of user {}",
+            event.getFilePaths().size(), event.getUserId());
+
+        storageCleanupService.deleteFiles(event.getUserId(), event.getFilePaths());
+    }
+}
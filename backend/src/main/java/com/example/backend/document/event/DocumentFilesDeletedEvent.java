@@ -0,0 +1,16 @@
+package com.example.backend.document.event;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class DocumentFilesDeletedEvent {
+    private final Long userId;
+    private final List<String> filePaths;
+
+    public DocumentFilesDeletedEvent(Long userId, List<String> filePaths) {
+        this.userId = userId;
+        this.filePaths = filePaths;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.backend.document.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * S3 object of a deleted document that could not be removed yet.
+ * StorageCleanupService retries these until the delete succeeds.
+ */
+@Entity
+@Table(
+    name = "pending_storage_deletions",
+    indexes = {
+        @Index(name = "idx_pending_storage_deletions_attempt", columnList = "last_attempt_at")
+    }
+)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PendingStorageDeletion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "file_path", nullable = false, unique = true, length = 500)
+    private String filePath;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "attempts", nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "last_attempt_at", nullable = false)
+    private LocalDateTime lastAttemptAt;
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        if (lastAttemptAt == null) {
+            lastAttemptAt = createdAt;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -103,6 +104,18 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
         @Param("contentHash") String contentHash
     );
 
+    /**
+     * בדיקת כפילויות לכמה קבצים בשאילתה אחת (העלאה מרובה)
+     */
+    @Query("SELECT d FROM Document d " +
+           "WHERE d.user = :user " +
+           "AND d.contentHash IN :contentHashes " +
+           "AND d.active = true")
+    List<Document> findByUserAndContentHashIn(
+        @Param("user") User user,
+        @Param("contentHashes") Collection<String> contentHashes
+    );
+
     /**
      * בדיקה אם קיים מסמך עם אותו שם קובץ
      */
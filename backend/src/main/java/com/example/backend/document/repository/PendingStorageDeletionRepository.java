@@ -0,0 +1,19 @@
+package com.example.backend.document.repository;
+
+import com.example.backend.document.model.PendingStorageDeletion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PendingStorageDeletionRepository extends JpaRepository<PendingStorageDeletion, Long> {
+
+    List<PendingStorageDeletion> findByFilePathIn(Collection<String> filePaths);
+
+    // Oldest attempts first, so a few stuck keys never starve the rest
+    List<PendingStorageDeletion> findByLastAttemptAtBeforeOrderByLastAttemptAtAsc(LocalDateTime time, Pageable pageable);
+}
@@ -0,0 +1,201 @@
+package com.example.backend.document.service;
+
+import com.example.backend.common.exception.FileProcessingException;
+import com.example.backend.common.exception.ValidationException;
+import com.example.backend.document.dto.BulkUploadResponse;
+import com.example.backend.document.dto.BulkUploadResponse.SkippedFile;
+import com.example.backend.document.service.DocumentStagingService.StagedFile;
+import com.example.backend.user.model.User;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Bulk upload of many PDFs, from multipart parts or from a zip archive streamed entry by entry.
+ * Every file goes to disk staging (hashed on the way), never into the heap; the documents are then
+ * created together by DocumentService in one transaction. Not transactional itself, so no DB
+ * connection is held while the request body is read.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkUploadService {
+
+    private final DocumentService documentService;
+    private final DocumentStagingService stagingService;
+    private final IngestionScheduler ingestionScheduler;
+
+    @Value("${documents.bulk.max-files:100}")
+    private int maxFiles;
+
+    @Value("${documents.bulk.max-file-bytes:52428800}")
+    private long maxFileBytes;
+
+    // Uncompressed total of a zip archive, skipped entries included
+    @Value("${documents.bulk.max-total-bytes:1073741824}")
+    private long maxTotalBytes;
+
+    private static final int DRAIN_BUFFER_SIZE = 64 * 1024;
+
+    public BulkUploadResponse uploadFiles(List<MultipartFile> files, User user) {
+        if (files.size() > maxFiles) {
+            throw new ValidationException(String.format("ניתן להעלות עד %d קבצים בבת אחת", maxFiles));
+        }
+        ingestionScheduler.checkCapacity(user.getId(), 1, 0);
+
+        List<StagedFile> staged = new ArrayList<>();
+        List<SkippedFile> skipped = new ArrayList<>();
+        try {
+            for (MultipartFile file : files) {
+                String fileName = file.getOriginalFilename();
+                if (!isPdf(fileName)) {
+                    skipped.add(skip(fileName, "unsupported_type"));
+                    continue;
+                }
+
+                // Parts are already spooled to disk by the container; stream rather than getBytes()
+                try (InputStream in = file.getInputStream()) {
+                    staged.add(stagingService.stage(fileName, in, maxFileBytes));
+                } catch (FileProcessingException e) {
+                    skipped.add(skip(fileName, "too_large"));
+                }
+            }
+
+            return documentService.createDocuments(staged, skipped, user);
+
+        } catch (IOException e) {
+            stagingService.deleteAll(staged);
+            log.error("❌ Bulk upload failed while staging files", e);
+            throw new FileProcessingException("נכשלה העלאת הקבצים", e);
+        } catch (RuntimeException e) {
+            stagingService.deleteAll(staged);
+            throw e;
+        }
+    }
+
+    /**
+     * Every entry counts toward max-total-bytes, and every file entry toward max-files, whether it is
+     * staged or skipped: skipped entries are still decompressed to reach the next one. Entries are
+     * drained here rather than by getNextEntry, so reading stops as soon as the total is exceeded.
+     */
+    public BulkUploadResponse uploadZip(InputStream body, User user) {
+        ingestionScheduler.checkCapacity(user.getId(), 1, 0);
+
+        List<StagedFile> staged = new ArrayList<>();
+        List<SkippedFile> skipped = new ArrayList<>();
+        long totalBytes = 0;
+        int files = 0;
+
+        try (ZipInputStream zip = new ZipInputStream(body)) {
+            ZipEntry entry;
+            while ((entry = nextEntry(zip)) != null) {
+                String fileName = baseName(entry.getName());
+                if (entry.isDirectory() || entry.getName().startsWith("__MACOSX/") || fileName.startsWith(".")) {
+                    totalBytes += drain(zip, maxTotalBytes - totalBytes);
+                    continue;
+                }
+                if (++files > maxFiles) {
+                    throw new ValidationException(String.format("ניתן להעלות עד %d קבצים בבת אחת", maxFiles));
+                }
+                if (!isPdf(fileName)) {
+                    skipped.add(skip(fileName, "unsupported_type"));
+                    totalBytes += drain(zip, maxTotalBytes - totalBytes);
+                    continue;
+                }
+                // Size declared in the entry header (-1 when unknown): no need to stage what is already too large
+                if (entry.getSize() > maxFileBytes) {
+                    skipped.add(skip(fileName, "too_large"));
+                    totalBytes += drain(zip, maxTotalBytes - totalBytes);
+                    continue;
+                }
+
+                long remaining = maxTotalBytes - totalBytes;
+                long limit = Math.min(maxFileBytes, remaining);
+                try {
+                    StagedFile file = stagingService.stage(fileName, zip, limit);
+                    staged.add(file);
+                    totalBytes += file.getSize();
+                } catch (FileProcessingException e) {
+                    if (limit < maxFileBytes) {
+                        throw archiveTooLarge();
+                    }
+                    skipped.add(skip(fileName, "too_large"));
+                    // At least this much was read before staging gave up
+                    totalBytes += maxFileBytes;
+                    totalBytes += drain(zip, maxTotalBytes - totalBytes);
+                }
+            }
+
+            log.info("📦 Zip streamed to staging: {} files, {} bytes", staged.size(), totalBytes);
+            return documentService.createDocuments(staged, skipped, user);
+
+        } catch (ZipException e) {
+            stagingService.deleteAll(staged);
+            throw new ValidationException("קובץ ה-zip אינו תקין");
+        } catch (IOException e) {
+            stagingService.deleteAll(staged);
+            log.error("❌ Bulk upload failed while reading the zip archive", e);
+            throw new FileProcessingException("נכשלה העלאת הארכיון", e);
+        } catch (RuntimeException e) {
+            stagingService.deleteAll(staged);
+            throw e;
+        }
+    }
+
+    // Read the rest of the current entry, failing once more than budget bytes were decompressed
+    private long drain(ZipInputStream zip, long budget) throws IOException {
+        byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+        long read = 0;
+        int n;
+        while ((n = zip.read(buffer)) != -1) {
+            read += n;
+            if (read > budget) {
+                throw archiveTooLarge();
+            }
+        }
+        return read;
+    }
+
+    private ValidationException archiveTooLarge() {
+        return new ValidationException(String.format("הארכיון גדול מדי. גודל מקסימלי: %d MB",
+            maxTotalBytes / (1024 * 1024)));
+    }
+
+    // Entry names that are not valid UTF-8 surface as IllegalArgumentException
+    private ZipEntry nextEntry(ZipInputStream zip) throws IOException {
+        try {
+            return zip.getNextEntry();
+        } catch (IllegalArgumentException e) {
+            throw new ZipException(e.getMessage());
+        }
+    }
+
+    private boolean isPdf(String fileName) {
+        return fileName != null && fileName.toLowerCase(Locale.ROOT).endsWith(".pdf");
+    }
+
+    // Folders inside the archive are dropped; only the file name is kept
+    private String baseName(String entryName) {
+        String name = entryName.replace('\\', '/');
+        return name.substring(name.lastIndexOf('/') + 1);
+    }
+
+    private SkippedFile skip(String fileName, String reason) {
+        return SkippedFile.builder()
+            .fileName(fileName)
+            .reason(reason)
+            .build();
+    }
+}
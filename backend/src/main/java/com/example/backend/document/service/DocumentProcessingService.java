@@ -9,22 +9,23 @@ import com.example.backend.common.infrastructure.document.DocumentChunkingServic
 import com.example.backend.user.service.TokenService;
 import com.example.backend.user.repository.UserRepository;
 import com.example.backend.common.exception.*;
+import com.example.backend.common.metrics.RagMetrics;
 
 import dev.langchain4j.data.document.DocumentParser;
 import dev.langchain4j.data.document.parser.apache.pdfbox.ApachePdfBoxDocumentParser;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.model.openai.OpenAiTokenizer;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayInputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 @RequiredArgsConstructor
@@ -38,10 +39,10 @@ public class DocumentProcessingService {
     private final DocumentChunkingService chunkingService;
     private final TokenService tokenService;
     private final UserRepository userRepository;
+    private final RagMetrics metrics;
 
-    // Async: upload, extract, embed, store
-    @Async("documentProcessingExecutor") 
-    public void processDocumentAsync(
+    // Upload, extract, embed, store; runs on documentProcessingExecutor, dispatched by IngestionScheduler
+    public void processDocument(
             Long documentId,
             byte[] fileBytes,
             String originalFilename, 
@@ -51,18 +52,14 @@ public class DocumentProcessingService {
             Long userId,
             String collectionName) {
         
-            // ✅ הוסף את זה בתחילה!
-            System.out.println("====================================================");
-            System.out.println("🚨 processDocumentAsync CALLED!");
-            System.out.println("Thread: " + Thread.currentThread().getName());
-            System.out.println("Document ID: " + documentId);
-            System.out.println("====================================================");
-            
             log.info("====================================================");
             log.info("[Thread: {}] Starting async processing for document ID: {}", 
                 Thread.currentThread().getName(), documentId);
             log.info("====================================================");
 
+        CompletableFuture<Void> upload = null;
+        RagMetrics.Stage total = metrics.stage(RagMetrics.INGEST, "total");
+
         try {
             // ==================== load document from DB ====================
             Document document = documentRepository.findById(documentId)
@@ -71,23 +68,26 @@ public class DocumentProcessingService {
             log.info("[{}] Stage 1: Document loaded from DB", documentId);
 
             // ===================== Upload to S3 ======================
+            // Runs in the background while the PDF is parsed and embedded
             log.info("[{}] Stage 2: Uploading to S3", documentId);
             document.updateStage(ProcessingStage.UPLOADING, 10);
             documentRepository.save(document);
             log.info("[{}] Progress updated: 10%", documentId);
             
-            Thread.sleep(500); // Small delay to see the update 
-            
-            s3Service.uploadFile(
-                new ByteArrayInputStream(fileBytes),
-                filePath,
-                contentType,
-                fileSize
-            );
+            RagMetrics.Stage uploadStage = metrics.asyncStage(RagMetrics.INGEST, "upload");
+            upload = s3Service.uploadFileAsync(fileBytes, filePath, contentType);
+            upload.whenComplete((result, error) -> {
+                if (error == null) {
+                    uploadStage.success();
+                } else {
+                    uploadStage.error(error);
+                }
+                uploadStage.close();
+            });
             
             document.updateStage(ProcessingStage.UPLOADING, 20);
             documentRepository.save(document);
-            log.info("✅ [{}] File uploaded to S3 - Progress: 20%", documentId);
+            log.info("✅ [{}] S3 upload started - Progress: 20%", documentId);
 
             Thread.sleep(500); // Small delay to see the update
 
@@ -100,17 +100,22 @@ public class DocumentProcessingService {
             
             Thread.sleep(500); // Small delay to see the update
             
-            DocumentParser parser = new ApachePdfBoxDocumentParser();
-            dev.langchain4j.data.document.Document langchainDoc =
-                parser.parse(new ByteArrayInputStream(fileBytes));
-                
-            String text = langchainDoc.text();
+            String text;
+            int tokenCount;
+            try (RagMetrics.Stage stage = metrics.stage(RagMetrics.INGEST, "extract")) {
+                DocumentParser parser = new ApachePdfBoxDocumentParser();
+                dev.langchain4j.data.document.Document langchainDoc =
+                    parser.parse(new ByteArrayInputStream(fileBytes));
+
+                text = langchainDoc.text();
+
+                // ⭐ חדש - חישוב טוקנים
+                OpenAiTokenizer tokenizer = new OpenAiTokenizer("gpt-4o");
+                tokenCount = tokenizer.estimateTokenCountInText(text);
+                stage.success();
+            }
             int characterCount = text.length();
             document.setCharacterCount(characterCount);
-
-            // ⭐ חדש - חישוב טוקנים
-            OpenAiTokenizer tokenizer = new OpenAiTokenizer("gpt-4o");
-            int tokenCount = tokenizer.estimateTokenCountInText(text);
             document.setTokenCount(tokenCount);
             log.info("📊 [{}] Token count estimated: {} tokens", documentId, tokenCount);
 
@@ -130,11 +135,15 @@ public class DocumentProcessingService {
             
             Thread.sleep(500);
             
-            List<TextSegment> segments = chunkingService.chunkDocument(
-                text, 
-                originalFilename,
-                document.getId()
-            );
+            List<TextSegment> segments;
+            try (RagMetrics.Stage stage = metrics.stage(RagMetrics.INGEST, "chunk")) {
+                segments = chunkingService.chunkDocument(
+                    text,
+                    originalFilename,
+                    document.getId()
+                );
+                stage.success();
+            }
             
             int chunkCount = segments.size();
             document.setChunkCount(chunkCount);
@@ -152,15 +161,6 @@ public class DocumentProcessingService {
             documentRepository.save(document);
             log.info("✅ [{}] Progress updated: 65%", documentId);
             
-            EmbeddingStore<TextSegment> embeddingStore = 
-                qdrantVectorService.getEmbeddingStoreForCollection(collectionName);
-
-            if (embeddingStore == null) {
-                throw ExternalServiceException.vectorDbError(
-                    "לא נמצא אחסון וקטורי עבור הקולקשן: " + collectionName
-                );
-            }
-
             // Processing embeddings with progress
             int processed = 0;
             int baseProgress = 65;
@@ -168,16 +168,24 @@ public class DocumentProcessingService {
             
             for (TextSegment segment : segments) {
                 // create embedding
-                Embedding embedding = embeddingModel.embed(segment).content();
+                Embedding embedding;
+                try (RagMetrics.Stage stage = metrics.embeddingStage(RagMetrics.INGEST, "embedding")) {
+                    embedding = embeddingModel.embed(segment).content();
+                    stage.success();
+                }
                 
                 // add metadata
                 segment.metadata().put("document_id", document.getId().toString());
                 segment.metadata().put("document_name", originalFilename);
                 segment.metadata().put("chunk_index", String.valueOf(processed));
                 segment.metadata().put("user_id", userId.toString());
+                segment.metadata().put(QdrantVectorService.TENANT_KEY, collectionName);
                 
-                // Store in Qdrant
-                embeddingStore.add(embedding, segment);
+                // Store in Qdrant (dense + sparse vector)
+                try (RagMetrics.Stage stage = metrics.stage(RagMetrics.INGEST, "upsert")) {
+                    qdrantVectorService.addEmbedding(collectionName, embedding, segment);
+                    stage.success();
+                }
                 
                 processed++;
                 
@@ -198,8 +206,12 @@ public class DocumentProcessingService {
 
             // ==================== Mark as completed ====================
             log.info("📍 [{}] Stage 6: Finalizing", documentId);
+            awaitUpload(upload);
+
             document.markAsCompletedWithTokens(characterCount, chunkCount, tokenCount);
             documentRepository.save(document);
+            metrics.embeddingTokens(RagMetrics.INGEST, userId, tokenCount);
+            total.success();
 
             // ==================== Consume tokens from user ====================
             try {
@@ -222,24 +234,48 @@ public class DocumentProcessingService {
 
         } catch (Exception e) {
             log.error("====================================================");
-            log.error("❌ [{}] EXCEPTION in processDocumentAsync!", documentId, e);
+            log.error("❌ [{}] EXCEPTION in processDocument!", documentId, e);
+            total.error(e);
             log.error("====================================================");
             
-            try {
-                Document document = documentRepository.findById(documentId).orElse(null);
-                if (document != null) {
-                    document.markAsFailed(e.getMessage());
-                    documentRepository.save(document);
+            markAsFailed(documentId, e.getMessage());
+            
+            // Delete only after a still-running upload has settled
+            CompletableFuture<Void> pending = upload != null ? upload : CompletableFuture.completedFuture(null);
+            pending.whenComplete((result, uploadError) -> {
+                try {
+                    s3Service.deleteFile(filePath);
+                } catch (Exception cleanupError) {
+                    log.warn("Failed to cleanup file", cleanupError);
                 }
-            } catch (Exception saveError) {
-                log.error("Failed to save error state", saveError);
+            });
+        } finally {
+            total.close();
+        }
+    }
+
+    // Record a failure; never throws, callers are already handling an error
+    public void markAsFailed(Long documentId, String message) {
+        try {
+            Document document = documentRepository.findById(documentId).orElse(null);
+            if (document != null) {
+                document.markAsFailed(message);
+                documentRepository.save(document);
             }
-            
-            try {
-                s3Service.deleteFile(filePath);
-            } catch (Exception cleanupError) {
-                log.warn("Failed to cleanup file", cleanupError);
+        } catch (Exception saveError) {
+            log.error("Failed to save error state", saveError);
+        }
+    }
+
+    // Wait for the background upload, surfacing its original exception
+    private void awaitUpload(CompletableFuture<Void> upload) {
+        try {
+            upload.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
             }
+            throw e;
         }
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,12 @@
 package com.example.backend.document.service;
 
+import com.example.backend.document.dto.BulkUploadResponse;
+import com.example.backend.document.dto.BulkUploadResponse.SkippedFile;
 import com.example.backend.document.dto.DocumentResponse;
 import com.example.backend.document.mapper.DocumentMapper;
 import com.example.backend.document.dto.DuplicateCheckResponse;
 import com.example.backend.document.event.DocumentCreatedEvent;
+import com.example.backend.document.event.DocumentFilesDeletedEvent;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Async;
 import java.util.Optional;
@@ -11,10 +14,10 @@ import com.example.backend.document.model.Document;
 import com.example.backend.document.model.Document.ProcessingStatus;
 import com.example.backend.document.model.Document.ProcessingStage;
 import com.example.backend.document.repository.DocumentRepository;
-import com.example.backend.common.infrastructure.storage.S3Service;
 import com.example.backend.common.infrastructure.vectordb.QdrantVectorService;
 import com.example.backend.user.model.User;
 import com.example.backend.common.exception.*;
+import com.example.backend.document.service.DocumentStagingService.StagedFile;
 import org.springframework.transaction.annotation.Propagation;
 
 import lombok.RequiredArgsConstructor;
@@ -25,7 +28,12 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 @Service
@@ -36,9 +44,10 @@ public class DocumentService {
 
     private final DocumentRepository documentRepository;
     private final DocumentMapper documentMapper;
-    private final S3Service s3Service;
     private final QdrantVectorService qdrantVectorService;
     private final DocumentProcessingService documentProcessingService;
+    private final IngestionScheduler ingestionScheduler;
+    private final DocumentStagingService stagingService;
     private final ApplicationEventPublisher eventPublisher; // ✅ NEW: For event publishing
     
 
@@ -198,6 +207,9 @@ public class DocumentService {
         log.info("File: {}", file.getOriginalFilename());
         log.info("User ID: {}", user.getId());
         log.info("====================================================");
+
+        // Refuse before saving, so a full queue leaves no pending document behind
+        ingestionScheduler.checkCapacity(user.getId(), 1, file.getSize());
         
         try {
             byte[] fileBytes = file.getBytes();
@@ -213,7 +225,7 @@ public class DocumentService {
             
             // create Document
             log.info("Creating document entity...");
-            Document document = createDocumentEntity(originalFilename, fileSize, user, filePath, fileBytes);
+            Document document = createDocumentEntity(originalFilename, fileSize, user, filePath, calculateHash(fileBytes));
             
             Integer maxOrder = documentRepository.getMaxDisplayOrderByUser(user);
             document.setDisplayOrder(maxOrder != null ? maxOrder + 1 : 0);
@@ -261,13 +273,93 @@ public class DocumentService {
         }
     }
 
+    /**
+     * Create all documents of a bulk upload in one transaction.
+     * Files whose content matches an active document, or an earlier file of the batch, are skipped
+     * and their staged copies deleted; the rest are queued for processing once the transaction commits.
+     */
+    public BulkUploadResponse createDocuments(List<StagedFile> stagedFiles, List<SkippedFile> skipped, User user) {
+        log.info("📦 Bulk upload of {} files for user {}", stagedFiles.size(), user.getId());
+
+        // Duplicate check for the whole batch in one query
+        Set<String> hashes = new HashSet<>();
+        stagedFiles.forEach(staged -> hashes.add(staged.getContentHash()));
+        Map<String, Long> existing = new HashMap<>();
+        if (!hashes.isEmpty()) {
+            for (Document document : documentRepository.findByUserAndContentHashIn(user, hashes)) {
+                existing.putIfAbsent(document.getContentHash(), document.getId());
+            }
+        }
+
+        List<StagedFile> accepted = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (StagedFile staged : stagedFiles) {
+            Long existingId = existing.get(staged.getContentHash());
+            if (existingId != null || !seen.add(staged.getContentHash())) {
+                skipped.add(SkippedFile.builder()
+                    .fileName(staged.getFileName())
+                    .reason("duplicate")
+                    .existingDocumentId(existingId)
+                    .build());
+                stagingService.delete(staged.getPath());
+                continue;
+            }
+            accepted.add(staged);
+        }
+
+        ingestionScheduler.checkCapacity(user.getId(), accepted.size(), 0);
+
+        Integer maxOrder = documentRepository.getMaxDisplayOrderByUser(user);
+        int displayOrder = maxOrder != null ? maxOrder + 1 : 0;
+        long batchTimestamp = System.currentTimeMillis();
+
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            StagedFile staged = accepted.get(i);
+            // One timestamp per file, so same-named files of the batch get distinct S3 keys
+            String filePath = generateFilePath(user, staged.getFileName(), batchTimestamp + i);
+
+            Document document = createDocumentEntity(
+                staged.getFileName(), staged.getSize(), user, filePath, staged.getContentHash());
+            document.setDisplayOrder(displayOrder++);
+            document.setProcessingProgress(5);
+            documents.add(document);
+        }
+
+        documents = documentRepository.saveAll(documents);
+
+        for (int i = 0; i < documents.size(); i++) {
+            Document document = documents.get(i);
+            eventPublisher.publishEvent(new DocumentCreatedEvent(
+                document.getId(),
+                accepted.get(i).getPath(),
+                document.getOriginalFileName(),
+                document.getFileSize(),
+                document.getFilePath(),
+                user.getId(),
+                user.getCollectionName()
+            ));
+        }
+
+        log.info("✅ Bulk upload saved {} documents, skipped {}", documents.size(), skipped.size());
+
+        return BulkUploadResponse.builder()
+            .documents(documentMapper.toResponseList(documents))
+            .skipped(skipped)
+            .build();
+    }
+
     /**
      * Create S3 path for document
      */
     private String generateFilePath(User user, String originalFilename) {
+        return generateFilePath(user, originalFilename, System.currentTimeMillis());
+    }
+
+    private String generateFilePath(User user, String originalFilename, long timestamp) {
         return String.format("users/%d/documents/%s_%s",
             user.getId(),
-            System.currentTimeMillis(),
+            timestamp,
             originalFilename
         );
     }
@@ -280,7 +372,7 @@ public class DocumentService {
             long fileSize, 
             User user, 
             String filePath, 
-            byte[] fileBytes) {
+            String contentHash) {
         
         Document document = new Document();
         document.setOriginalFileName(originalFilename);
@@ -292,21 +384,15 @@ public class DocumentService {
         document.setProcessingStage(ProcessingStage.UPLOADING);
         document.setUser(user);
         document.setActive(true);
-
-        try {
-            String hash = calculateHash(fileBytes);
-            document.setContentHash(hash);
-        } catch (Exception e) {
-            log.warn("Failed to calculate hash", e);
-        }
+        document.setContentHash(contentHash);
 
         return document;
     }
 
     /**
-     * Calculate SHA-256 hash of file
+     * Calculate SHA-256 hash of file (package-private for the JMH benchmarks)
      */
-    private String calculateHash(byte[] data) {
+    static String calculateHash(byte[] data) {
         try {
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
             byte[] hash = digest.digest(data);
@@ -348,6 +434,25 @@ public class DocumentService {
         return documentMapper.toResponse(document);
     }
 
+    /**
+     * Get several active documents of the user (ids of other users' documents are rejected)
+     */
+    @Transactional(readOnly = true)
+    public List<DocumentResponse> getDocuments(List<Long> documentIds, User user) {
+        List<Document> documents = documentRepository.findAllById(documentIds);
+
+        for (Document document : documents) {
+            if (!document.getUser().getId().equals(user.getId())) {
+                throw new UnauthorizedException("מסמך", document.getId());
+            }
+        }
+
+        return documents.stream()
+            .filter(document -> Boolean.TRUE.equals(document.getActive()))
+            .map(documentMapper::toResponse)
+            .toList();
+    }
+
     /**
      * Delete document with S3 and Qdrant cleanup
      */
@@ -373,12 +478,11 @@ public class DocumentService {
         document.setActive(false);
         documentRepository.save(document);
 
-        // Delete physical file from S3
-        try {
-            s3Service.deleteFile(document.getFilePath());
-        } catch (Exception e) {
-            log.warn("Failed to delete file from S3", e);
-        }
+        // Delete physical file from S3 after commit
+        eventPublisher.publishEvent(new DocumentFilesDeletedEvent(
+            user.getId(),
+            List.of(document.getFilePath())
+        ));
     }
 
     /**
@@ -399,14 +503,11 @@ public class DocumentService {
         }
         documentRepository.saveAll(documents);
 
-        // Delete physical files from S3
-        for (Document doc : documents) {
-            try {
-                s3Service.deleteFile(doc.getFilePath());
-            } catch (Exception e) {
-                log.warn("Failed to delete file", e);
-            }
-        }
+        // Delete physical files from S3 in bulk, after commit
+        eventPublisher.publishEvent(new DocumentFilesDeletedEvent(
+            user.getId(),
+            documents.stream().map(Document::getFilePath).toList()
+        ));
 
         // Reset Qdrant collection
         String collectionName = user.getCollectionName();
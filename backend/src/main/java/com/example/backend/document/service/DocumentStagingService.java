@@ -0,0 +1,110 @@
+package com.example.backend.document.service;
+
+import com.example.backend.common.exception.FileProcessingException;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Local disk staging for bulk uploads: files are streamed here (hashed on the way) instead of into the heap,
+ * and read back only when their ingestion job starts. Staged files of a previous run are cleared on startup.
+ */
+@Service
+@Slf4j
+public class DocumentStagingService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Value("${documents.staging.dir:${java.io.tmpdir}/custom-site-chat-staging}")
+    private String stagingDir;
+
+    private Path directory;
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = Path.of(stagingDir);
+        Files.createDirectories(directory);
+
+        try (Stream<Path> stale = Files.list(directory)) {
+            stale.forEach(this::delete);
+        }
+
+        log.info("✅ Upload staging at {}", directory);
+    }
+
+    /**
+     * Copy the stream to a staging file, computing its SHA-256 as it goes.
+     * The stream is not closed, so it can be an entry of a zip or multipart stream.
+     */
+    public StagedFile stage(String fileName, InputStream in, long maxBytes) throws IOException {
+        Path target = Files.createTempFile(directory, "upload-", ".tmp");
+        MessageDigest digest = sha256();
+        long size = 0;
+
+        try (OutputStream out = Files.newOutputStream(target)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                size += read;
+                if (size > maxBytes) {
+                    throw FileProcessingException.fileTooLarge(fileName, maxBytes);
+                }
+                digest.update(buffer, 0, read);
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException | RuntimeException e) {
+            delete(target);
+            throw e;
+        }
+
+        return new StagedFile(target, fileName, size, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    public byte[] read(Path path) throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    public void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete staged file {}", path);
+        }
+    }
+
+    public void deleteAll(List<StagedFile> files) {
+        files.forEach(file -> delete(file.getPath()));
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class StagedFile {
+        private final Path path;
+        private final String fileName;
+        private final long size;
+        private final String contentHash;
+    }
+}
@@ -0,0 +1,405 @@
+package com.example.backend.document.service;
+
+import com.example.backend.common.exception.TooManyRequestsException;
+import com.example.backend.common.metrics.RagMetrics;
+import com.example.backend.document.event.DocumentCreatedEvent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.support.ContextPropagatingTaskDecorator;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fair scheduler in front of documentProcessingExecutor.
+ * Each tenant has its own queue (small documents in a separate lane); tenants are served round-robin,
+ * each with a cap on running jobs, so one bulk upload can't hold the executor or its queue.
+ * Small documents, and anything that waited past small-document-max-wait, are dispatched first.
+ * If the executor refuses a job it goes back to the head of its queue and dispatching pauses
+ * until one of the running jobs completes.
+ *
+ * ingestion.queue.depth   gauge, queued documents, tags: tenant
+ * ingestion.queue.wait    timer, time from commit to start, tags: tenant, size (small/large)
+ * ingestion.rejected      counter, uploads refused at admission, tags: tenant, reason
+ */
+@Service
+@Slf4j
+public class IngestionScheduler {
+
+    private final DocumentProcessingService documentProcessingService;
+    private final DocumentStagingService stagingService;
+    private final Executor documentProcessingExecutor;
+    private final MeterRegistry registry;
+    private final RagMetrics metrics;
+
+    // Jobs handed to the executor at once; keep below its capacity
+    @Value("${ingestion.scheduler.max-concurrent:8}")
+    private int maxConcurrent;
+
+    @Value("${ingestion.scheduler.per-tenant-max-concurrent:2}")
+    private int perTenantMaxConcurrent;
+
+    @Value("${ingestion.scheduler.per-tenant-max-queued:200}")
+    private int perTenantMaxQueued;
+
+    // Queued single uploads hold the file in memory until they start (bulk uploads wait on disk)
+    @Value("${ingestion.scheduler.max-queued-bytes:536870912}")
+    private long maxQueuedBytes;
+
+    @Value("${ingestion.scheduler.small-document-bytes:1048576}")
+    private long smallDocumentBytes;
+
+    // A large document waiting this long is treated like a small one, so it can't starve
+    @Value("${ingestion.scheduler.small-document-max-wait-seconds:60}")
+    private long smallDocumentMaxWaitSeconds;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, TenantQueue> tenants = new HashMap<>();
+    // Tenants with queued jobs, in round-robin order
+    private final ArrayDeque<TenantQueue> ring = new ArrayDeque<>();
+    private final Map<String, AtomicInteger> depthByTag = new ConcurrentHashMap<>();
+    private final ContextPropagatingTaskDecorator contextDecorator = new ContextPropagatingTaskDecorator();
+    private int running = 0;
+    private long queuedBytes = 0;
+    // Set when the executor refused a job; cleared by the next completion
+    private boolean paused = false;
+
+    public IngestionScheduler(
+            DocumentProcessingService documentProcessingService,
+            DocumentStagingService stagingService,
+            @Qualifier("documentProcessingExecutor") Executor documentProcessingExecutor,
+            MeterRegistry registry,
+            RagMetrics metrics) {
+        this.documentProcessingService = documentProcessingService;
+        this.stagingService = stagingService;
+        this.documentProcessingExecutor = documentProcessingExecutor;
+        this.registry = registry;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Refuse an upload up front when the tenant's queue or the shared memory budget is full.
+     * Checked before the documents are saved; a few concurrent uploads may overshoot slightly.
+     */
+    public void checkCapacity(Long tenantId, int documents, long inMemoryBytes) {
+        lock.lock();
+        try {
+            TenantQueue queue = tenants.get(tenantId);
+            int queued = queue != null ? queue.size() : 0;
+            if (queued + documents > perTenantMaxQueued) {
+                reject(tenantId, "tenant");
+                throw new TooManyRequestsException("יותר מדי מסמכים ממתינים לעיבוד, נסה שוב בעוד מספר דקות");
+            }
+            if (queuedBytes + inMemoryBytes > maxQueuedBytes) {
+                reject(tenantId, "memory");
+                throw new TooManyRequestsException("תור העיבוד מלא כרגע, נסה שוב בעוד מספר דקות");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Queue a committed document; runs on the caller's thread and never blocks
+    public void submit(DocumentCreatedEvent event) {
+        Long tenantId = event.getUserId();
+        boolean small = event.getFileSize() <= smallDocumentBytes;
+        Runnable task = contextDecorator.decorate(() -> process(event));
+        long inMemoryBytes = event.getFileBytes() != null ? event.getFileSize() : 0;
+        Job job = new Job(event.getDocumentId(), inMemoryBytes, small, event.getStagedFile(), System.nanoTime(), task);
+
+        lock.lock();
+        try {
+            TenantQueue queue = tenants.computeIfAbsent(tenantId, id -> new TenantQueue(id, metrics.tenantTag(id)));
+            queue.add(job);
+            queuedBytes += job.inMemoryBytes;
+            if (!queue.inRing) {
+                queue.inRing = true;
+                ring.addLast(queue);
+            }
+            depth(queue.tag).incrementAndGet();
+
+            log.info("📥 [{}] Queued for ingestion - tenant {} has {} queued, {} running",
+                job.documentId, tenantId, queue.size(), queue.running);
+        } finally {
+            lock.unlock();
+        }
+
+        dispatch();
+    }
+
+    // Hand queued jobs to the executor while there is room
+    private void dispatch() {
+        List<Dispatched> ready = new ArrayList<>();
+
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            while (running < maxConcurrent && !paused) {
+                TenantQueue queue = pick(now, true);
+                if (queue == null) {
+                    queue = pick(now, false);
+                }
+                if (queue == null) {
+                    break;
+                }
+
+                Job job = queue.poll(now, agingNanos());
+                queuedBytes -= job.inMemoryBytes;
+                depth(queue.tag).decrementAndGet();
+                running++;
+                queue.running++;
+
+                // Move the tenant to the back of the ring
+                ring.remove(queue);
+                if (queue.size() > 0) {
+                    ring.addLast(queue);
+                } else {
+                    queue.inRing = false;
+                }
+                ready.add(new Dispatched(queue, job));
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (int i = 0; i < ready.size(); i++) {
+            if (!start(ready.get(i))) {
+                requeue(ready.subList(i, ready.size()));
+                return;
+            }
+        }
+    }
+
+    // First tenant in ring order that may run another job; with priorityOnly, only a small or aged head counts
+    private TenantQueue pick(long now, boolean priorityOnly) {
+        for (TenantQueue queue : ring) {
+            if (queue.running >= perTenantMaxConcurrent) {
+                continue;
+            }
+            if (!priorityOnly || queue.hasPriority(now, agingNanos())) {
+                return queue;
+            }
+        }
+        return null;
+    }
+
+    private boolean start(Dispatched dispatched) {
+        try {
+            documentProcessingExecutor.execute(() -> run(dispatched));
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("⚠️ [{}] Executor is full - job goes back to the queue", dispatched.job.documentId);
+            return false;
+        }
+    }
+
+    /**
+     * Put jobs the executor refused back at the head of their queues, in their original order,
+     * and pause until a running job completes. With nothing running no completion would come,
+     * so the refused job is dropped instead (the executor is shutting down or shared and full).
+     */
+    private void requeue(List<Dispatched> refused) {
+        Dispatched dropped = null;
+
+        lock.lock();
+        try {
+            for (int i = refused.size() - 1; i >= 0; i--) {
+                Dispatched dispatched = refused.get(i);
+                TenantQueue queue = dispatched.queue;
+                running--;
+                queue.running--;
+                queue.addFirst(dispatched.job);
+                queuedBytes += dispatched.job.inMemoryBytes;
+                depth(queue.tag).incrementAndGet();
+                if (!queue.inRing) {
+                    queue.inRing = true;
+                    ring.addFirst(queue);
+                }
+            }
+
+            paused = running > 0;
+            if (!paused) {
+                dropped = refused.get(0);
+                TenantQueue queue = dropped.queue;
+                queue.remove(dropped.job);
+                queuedBytes -= dropped.job.inMemoryBytes;
+                depth(queue.tag).decrementAndGet();
+                if (queue.size() == 0) {
+                    ring.remove(queue);
+                    queue.inRing = false;
+                    tenants.remove(queue.tenantId);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (dropped != null) {
+            Job job = dropped.job;
+            log.error("❌ [{}] Executor rejected an ingestion job with nothing running - dropping it", job.documentId);
+            documentProcessingService.markAsFailed(job.documentId, "תור העיבוד מלא");
+            if (job.stagedFile != null) {
+                stagingService.delete(job.stagedFile);
+            }
+        }
+    }
+
+    private void run(Dispatched dispatched) {
+        Job job = dispatched.job;
+        Timer.builder("ingestion.queue.wait")
+            .description("Time a document waited for an ingestion slot")
+            .tag("tenant", dispatched.queue.tag)
+            .tag("size", job.small ? "small" : "large")
+            .register(registry)
+            .record(System.nanoTime() - job.queuedAt, TimeUnit.NANOSECONDS);
+
+        try {
+            job.task.run();
+        } finally {
+            finish(dispatched);
+        }
+    }
+
+    private void finish(Dispatched dispatched) {
+        lock.lock();
+        try {
+            running--;
+            paused = false;
+            TenantQueue queue = dispatched.queue;
+            queue.running--;
+            if (queue.running == 0 && queue.size() == 0) {
+                tenants.remove(queue.tenantId);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        dispatch();
+    }
+
+    // Staged files are read only now, so waiting bulk uploads cost no heap
+    private void process(DocumentCreatedEvent event) {
+        Path stagedFile = event.getStagedFile();
+        try {
+            byte[] fileBytes = event.getFileBytes();
+            if (stagedFile != null) {
+                fileBytes = stagingService.read(stagedFile);
+            }
+
+            documentProcessingService.processDocument(
+                event.getDocumentId(),
+                fileBytes,
+                event.getOriginalFilename(),
+                event.getContentType(),
+                event.getFileSize(),
+                event.getFilePath(),
+                event.getUserId(),
+                event.getCollectionName()
+            );
+        } catch (IOException e) {
+            log.error("❌ [{}] Could not read staged file {}", event.getDocumentId(), stagedFile, e);
+            documentProcessingService.markAsFailed(event.getDocumentId(), "קריאת הקובץ נכשלה");
+        } finally {
+            if (stagedFile != null) {
+                stagingService.delete(stagedFile);
+            }
+        }
+    }
+
+    private void reject(Long tenantId, String reason) {
+        log.warn("⚠️ Ingestion queue full ({}) - rejecting upload of tenant {}", reason, tenantId);
+        Counter.builder("ingestion.rejected")
+            .description("Uploads refused because the ingestion queue was full")
+            .tag("tenant", metrics.tenantTag(tenantId))
+            .tag("reason", reason)
+            .register(registry)
+            .increment();
+    }
+
+    // One gauge per tenant tag; tenants folded into "other" share it
+    private AtomicInteger depth(String tag) {
+        return depthByTag.computeIfAbsent(tag, t -> {
+            AtomicInteger depth = new AtomicInteger();
+            Gauge.builder("ingestion.queue.depth", depth, AtomicInteger::get)
+                .description("Documents waiting for ingestion")
+                .tag("tenant", t)
+                .register(registry);
+            return depth;
+        });
+    }
+
+    private long agingNanos() {
+        return TimeUnit.SECONDS.toNanos(smallDocumentMaxWaitSeconds);
+    }
+
+    private static class TenantQueue {
+        private final Long tenantId;
+        private final String tag;
+        private final ArrayDeque<Job> small = new ArrayDeque<>();
+        private final ArrayDeque<Job> large = new ArrayDeque<>();
+        private int running = 0;
+        private boolean inRing = false;
+
+        private TenantQueue(Long tenantId, String tag) {
+            this.tenantId = tenantId;
+            this.tag = tag;
+        }
+
+        private void add(Job job) {
+            (job.small ? small : large).addLast(job);
+        }
+
+        private void addFirst(Job job) {
+            (job.small ? small : large).addFirst(job);
+        }
+
+        private void remove(Job job) {
+            (job.small ? small : large).remove(job);
+        }
+
+        private int size() {
+            return small.size() + large.size();
+        }
+
+        private boolean largeAged(long now, long agingNanos) {
+            Job head = large.peekFirst();
+            return head != null && now - head.queuedAt >= agingNanos;
+        }
+
+        private boolean hasPriority(long now, long agingNanos) {
+            return !small.isEmpty() || largeAged(now, agingNanos);
+        }
+
+        // Aged large documents first, then small ones, then the rest in arrival order
+        private Job poll(long now, long agingNanos) {
+            if (largeAged(now, agingNanos) || small.isEmpty()) {
+                return large.pollFirst();
+            }
+            return small.pollFirst();
+        }
+    }
+
+    private record Job(Long documentId, long inMemoryBytes, boolean small, Path stagedFile, long queuedAt, Runnable task) {
+    }
+
+    private record Dispatched(TenantQueue queue, Job job) {
+    }
+}
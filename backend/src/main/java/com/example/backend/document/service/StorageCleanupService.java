@@ -0,0 +1,134 @@
+package com.example.backend.document.service;
+
+import com.example.backend.common.infrastructure.storage.S3Service;
+import com.example.backend.document.model.PendingStorageDeletion;
+import com.example.backend.document.repository.PendingStorageDeletionRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Removes S3 objects of deleted documents outside the DB transaction.
+ * Keys that fail are retried with exponential backoff; whatever is left is stored
+ * in pending_storage_deletions and retried by a scheduled sweep.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageCleanupService {
+
+    // One S3 DeleteObjects request per sweep
+    private static final int SWEEP_BATCH_SIZE = 1000;
+
+    private final S3Service s3Service;
+    private final PendingStorageDeletionRepository pendingRepository;
+
+    @Value("${storage.cleanup.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${storage.cleanup.initial-backoff-ms:1000}")
+    private long initialBackoffMs;
+
+    // Returns the keys that are still in S3 after all attempts
+    public List<String> deleteFiles(Long userId, List<String> filePaths) {
+        List<String> remaining = filePaths;
+        long backoff = initialBackoffMs;
+
+        for (int attempt = 1; attempt <= maxAttempts && !remaining.isEmpty(); attempt++) {
+            if (attempt > 1) {
+                log.info("🔁 Retrying delete of {} files for user {} (attempt {}/{})",
+                    remaining.size(), userId, attempt, maxAttempts);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoff *= 2;
+            }
+
+            remaining = s3Service.deleteFiles(remaining).getFailedKeys();
+        }
+
+        if (remaining.isEmpty()) {
+            log.info("✅ Storage cleanup finished for user {}: {} files deleted", userId, filePaths.size());
+        } else {
+            log.error("❌ Storage cleanup for user {} left {} of {} files in S3, kept for retry: {}",
+                userId, remaining.size(), filePaths.size(), remaining);
+            savePending(userId, remaining);
+        }
+
+        return remaining;
+    }
+
+    /**
+     * Retry keys that earlier cleanups could not delete. Rows are removed once the
+     * object is gone, and kept (with attempts bumped) while S3 still refuses.
+     */
+    @Scheduled(fixedDelayString = "${storage.cleanup.retry-interval-ms:900000}",
+               initialDelayString = "${storage.cleanup.retry-interval-ms:900000}")
+    public void retryPending() {
+        LocalDateTime now = LocalDateTime.now();
+        List<PendingStorageDeletion> pending = pendingRepository
+            .findByLastAttemptAtBeforeOrderByLastAttemptAtAsc(now, PageRequest.of(0, SWEEP_BATCH_SIZE));
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<String> filePaths = pending.stream().map(PendingStorageDeletion::getFilePath).toList();
+        Set<String> failed = new HashSet<>(s3Service.deleteFiles(filePaths).getFailedKeys());
+
+        List<PendingStorageDeletion> removable = new ArrayList<>();
+        List<PendingStorageDeletion> retried = new ArrayList<>();
+        for (PendingStorageDeletion row : pending) {
+            if (failed.contains(row.getFilePath())) {
+                row.setAttempts(row.getAttempts() + 1);
+                row.setLastAttemptAt(now);
+                retried.add(row);
+            } else {
+                removable.add(row);
+            }
+        }
+        pendingRepository.deleteAll(removable);
+        pendingRepository.saveAll(retried);
+
+        if (failed.isEmpty()) {
+            log.info("🧹 Storage cleanup sweep deleted {} pending files", removable.size());
+        } else {
+            log.warn("⚠️ Storage cleanup sweep deleted {} pending files, {} still failing",
+                removable.size(), failed.size());
+        }
+    }
+
+    private void savePending(Long userId, List<String> filePaths) {
+        try {
+            // A key can already be pending when the same document is cleaned up twice
+            Set<String> known = new HashSet<>();
+            for (PendingStorageDeletion row : pendingRepository.findByFilePathIn(filePaths)) {
+                known.add(row.getFilePath());
+            }
+
+            List<PendingStorageDeletion> rows = filePaths.stream()
+                .filter(path -> !known.contains(path))
+                .map(path -> PendingStorageDeletion.builder()
+                    .filePath(path)
+                    .userId(userId)
+                    .attempts(maxAttempts)
+                    .build())
+                .toList();
+            pendingRepository.saveAll(rows);
+        } catch (Exception e) {
+            log.error("❌ Could not store {} pending deletions of user {}: {}", filePaths.size(), userId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.backend.query.service;
+
+import com.example.backend.common.infrastructure.vectordb.SparseVectorEncoder;
+import com.example.backend.query.dto.PublicQueryRequest;
+import com.example.backend.query.service.QueryService.RelevantDocument;
+
+import dev.langchain4j.model.openai.OpenAiTokenizer;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Packs the prompt against a token budget: history is truncated first (oldest messages
+ * dropped), chunks are picked with maximal-marginal-relevance so near-duplicates are
+ * skipped, and adjacent chunks of the same document are merged without their overlap.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ContextAssemblyService {
+
+    // Chunks overlap by up to 50 chars (DocumentSplitters.recursive(500, 50))
+    private static final int MAX_CHUNK_OVERLAP = 50;
+
+    // Shorter suffix/prefix matches are coincidence (a shared letter or word), not overlap
+    private static final int MIN_CHUNK_OVERLAP = 20;
+
+    private final SparseVectorEncoder sparseVectorEncoder;
+    private final OpenAiTokenizer tokenizer = new OpenAiTokenizer("gpt-4");
+
+    // Whole prompt: system message + history + chunks + question
+    @Value("${query.context.max-prompt-tokens:6000}")
+    private int maxPromptTokens;
+
+    @Value("${query.context.max-chunk-tokens:2500}")
+    private int maxChunkTokens;
+
+    // 1.0 = pure relevance, 0.0 = pure diversity
+    @Value("${query.context.mmr-lambda:0.7}")
+    private double mmrLambda;
+
+    /**
+     * @param candidates chunks in relevance order (best first)
+     * @param fixedTokens tokens of the system message and the question
+     */
+    public AssembledContext assemble(
+            List<RelevantDocument> candidates,
+            List<PublicQueryRequest.HistoryMessage> history,
+            int fixedTokens,
+            int maxChunks) {
+
+        int chunkBudget = Math.max(0, Math.min(maxChunkTokens, maxPromptTokens - fixedTokens));
+
+        List<RelevantDocument> selected = selectWithMmr(candidates, maxChunks, chunkBudget);
+        List<RelevantDocument> documents = mergeAdjacent(selected);
+
+        int chunkTokens = documents.stream().mapToInt(doc -> tokenizer.estimateTokenCountInText(doc.getText())).sum();
+
+        // History gets whatever is left, newest messages first
+        int historyBudget = maxPromptTokens - fixedTokens - chunkTokens;
+        List<PublicQueryRequest.HistoryMessage> keptHistory = new ArrayList<>();
+        int historyTokens = 0;
+
+        if (history != null) {
+            for (int i = history.size() - 1; i >= 0; i--) {
+                int messageTokens = tokenizer.estimateTokenCountInText(history.get(i).getContent());
+                if (historyTokens + messageTokens > historyBudget) {
+                    break;
+                }
+                historyTokens += messageTokens;
+                keptHistory.add(0, history.get(i));
+            }
+
+            if (keptHistory.size() < history.size()) {
+                log.info("✂️ Dropped {} oldest history messages to fit the prompt budget",
+                    history.size() - keptHistory.size());
+            }
+        }
+
+        log.info("📦 Context: {} chunks ({} tokens) from {} candidates, {} history messages ({} tokens)",
+            documents.size(), chunkTokens, candidates.size(), keptHistory.size(), historyTokens);
+
+        return new AssembledContext(documents, keptHistory, chunkTokens, historyTokens);
+    }
+
+    // Greedy MMR: relevance from the candidate rank, redundancy as token Jaccard similarity
+    private List<RelevantDocument> selectWithMmr(List<RelevantDocument> candidates, int maxChunks, int budget) {
+        List<Set<String>> terms = new ArrayList<>();
+        for (RelevantDocument candidate : candidates) {
+            terms.add(new HashSet<>(sparseVectorEncoder.tokenize(candidate.getText())));
+        }
+
+        List<Integer> remaining = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            remaining.add(i);
+        }
+
+        List<Integer> picked = new ArrayList<>();
+        int usedTokens = 0;
+
+        while (picked.size() < maxChunks && !remaining.isEmpty()) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+
+            for (int i : remaining) {
+                double relevance = 1.0 - (double) i / candidates.size();
+                double redundancy = 0;
+                for (int j : picked) {
+                    redundancy = Math.max(redundancy, jaccard(terms.get(i), terms.get(j)));
+                }
+
+                double score = mmrLambda * relevance - (1 - mmrLambda) * redundancy;
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = i;
+                }
+            }
+
+            remaining.remove(Integer.valueOf(best));
+
+            int chunkTokens = tokenizer.estimateTokenCountInText(candidates.get(best).getText());
+            if (usedTokens + chunkTokens > budget && !picked.isEmpty()) {
+                continue;
+            }
+            usedTokens += chunkTokens;
+            picked.add(best);
+        }
+
+        List<RelevantDocument> selected = new ArrayList<>();
+        for (int i : picked) {
+            selected.add(candidates.get(i));
+        }
+        return selected;
+    }
+
+    // Merge chunks that are consecutive in the same document; the merged chunk keeps the best score
+    private List<RelevantDocument> mergeAdjacent(List<RelevantDocument> selected) {
+        Map<String, List<RelevantDocument>> byDocument = new LinkedHashMap<>();
+        List<RelevantDocument> merged = new ArrayList<>();
+
+        // Output keeps the selection order of each group's best chunk
+        Map<RelevantDocument, Integer> rank = new IdentityHashMap<>();
+        for (int i = 0; i < selected.size(); i++) {
+            rank.put(selected.get(i), i);
+        }
+
+        for (RelevantDocument doc : selected) {
+            if (doc.getDocumentId() == null || doc.getChunkIndex() == null) {
+                merged.add(doc);
+            } else {
+                byDocument.computeIfAbsent(doc.getDocumentId(), id -> new ArrayList<>()).add(doc);
+            }
+        }
+
+        for (List<RelevantDocument> chunks : byDocument.values()) {
+            chunks.sort(Comparator.comparingInt(RelevantDocument::getChunkIndex));
+
+            RelevantDocument current = chunks.get(0);
+            for (int i = 1; i < chunks.size(); i++) {
+                RelevantDocument next = chunks.get(i);
+
+                if (next.getChunkIndex() == current.getChunkIndex() + 1) {
+                    RelevantDocument joined = new RelevantDocument();
+                    joined.setText(joinWithoutOverlap(current.getText(), next.getText()));
+                    joined.setScore(Math.max(current.getScore(), next.getScore()));
+                    joined.setDocumentName(current.getDocumentName());
+                    joined.setDocumentId(current.getDocumentId());
+                    joined.setChunkIndex(next.getChunkIndex());
+                    rank.put(joined, Math.min(rank.get(current), rank.get(next)));
+                    current = joined;
+                } else {
+                    merged.add(current);
+                    current = next;
+                }
+            }
+            merged.add(current);
+        }
+
+        merged.sort(Comparator.comparingInt(rank::get));
+        return merged;
+    }
+
+    private String joinWithoutOverlap(String first, String second) {
+        int max = Math.min(MAX_CHUNK_OVERLAP, Math.min(first.length(), second.length()));
+        for (int length = max; length >= MIN_CHUNK_OVERLAP; length--) {
+            if (first.endsWith(second.substring(0, length))) {
+                return first + second.substring(length);
+            }
+        }
+        return first + "\n" + second;
+    }
+
+    private double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        int intersection = 0;
+        for (String term : a) {
+            if (b.contains(term)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class AssembledContext {
+        private List<RelevantDocument> documents;
+        private List<PublicQueryRequest.HistoryMessage> history;
+        private int chunkTokens;
+        private int historyTokens;
+    }
+}
@@ -23,6 +23,8 @@ public class PromptService {
     private static final String NO_RESULTS_ENGLISH = "no-results-english.txt";
     private static final String ANALYTICS_FILTER = "analytics-filter.txt";
     private static final String ANALYTICS_ANALYSIS = "analytics-analysis.txt";
+    private static final String ANALYTICS_INCREMENTAL = "analytics-incremental.txt";
+    private static final String ANALYTICS_CLUSTER_NAMING = "analytics-cluster-naming.txt";
     
     @PostConstruct
     public void init() {
@@ -34,6 +36,8 @@ public class PromptService {
         loadPrompt(NO_RESULTS_ENGLISH);
         loadPrompt(ANALYTICS_FILTER);
         loadPrompt(ANALYTICS_ANALYSIS);
+        loadPrompt(ANALYTICS_INCREMENTAL);
+        loadPrompt(ANALYTICS_CLUSTER_NAMING);
         
         log.info("✅ Loaded {} prompts successfully", promptCache.size());
     }
@@ -128,6 +132,34 @@ public class PromptService {
         return String.format(template, questionsText);
     }
     
+    /**
+     * Get prompt for assigning new questions to an existing analysis
+     */
+    public String getAnalyticsIncrementalPrompt(String existingCategories, String questionsText) {
+        String template = promptCache.get(ANALYTICS_INCREMENTAL);
+        
+        if (template == null) {
+            log.error("❌ Analytics incremental prompt not found");
+            throw new RuntimeException("Analytics incremental prompt not found");
+        }
+        
+        return String.format(template, existingCategories, questionsText);
+    }
+    
+    /**
+     * Get prompt for naming locally computed question clusters
+     */
+    public String getAnalyticsClusterNamingPrompt(String clustersText) {
+        String template = promptCache.get(ANALYTICS_CLUSTER_NAMING);
+        
+        if (template == null) {
+            log.error("❌ Analytics cluster naming prompt not found");
+            throw new RuntimeException("Analytics cluster naming prompt not found");
+        }
+        
+        return String.format(template, clustersText);
+    }
+    
     /**
      * Reload all prompts from files (useful for updates without restart)
      */
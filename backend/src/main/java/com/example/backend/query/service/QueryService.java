@@ -6,6 +6,7 @@ import com.example.backend.query.dto.QueryResponse;
 import com.example.backend.user.model.User;
 import com.example.backend.common.infrastructure.vectordb.QdrantVectorService;
 import com.example.backend.common.exception.UnauthorizedException;
+import com.example.backend.common.metrics.RagMetrics;
 import com.example.backend.user.service.TokenService;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.data.embedding.Embedding;
@@ -14,15 +15,14 @@ import dev.langchain4j.model.openai.OpenAiChatModel;
 import dev.langchain4j.model.openai.OpenAiTokenizer;
 import dev.langchain4j.model.output.Response;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
-import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
 import dev.langchain4j.store.embedding.EmbeddingSearchResult;
-import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
@@ -40,16 +40,28 @@ public class QueryService {
     private final OpenAiChatModel chatModel;
     private final PromptService promptService;
     private final TokenService tokenService;
+    private final RerankService rerankService;
+    private final ContextAssemblyService contextAssemblyService;
+    private final RagMetrics metrics;
 
     private static final int MAX_RELEVANT_CHUNKS = 5;
     private static final int MAX_HISTORY_MESSAGES = 10;
 
+    // Reranked candidates handed to the context assembler for MMR selection
+    private static final int CONTEXT_CANDIDATES = MAX_RELEVANT_CHUNKS * 3;
+
+    // Over-fetch from Qdrant so the reranker has something to choose from
+    @Value("${query.retrieval.candidates:30}")
+    private int retrievalCandidates;
+
     // Search documents and generate AI answer
     public QueryResponse askQuestion(String secretKey, String question, List<PublicQueryRequest.HistoryMessage> history) {
         
         long startTime = System.currentTimeMillis();
         int rewriteTokens = 0;
 
+        RagMetrics.Stage total = metrics.stage(RagMetrics.QUERY, "total");
+
         try {
             // 1. Verify secretKey
             User user = collectionService.validateSecretKey(secretKey);
@@ -87,18 +99,37 @@ public class QueryService {
                         log.error("Failed to consume rewrite tokens", e);
                     }
                 }
+                metrics.chatTokens(RagMetrics.QUERY, "rewrite", user.getId(), rewriteTokens);
+                total.outcome(RagMetrics.EMPTY);
                 return createNoResultsResponse(question, enhancedQuery, startTime, rewriteTokens);
             }
 
-            // 6. Building messages with history
+            // 6. Pack chunks and history into the prompt token budget
+            ContextAssemblyService.AssembledContext context;
+            try (RagMetrics.Stage stage = metrics.stage(RagMetrics.QUERY, "context")) {
+                context = contextAssemblyService.assemble(
+                    relevantDocs,
+                    validatedHistory,
+                    countFixedPromptTokens(question),
+                    MAX_RELEVANT_CHUNKS
+                );
+                stage.success();
+            }
+            relevantDocs = context.getDocuments();
+
+            // 6.1. Building messages with history
             List<ChatMessage> messages = buildMessagesWithHistory(
                 question,
                 relevantDocs,
-                validatedHistory
+                context.getHistory()
             );
 
         // 7. Sending to GPT
-        Response<AiMessage> response = chatModel.generate(messages);
+        Response<AiMessage> response;
+        try (RagMetrics.Stage stage = metrics.chatStage(RagMetrics.QUERY, "generation")) {
+            response = chatModel.generate(messages);
+            stage.success();
+        }
         String answer = response.content().text();
 
         // 8. Calculating metrics and tokens
@@ -115,6 +146,9 @@ public class QueryService {
 
         // 8.2. Total = rewrite + main query (input + output)
         int totalTokens = rewriteTokens + inputTokens + outputTokens;
+        metrics.chatTokens(RagMetrics.QUERY, "rewrite", user.getId(), rewriteTokens);
+        metrics.chatTokens(RagMetrics.QUERY, "input", user.getId(), inputTokens);
+        metrics.chatTokens(RagMetrics.QUERY, "output", user.getId(), outputTokens);
 
         // 8.3. Consume tokens from user quota
         try {
@@ -128,6 +162,7 @@ public class QueryService {
 
         // 9. Building sources
         List<QueryResponse.Source> sources = buildSources(relevantDocs);
+        total.success();
 
         return QueryResponse.builder()
             .answer(answer)
@@ -142,7 +177,10 @@ public class QueryService {
             throw e;
         } catch (Exception e) {
             log.error("❌ Failed to answer question", e);
+            total.error(e);
             throw new RuntimeException("Error processing question: " + e.getMessage());
+        } finally {
+            total.close();
         }
     }
 
@@ -174,32 +212,47 @@ public class QueryService {
             List<PublicQueryRequest.HistoryMessage> history) {
         
         try {
-            EmbeddingStore<TextSegment> embeddingStore = 
-                qdrantVectorService.getEmbeddingStoreForCollection(collectionName);
-            
-            if (embeddingStore == null) {
-                log.error("❌ No embedding store for collection: {}", collectionName);
-                return new ArrayList<>();
-            }
-
             log.info("🔍 Searching Qdrant with enhanced query: '{}'", enhancedQuery);       
 
             // Convert to vector (temporary!)
-            Embedding queryEmbedding = embeddingModel.embed(enhancedQuery).content();
-
-            // search
-            EmbeddingSearchRequest searchRequest = EmbeddingSearchRequest.builder()
-                .queryEmbedding(queryEmbedding)
-                .maxResults(MAX_RELEVANT_CHUNKS)
-                .minScore(0.5)
-                .build();
+            Embedding queryEmbedding;
+            try (RagMetrics.Stage stage = metrics.embeddingStage(RagMetrics.QUERY, "embedding")) {
+                queryEmbedding = embeddingModel.embed(enhancedQuery).content();
+                stage.success();
+            }
 
-            EmbeddingSearchResult<TextSegment> searchResult = 
-                embeddingStore.search(searchRequest);
+            // hybrid dense + keyword search (scoped to the user's tenant when collections are shared)
+            int candidates = rerankService.isEnabled()
+                ? Math.max(retrievalCandidates, MAX_RELEVANT_CHUNKS)
+                : MAX_RELEVANT_CHUNKS;
+
+            EmbeddingSearchResult<TextSegment> searchResult;
+            try (RagMetrics.Stage stage = metrics.stage(RagMetrics.QUERY, "search")) {
+                searchResult = qdrantVectorService.search(
+                    collectionName,
+                    queryEmbedding,
+                    enhancedQuery,
+                    candidates,
+                    0.5
+                );
+                stage.outcome(searchResult.matches().isEmpty() ? RagMetrics.EMPTY : RagMetrics.SUCCESS);
+            }
+            metrics.qdrantResults(RagMetrics.QUERY, searchResult.matches().size());
+
+            // Rerank the candidates; the context assembler picks the final chunks
+            List<EmbeddingMatch<TextSegment>> matches;
+            try (RagMetrics.Stage stage = metrics.stage(RagMetrics.QUERY, "rerank")) {
+                matches = rerankService.rerank(
+                    enhancedQuery,
+                    searchResult.matches(),
+                    CONTEXT_CANDIDATES
+                );
+                stage.success();
+            }
 
             // Convert to a list of documents
             List<RelevantDocument> relevantDocs = new ArrayList<>();
-            for (EmbeddingMatch<TextSegment> match : searchResult.matches()) {
+            for (EmbeddingMatch<TextSegment> match : matches) {
                 RelevantDocument doc = new RelevantDocument();
                 doc.setText(match.embedded().text());
                 doc.setScore(match.score());
@@ -208,12 +261,17 @@ public class QueryService {
                     String docName = match.embedded().metadata()
                         .getString("document_name");
                     doc.setDocumentName(docName != null ? docName : "Unknown");
+                    doc.setDocumentId(match.embedded().metadata().getString("document_id"));
+
+                    String chunkIndex = match.embedded().metadata().getString("chunk_index");
+                    doc.setChunkIndex(chunkIndex != null ? Integer.valueOf(chunkIndex) : null);
                 }
                 
                 relevantDocs.add(doc);
             }
 
-            log.info("✅ Found {} relevant chunks", relevantDocs.size());
+            log.info("✅ Found {} relevant chunks ({} candidates)",
+                relevantDocs.size(), searchResult.matches().size());
             return relevantDocs;
 
         } catch (Exception e) {
@@ -239,9 +297,12 @@ public class QueryService {
     // Rewrite the query with LLM to be independent, Uses all available history (up to 10 messages)
     private RewriteResult rewriteQueryWithLLM(String question, List<PublicQueryRequest.HistoryMessage> history) {
         
+        RagMetrics.Stage rewriteStage = null;
+
         try {
             log.info("🔄 Rewriting query with LLM...");
             long startTime = System.currentTimeMillis();
+            rewriteStage = metrics.chatStage(RagMetrics.QUERY, "rewrite");
             
             // Build context from all history (already limited to 10 messages!)
             StringBuilder contextBuilder = new StringBuilder();
@@ -281,6 +342,7 @@ public class QueryService {
             int totalTokens = inputTokens + outputTokens;
             
             long duration = System.currentTimeMillis() - startTime;
+            rewriteStage.success();
             
             log.info("✅ Query rewriting completed in {}ms, tokens: {}", duration, totalTokens);
             log.info("📥 Original:  '{}'", question);
@@ -290,8 +352,15 @@ public class QueryService {
             
         } catch (Exception e) {
             log.error("❌ Failed to rewrite query - using original question", e);
+            if (rewriteStage != null) {
+                rewriteStage.error(e);
+            }
             // In case of error - return original question with 0 tokens
             return new RewriteResult(question, 0);
+        } finally {
+            if (rewriteStage != null) {
+                rewriteStage.close();
+            }
         }
     }
 
@@ -301,8 +370,8 @@ public class QueryService {
         return promptService.getQueryRewritePrompt(detectedLanguage, context, question);
     }
 
-    // Build chat messages for GPT
-    private List<ChatMessage> buildMessagesWithHistory(String question, List<RelevantDocument> relevantDocs, List<PublicQueryRequest.HistoryMessage> history) {
+    // Build chat messages for GPT (package-private for the JMH benchmarks)
+    List<ChatMessage> buildMessagesWithHistory(String question, List<RelevantDocument> relevantDocs, List<PublicQueryRequest.HistoryMessage> history) {
         
         List<ChatMessage> messages = new ArrayList<>();
 
@@ -347,8 +416,17 @@ public class QueryService {
         return messages;
     }
 
-    // Detect Hebrew or English
-    private String detectLanguage(String text) {
+    // Tokens of the system message and the question - everything in the prompt that can't be trimmed
+    private int countFixedPromptTokens(String question) {
+        String languageName = detectLanguage(question).equals("he") ? "Hebrew" : "English";
+        OpenAiTokenizer tokenizer = new OpenAiTokenizer("gpt-4");
+        return tokenizer.estimateTokenCountInText(promptService.getSystemMessage(languageName))
+            + tokenizer.estimateTokenCountInText(question)
+            + 20; // context header and question label
+    }
+
+    // Detect Hebrew or English (package-private for the JMH benchmarks)
+    static String detectLanguage(String text) {
         if (text == null || text.trim().isEmpty()) {
             return "en";
         }
@@ -427,12 +505,14 @@ public class QueryService {
             .build();
     }
 
-    // Inner class
+    // Inner class (shared with ContextAssemblyService)
     @lombok.Data
-    private static class RelevantDocument {
+    static class RelevantDocument {
         private String text;
         private Double score;
         private String documentName;
+        private String documentId;
+        private Integer chunkIndex;
     }
 
     // Inner class for rewrite result with tokens
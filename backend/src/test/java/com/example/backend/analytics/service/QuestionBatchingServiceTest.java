@@ -0,0 +1,106 @@
+package com.example.backend.analytics.service;
+
+import com.example.backend.user.model.User;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class QuestionBatchingServiceTest {
+
+    private final AnalyticsService analyticsService = mock(AnalyticsService.class);
+    private final SwitchableExecutor executor = new SwitchableExecutor();
+    private QuestionBatchingService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new QuestionBatchingService(analyticsService, executor);
+        ReflectionTestUtils.setField(service, "maxBatchSize", 3);
+        ReflectionTestUtils.setField(service, "maxWaitSeconds", 0L);
+        ReflectionTestUtils.setField(service, "inFlightWaitSeconds", 1L);
+    }
+
+    @Test
+    void fullBatchIsFlushedInTheBackground() {
+        User user = user(1L);
+
+        service.submit(user, List.of("a", "b", "c"), "shop");
+
+        verify(analyticsService).appendQuestions(user, List.of("a", "b", "c"), "shop");
+    }
+
+    @Test
+    void rejectedFullBatchIsKeptForTheNextFlush() {
+        User user = user(1L);
+        executor.reject = true;
+
+        service.submit(user, List.of("a", "b"), "shop");
+        service.submit(user, List.of("c"), "shop");
+        service.submit(user, List.of("d"), "shop");
+        verify(analyticsService, never()).appendQuestions(any(), anyList(), any());
+
+        executor.reject = false;
+        service.flushExpired();
+
+        verify(analyticsService).appendQuestions(user, List.of("a", "b", "c", "d"), "shop");
+    }
+
+    @Test
+    void rejectedExpiredBatchDoesNotStopTheSweep() {
+        User first = user(1L);
+        User second = user(2L);
+        service.submit(first, List.of("a"), "shop");
+        service.submit(second, List.of("b"), "shop");
+
+        executor.reject = true;
+        service.flushExpired();
+        verify(analyticsService, never()).appendQuestions(any(), anyList(), any());
+
+        executor.reject = false;
+        service.flushExpired();
+
+        verify(analyticsService).appendQuestions(first, List.of("a"), "shop");
+        verify(analyticsService).appendQuestions(second, List.of("b"), "shop");
+    }
+
+    @Test
+    void discardedQuestionsAreNotFlushed() {
+        User user = user(1L);
+        service.submit(user, List.of("a"), "shop");
+
+        service.discardUser(1L);
+        service.flushExpired();
+
+        verify(analyticsService, never()).appendQuestions(eq(user), anyList(), any());
+    }
+
+    private User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+
+    // Runs tasks on the caller's thread, or refuses them like a saturated pool
+    private static class SwitchableExecutor implements Executor {
+        private boolean reject = false;
+
+        @Override
+        public void execute(Runnable task) {
+            if (reject) {
+                throw new RejectedExecutionException("full");
+            }
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.backend.analytics.service;
+
+import com.example.backend.analytics.service.QuestionClusteringService.Cluster;
+import com.example.backend.analytics.service.QuestionClusteringService.Intent;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+
+class QuestionClusteringServiceTest {
+
+    private QuestionClusteringService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new QuestionClusteringService(mock(EmbeddingModel.class));
+        ReflectionTestUtils.setField(service, "dimensions", 4);
+        ReflectionTestUtils.setField(service, "maxClusters", 12);
+        ReflectionTestUtils.setField(service, "sampleSize", 20000);
+        ReflectionTestUtils.setField(service, "maxIterations", 30);
+        ReflectionTestUtils.setField(service, "intentThreshold", 0.85);
+        ReflectionTestUtils.setField(service, "maxIntents", 50);
+    }
+
+    @Test
+    void reduceTruncatesAndNormalizes() {
+        float[] reduced = service.reduce(new float[]{3f, 0f, 0f, 4f, 100f, 100f});
+
+        assertThat(reduced).hasSize(4);
+        assertThat(reduced[0]).isCloseTo(0.6f, within(1e-6f));
+        assertThat(reduced[3]).isCloseTo(0.8f, within(1e-6f));
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        float[] vector = service.reduce(new float[]{1f, 2f, 3f, 4f});
+
+        assertThat(service.fromBytes(service.toBytes(vector))).containsExactly(vector);
+        assertThat(service.fromBytes(new byte[3])).isNull();
+
+        float[][] matrix = {vector, service.reduce(new float[]{4f, 3f, 2f, 1f})};
+        assertThat(service.matrixFromBytes(service.matrixToBytes(matrix))).isDeepEqualTo(matrix);
+    }
+
+    @Test
+    void separatesWellSeparatedGroups() {
+        float[][] vectors = {
+            v(1f, 0f, 0.05f, 0f), v(1f, 0f, 0f, 0.05f), v(1f, 0f, -0.05f, 0f), v(1f, 0f, 0f, -0.05f),
+            v(0f, 1f, 0.05f, 0f), v(0f, 1f, 0f, 0.05f), v(0f, 1f, -0.05f, 0f), v(0f, 1f, 0f, -0.05f)
+        };
+
+        List<Cluster> clusters = service.cluster(vectors);
+
+        assertThat(clusters).hasSize(2);
+        assertThat(clusters).extracting(Cluster::getSize).containsExactly(4, 4);
+
+        Set<Integer> leaderGroups = new HashSet<>();
+        for (Cluster cluster : clusters) {
+            Intent leader = cluster.getIntents().get(0);
+            leaderGroups.add(leader.getLeader() < 4 ? 0 : 1);
+            // The four questions are near-identical: one intent holds them all
+            assertThat(cluster.getIntents()).hasSize(1);
+            assertThat(leader.getCount()).isEqualTo(4);
+        }
+        assertThat(leaderGroups).containsExactlyInAnyOrder(0, 1);
+    }
+
+    @Test
+    void sameInputGivesSameClusters() {
+        float[][] vectors = new float[40][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = v((float) Math.cos(i), (float) Math.sin(i), (float) Math.cos(2 * i), 0.3f);
+        }
+
+        List<Cluster> first = service.cluster(vectors);
+        List<Cluster> second = service.cluster(vectors);
+
+        assertThat(first).extracting(Cluster::getSize).isEqualTo(second.stream().map(Cluster::getSize).toList());
+    }
+
+    @Test
+    void questionsBeyondMaxIntentsJoinTheNearestLeader() {
+        ReflectionTestUtils.setField(service, "maxIntents", 2);
+        ReflectionTestUtils.setField(service, "maxClusters", 1);
+        float[][] vectors = {
+            v(1f, 0f, 0f, 0f), v(0.98f, 0.2f, 0f, 0f),
+            v(0f, 1f, 0f, 0f),
+            v(0f, 0f, 1f, 0f), v(0f, 0f, 0f, 1f)
+        };
+
+        List<Cluster> clusters = service.cluster(vectors);
+
+        assertThat(clusters).hasSize(1);
+        Cluster cluster = clusters.get(0);
+        assertThat(cluster.getIntents()).hasSize(2);
+        assertThat(cluster.getIntents().stream().mapToInt(Intent::getCount).sum()).isEqualTo(cluster.getSize());
+    }
+
+    private float[] v(float... values) {
+        return service.reduce(values);
+    }
+}
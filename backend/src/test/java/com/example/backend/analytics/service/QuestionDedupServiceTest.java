@@ -0,0 +1,88 @@
+package com.example.backend.analytics.service;
+
+import com.example.backend.analytics.repository.AnalyticsQuestionRepository;
+import com.example.backend.user.model.User;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QuestionDedupServiceTest {
+
+    private final AnalyticsQuestionRepository repository = mock(AnalyticsQuestionRepository.class);
+    private final User user = new User();
+    private QuestionDedupService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new QuestionDedupService(repository);
+        ReflectionTestUtils.setField(service, "maxHammingDistance", 3);
+        ReflectionTestUtils.setField(service, "window", 5000);
+        user.setId(1L);
+        when(repository.findExistingHashes(any(), anyList())).thenReturn(List.of());
+        when(repository.findRecentSimHashes(any(), any())).thenReturn(List.of());
+    }
+
+    @Test
+    void normalizeIgnoresCasePunctuationAndNiqqud() {
+        assertThat(service.normalize("  What are your HOURS?! ")).isEqualTo("what are your hours");
+        assertThat(service.normalize("שָׁלוֹם, עוֹלָם")).isEqualTo("שלום עולם");
+    }
+
+    @Test
+    void sameNormalizedTextGivesSameHashes() {
+        assertThat(service.hash("What are your hours?")).isEqualTo(service.hash("what are your hours"));
+        assertThat(service.simHash("What are your hours?")).isEqualTo(service.simHash("what are your hours"));
+        assertThat(service.hash("What are your hours?")).isNotEqualTo(service.hash("Where is the store?"));
+    }
+
+    @Test
+    void differentQuestionsAreFarApart() {
+        long a = service.simHash("How long does shipping to Haifa take");
+        long b = service.simHash("Can I pay with a credit card in installments");
+
+        assertThat(Long.bitCount(a ^ b)).isGreaterThan(3);
+    }
+
+    @Test
+    void dropsExactDuplicatesAndBlanksWithinTheBatch() {
+        List<String> unique = service.removeDuplicates(user,
+            List.of("Do you ship abroad?", "do you ship abroad", "  ", "Is there parking?"));
+
+        assertThat(unique).containsExactly("Do you ship abroad?", "Is there parking?");
+    }
+
+    @Test
+    void dropsQuestionsAlreadyStored() {
+        when(repository.findExistingHashes(any(), anyList()))
+            .thenReturn(List.of(service.hash("Is there parking?")));
+
+        List<String> unique = service.removeDuplicates(user, List.of("Is there parking?", "Do you deliver?"));
+
+        assertThat(unique).containsExactly("Do you deliver?");
+    }
+
+    @Test
+    void nearDuplicateIsWithinTheHammingDistance() {
+        long stored = service.simHash("What time do you open on Friday");
+        when(repository.findRecentSimHashes(any(), any())).thenReturn(List.of(stored ^ 0b101L));
+
+        assertThat(service.removeDuplicates(user, List.of("What time do you open on Friday"))).isEmpty();
+    }
+
+    @Test
+    void distantSimHashIsKept() {
+        long stored = service.simHash("What time do you open on Friday");
+        when(repository.findRecentSimHashes(any(), any())).thenReturn(List.of(stored ^ 0b1111L));
+
+        assertThat(service.removeDuplicates(user, List.of("What time do you open on Friday"))).hasSize(1);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.backend.common.infrastructure.storage;
+
+import com.example.backend.common.infrastructure.storage.S3DiskCache.CachedObject;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class S3DiskCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private S3DiskCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new S3DiskCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "cacheDir", directory.toString());
+        ReflectionTestUtils.setField(cache, "maxBytes", 100L);
+        ReflectionTestUtils.setField(cache, "revalidateSeconds", 300L);
+        cache.init();
+    }
+
+    @Test
+    void storedObjectIsServedFromDisk() throws IOException {
+        cache.put("docs/a.pdf", "\"e1\"", "application/pdf", bytes(10, 'a'));
+
+        CachedObject cached = cache.get("docs/a.pdf");
+
+        assertThat(cached).isNotNull();
+        assertThat(cached.getETag()).isEqualTo("\"e1\"");
+        assertThat(cached.getSize()).isEqualTo(10);
+        assertThat(cache.isFresh(cached)).isTrue();
+        try (InputStream in = cache.open(cached)) {
+            assertThat(in.readAllBytes()).hasSize(10).containsOnly((byte) 'a');
+        }
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenOverBudget() throws IOException {
+        cache.put("a", "e", "application/pdf", bytes(40, 'a'));
+        cache.put("b", "e", "application/pdf", bytes(40, 'b'));
+        // Touch "a", so "b" is now the least recently used
+        cache.get("a");
+
+        cache.put("c", "e", "application/pdf", bytes(40, 'c'));
+
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isNotNull();
+    }
+
+    @Test
+    void evictedFileIsDeletedFromDisk() throws IOException {
+        CachedObject first = cache.put("a", "e", "application/pdf", bytes(60, 'a'));
+
+        cache.put("b", "e", "application/pdf", bytes(60, 'b'));
+
+        assertThat(Files.exists(first.getPath())).isFalse();
+    }
+
+    @Test
+    void tryOpenReturnsNullOnceEvicted() throws IOException {
+        CachedObject cached = cache.put("a", "e", "application/pdf", bytes(10, 'a'));
+        cache.invalidate("a");
+
+        assertThat(cache.tryOpen(cached)).isNull();
+    }
+
+    @Test
+    void openStreamSurvivesEviction() throws IOException {
+        CachedObject cached = cache.put("a", "e", "application/pdf", bytes(10, 'a'));
+
+        try (InputStream in = cache.open(cached)) {
+            cache.invalidate("a");
+            assertThat(in.readAllBytes()).hasSize(10);
+        }
+    }
+
+    @Test
+    void replacingAnObjectFreesTheOldCopy() throws IOException {
+        CachedObject old = cache.put("a", "e1", "application/pdf", bytes(30, 'a'));
+        cache.put("a", "e2", "application/pdf", bytes(30, 'b'));
+        cache.put("b", "e", "application/pdf", bytes(60, 'c'));
+
+        assertThat(Files.exists(old.getPath())).isFalse();
+        assertThat(cache.get("a").getETag()).isEqualTo("e2");
+        assertThat(cache.get("b")).isNotNull();
+    }
+
+    @Test
+    void onlyObjectsUpToAQuarterOfTheCacheAreCacheable() {
+        assertThat(cache.isCacheable(25)).isTrue();
+        assertThat(cache.isCacheable(26)).isFalse();
+    }
+
+    private InputStream bytes(int size, char fill) {
+        byte[] data = new byte[size];
+        Arrays.fill(data, (byte) fill);
+        return new ByteArrayInputStream(data);
+    }
+}
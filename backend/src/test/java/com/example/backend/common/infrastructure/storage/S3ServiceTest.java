@@ -0,0 +1,256 @@
+package com.example.backend.common.infrastructure.storage;
+
+import com.example.backend.common.infrastructure.storage.S3Service.PresignedUrl;
+import com.example.backend.common.metrics.RagMetrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Error;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class S3ServiceTest {
+
+    private static final String ETAG = "\"9b2cf535f27731c974343645a3985328\"";
+
+    private final S3Presigner presigner = mock(S3Presigner.class);
+    private final S3Client s3Client = mock(S3Client.class);
+    private final S3AsyncClient s3AsyncClient = mock(S3AsyncClient.class);
+    private final AtomicInteger signed = new AtomicInteger();
+    private S3Service service;
+
+    // Validity of the next URLs the presigner hands out
+    private long validForSeconds = 3600;
+
+    @BeforeEach
+    void setUp() {
+        RagMetrics metrics = new RagMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP);
+        service = new S3Service(mock(S3DiskCache.class), metrics, ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(service, "bucketName", "bucket");
+        ReflectionTestUtils.setField(service, "presignMinRemainingSeconds", 600L);
+        ReflectionTestUtils.setField(service, "presigner", presigner);
+        ReflectionTestUtils.setField(service, "s3Client", s3Client);
+        ReflectionTestUtils.setField(service, "s3AsyncClient", s3AsyncClient);
+
+        when(presigner.presignGetObject(any(GetObjectPresignRequest.class))).thenAnswer(invocation -> {
+            PresignedGetObjectRequest request = mock(PresignedGetObjectRequest.class);
+            when(request.url()).thenReturn(new URL("https://bucket.s3/" + signed.incrementAndGet()));
+            when(request.expiration()).thenReturn(Instant.now().plusSeconds(validForSeconds));
+            return request;
+        });
+    }
+
+    @Test
+    void matchesSingleQuotedTag() {
+        assertThat(S3Service.eTagMatches(ETAG, ETAG)).isTrue();
+    }
+
+    @Test
+    void matchesAnyTagInAList() {
+        assertThat(S3Service.eTagMatches("\"other\", " + ETAG + " ,\"third\"", ETAG)).isTrue();
+        assertThat(S3Service.eTagMatches("\"other\", \"third\"", ETAG)).isFalse();
+    }
+
+    @Test
+    void comparesWeakly() {
+        assertThat(S3Service.eTagMatches("W/" + ETAG, ETAG)).isTrue();
+    }
+
+    @Test
+    void starMatchesAnyObject() {
+        assertThat(S3Service.eTagMatches(" * ", ETAG)).isTrue();
+    }
+
+    @Test
+    void missingHeaderOrTagNeverMatches() {
+        assertThat(S3Service.eTagMatches(null, ETAG)).isFalse();
+        assertThat(S3Service.eTagMatches("  ", ETAG)).isFalse();
+        assertThat(S3Service.eTagMatches("*", null)).isFalse();
+    }
+
+    // ==================== Presigned URL cache ====================
+
+    @Test
+    void reusesUrlWhileMoreThanTheMinimumRemains() {
+        String first = service.getPresignedUrl("a.pdf", 3600);
+
+        assertThat(service.getPresignedUrl("a.pdf", 3600)).isEqualTo(first);
+        assertThat(signed).hasValue(1);
+    }
+
+    @Test
+    void resignsOnceLessThanTheMinimumRemains() {
+        // A 3600s URL that already has under 600s left
+        validForSeconds = 500;
+        String first = service.getPresignedUrl("a.pdf", 3600);
+
+        assertThat(service.getPresignedUrl("a.pdf", 3600)).isNotEqualTo(first);
+        assertThat(signed).hasValue(2);
+    }
+
+    @Test
+    void shortUrlsAreReusedForHalfTheirLifetime() {
+        // min(600, 60 / 2) = 30s must remain
+        validForSeconds = 60;
+        String first = service.getPresignedUrl("a.pdf", 60);
+        assertThat(service.getPresignedUrl("a.pdf", 60)).isEqualTo(first);
+
+        validForSeconds = 20;
+        String second = service.getPresignedUrl("b.pdf", 60);
+        assertThat(service.getPresignedUrl("b.pdf", 60)).isNotEqualTo(second);
+    }
+
+    @Test
+    void variantsAreCachedSeparately() {
+        String plain = service.getPresignedUrl("a.pdf", 3600);
+        String download = service.getPresignedUrl("a.pdf", 3600, "attachment", "application/pdf");
+
+        assertThat(download).isNotEqualTo(plain);
+        assertThat(service.getPresignedUrl("a.pdf", 3600, "attachment", "application/pdf")).isEqualTo(download);
+        assertThat(signed).hasValue(2);
+    }
+
+    @Test
+    void fullCacheSweepsExpiredObjectsBeforeAddingANewOne() {
+        Map<String, Map<String, PresignedUrl>> cache = cache();
+        fill(cache, 10_000, Instant.now().minusSeconds(1));
+
+        service.getPresignedUrl("new.pdf", 3600);
+
+        assertThat(cache).containsOnlyKeys("new.pdf");
+    }
+
+    @Test
+    void fullCacheOfLiveUrlsTakesNoNewObjects() {
+        Map<String, Map<String, PresignedUrl>> cache = cache();
+        fill(cache, 10_000, Instant.now().plusSeconds(3600));
+
+        service.getPresignedUrl("new.pdf", 3600);
+        service.getPresignedUrl("new.pdf", 3600);
+
+        assertThat(cache).hasSize(10_000).doesNotContainKey("new.pdf");
+        assertThat(signed).hasValue(2);
+    }
+
+    @Test
+    void deleteFileEvictsEveryVariantOfTheObject() {
+        service.getPresignedUrl("a.pdf", 3600);
+        service.getPresignedUrl("a.pdf", 3600, "attachment", "application/pdf");
+        service.getPresignedUrl("b.pdf", 3600);
+
+        service.deleteFile("a.pdf");
+
+        verify(s3Client).deleteObject(any(DeleteObjectRequest.class));
+        assertThat(cache()).containsOnlyKeys("b.pdf");
+        service.getPresignedUrl("a.pdf", 3600);
+        verify(presigner, times(4)).presignGetObject(any(GetObjectPresignRequest.class));
+    }
+
+    // ==================== Bulk delete ====================
+
+    @Test
+    void deletesInBatchesOfAThousandKeys() {
+        when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class)))
+            .thenReturn(CompletableFuture.completedFuture(DeleteObjectsResponse.builder().build()));
+
+        S3Service.DeleteResult result = service.deleteFiles(keys(0, 2500));
+
+        List<Integer> batchSizes = mockingDetails(s3AsyncClient).getInvocations().stream()
+            .map(invocation -> ((DeleteObjectsRequest) invocation.getArgument(0)).delete().objects().size())
+            .toList();
+        assertThat(batchSizes).containsExactly(1000, 1000, 500);
+        assertThat(result.getDeletedCount()).isEqualTo(2500);
+        assertThat(result.getFailedKeys()).isEmpty();
+    }
+
+    @Test
+    void keysWithPerKeyErrorsAreReportedAsFailed() {
+        when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class)))
+            .thenReturn(CompletableFuture.completedFuture(DeleteObjectsResponse.builder()
+                .errors(S3Error.builder().key("k1").code("AccessDenied").build(),
+                        S3Error.builder().key("k3").code("InternalError").build())
+                .build()));
+
+        S3Service.DeleteResult result = service.deleteFiles(keys(0, 5));
+
+        assertThat(result.getFailedKeys()).containsExactly("k1", "k3");
+        assertThat(result.getDeletedCount()).isEqualTo(3);
+    }
+
+    @Test
+    void failedBatchReportsAllItsKeysAndOthersStillCount() {
+        when(s3AsyncClient.deleteObjects(argThat((DeleteObjectsRequest request) -> containsKey(request, "k0"))))
+            .thenReturn(CompletableFuture.failedFuture(new RuntimeException("SlowDown")));
+        when(s3AsyncClient.deleteObjects(argThat((DeleteObjectsRequest request) -> containsKey(request, "k1000"))))
+            .thenReturn(CompletableFuture.completedFuture(DeleteObjectsResponse.builder().build()));
+
+        S3Service.DeleteResult result = service.deleteFiles(keys(0, 1500));
+
+        assertThat(result.getFailedKeys()).containsExactlyElementsOf(keys(0, 1000));
+        assertThat(result.getDeletedCount()).isEqualTo(500);
+    }
+
+    @Test
+    void bulkDeleteEvictsPresignedUrls() {
+        when(s3AsyncClient.deleteObjects(any(DeleteObjectsRequest.class)))
+            .thenReturn(CompletableFuture.completedFuture(DeleteObjectsResponse.builder().build()));
+        service.getPresignedUrl("k0", 3600);
+        service.getPresignedUrl("other.pdf", 3600);
+
+        service.deleteFiles(keys(0, 2));
+
+        assertThat(cache()).containsOnlyKeys("other.pdf");
+    }
+
+    private static List<String> keys(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "k" + i).toList();
+    }
+
+    private static boolean containsKey(DeleteObjectsRequest request, String key) {
+        return request != null && request.delete().objects().stream().map(ObjectIdentifier::key).anyMatch(key::equals);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Map<String, PresignedUrl>> cache() {
+        return (Map<String, Map<String, PresignedUrl>>) ReflectionTestUtils.getField(service, "presignedUrlCache");
+    }
+
+    private static void fill(Map<String, Map<String, PresignedUrl>> cache, int objects, Instant expiresAt) {
+        for (int i = 0; i < objects; i++) {
+            PresignedUrl url = new PresignedUrl();
+            url.setUrl("https://bucket.s3/old-" + i);
+            url.setExpiresAt(expiresAt);
+            Map<String, PresignedUrl> variants = new ConcurrentHashMap<>();
+            variants.put("3600|null|null", url);
+            cache.put("old-" + i + ".pdf", variants);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.backend.common.infrastructure.vectordb;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class QdrantVectorServiceTest {
+
+    private static final float[] QUERY = {1f, 0f};
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void hitInBothListsRanksFirst() throws Exception {
+        JsonNode dense = json("""
+            [{"id": "a", "score": 0.9, "payload": {"text_segment": "A"}},
+             {"id": "b", "score": 0.8, "payload": {"text_segment": "B"}}]""");
+        JsonNode sparse = json("""
+            [{"id": "b", "score": 7.0, "payload": {"text_segment": "B"}, "vector": {"": [0.8, 0.6]}}]""");
+
+        List<EmbeddingMatch<TextSegment>> matches = QdrantVectorService.fuseWithRrf(dense, sparse, QUERY, 10);
+
+        assertThat(matches).extracting(EmbeddingMatch::embeddingId).containsExactly("b", "a");
+        // Dense hits keep their dense score, not the sparse one
+        assertThat(matches.get(0).score()).isEqualTo(0.8);
+        assertThat(matches.get(0).embedded().text()).isEqualTo("B");
+    }
+
+    @Test
+    void sparseOnlyHitGetsCosineOfStoredVector() throws Exception {
+        JsonNode dense = json("""
+            [{"id": "a", "score": 0.9, "payload": {"text_segment": "A"}}]""");
+        JsonNode sparse = json("""
+            [{"id": "c", "score": 3.0, "payload": {"text_segment": "C"}, "vector": {"": [0.0, 2.0], "bm25": {}}},
+             {"id": "d", "score": 2.0, "payload": {"text_segment": "D"}, "vector": {"": [3.0, 4.0]}}]""");
+
+        List<EmbeddingMatch<TextSegment>> matches = QdrantVectorService.fuseWithRrf(dense, sparse, QUERY, 10);
+
+        assertThat(matches).extracting(EmbeddingMatch::embeddingId).containsExactly("a", "c", "d");
+        assertThat(matches.get(1).score()).isCloseTo(0.0, within(1e-6));
+        assertThat(matches.get(2).score()).isCloseTo(0.6, within(1e-6));
+    }
+
+    @Test
+    void fusionKeepsMaxResults() throws Exception {
+        JsonNode dense = json("""
+            [{"id": "a", "score": 0.9, "payload": {"text_segment": "A"}},
+             {"id": "b", "score": 0.8, "payload": {"text_segment": "B"}},
+             {"id": "c", "score": 0.7, "payload": {"text_segment": "C"}}]""");
+
+        List<EmbeddingMatch<TextSegment>> matches =
+            QdrantVectorService.fuseWithRrf(dense, json("[]"), QUERY, 2);
+
+        assertThat(matches).extracting(EmbeddingMatch::embeddingId).containsExactly("a", "b");
+    }
+
+    @Test
+    void denseVectorReadsPlainAndNamedVectors() throws Exception {
+        assertThat(QdrantVectorService.denseVector(json("[1.0, 2.0]"))).containsExactly(1f, 2f);
+        assertThat(QdrantVectorService.denseVector(json("{\"\": [3.0], \"bm25\": {}}"))).containsExactly(3f);
+        assertThat(QdrantVectorService.denseVector(json("{\"bm25\": {}}"))).isNull();
+    }
+
+    @Test
+    void cosineIsZeroWithoutStoredVector() {
+        assertThat(QdrantVectorService.cosine(QUERY, null)).isZero();
+        assertThat(QdrantVectorService.cosine(QUERY, new float[]{1f, 0f, 0f})).isZero();
+        assertThat(QdrantVectorService.cosine(QUERY, new float[]{2f, 0f})).isCloseTo(1.0, within(1e-9));
+    }
+
+    private JsonNode json(String text) throws Exception {
+        return mapper.readTree(text);
+    }
+}
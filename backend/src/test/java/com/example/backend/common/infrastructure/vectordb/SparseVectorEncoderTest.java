@@ -0,0 +1,64 @@
+package com.example.backend.common.infrastructure.vectordb;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SparseVectorEncoderTest {
+
+    private final SparseVectorEncoder encoder = new SparseVectorEncoder();
+
+    @Test
+    void keepsCodesWholeAndSplit() {
+        List<String> tokens = encoder.tokenize("Order AB-1234 today");
+
+        assertThat(tokens).contains("order", "ab-1234", "ab", "1234", "today");
+    }
+
+    @Test
+    void addsHebrewWordWithoutPrefix() {
+        List<String> tokens = encoder.tokenize("והמסמך");
+
+        assertThat(tokens).containsExactly("והמסמך", "המסמך");
+    }
+
+    @Test
+    void dropsSingleLettersButKeepsDigits() {
+        List<String> tokens = encoder.tokenize("a b 7 (x)");
+
+        assertThat(tokens).containsExactly("7");
+    }
+
+    @Test
+    void emptyTextGivesEmptyVector() {
+        assertThat(encoder.encodeQuery("").isEmpty()).isTrue();
+        assertThat(encoder.encodeDocument(null).isEmpty()).isTrue();
+    }
+
+    @Test
+    void queryTermsWeighOneEach() {
+        SparseVectorEncoder.SparseVector query = encoder.encodeQuery("refund refund policy");
+
+        assertThat(query.getIndices()).hasSize(2);
+        assertThat(query.getValues()).containsOnly(1f);
+    }
+
+    @Test
+    void documentTermFrequencySaturates() {
+        SparseVectorEncoder.SparseVector once = encoder.encodeDocument("refund");
+        SparseVectorEncoder.SparseVector many = encoder.encodeDocument("refund refund refund refund refund refund");
+
+        assertThat(many.getIndices()).containsExactly(once.getIndices());
+        assertThat(many.getValues()[0]).isGreaterThan(once.getValues()[0]).isLessThan(2.2f);
+    }
+
+    @Test
+    void sameTermGetsSameIndexInQueryAndDocument() {
+        SparseVectorEncoder.SparseVector query = encoder.encodeQuery("Warranty");
+        SparseVectorEncoder.SparseVector document = encoder.encodeDocument("the warranty period");
+
+        assertThat(document.getIndices()).contains(query.getIndices()[0]);
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.backend.document.service;
+
+import com.example.backend.common.exception.ValidationException;
+import com.example.backend.document.dto.BulkUploadResponse;
+import com.example.backend.document.dto.BulkUploadResponse.SkippedFile;
+import com.example.backend.document.service.DocumentStagingService.StagedFile;
+import com.example.backend.user.model.User;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkUploadServiceTest {
+
+    private static final long MAX_FILE_BYTES = 100;
+
+    @TempDir
+    Path stagingDir;
+
+    private final DocumentService documentService = mock(DocumentService.class);
+    private final IngestionScheduler ingestionScheduler = mock(IngestionScheduler.class);
+    private final User user = User.builder().id(1L).build();
+    private final List<StagedFile> created = new ArrayList<>();
+    private DocumentStagingService stagingService;
+    private BulkUploadService service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        DocumentStagingService staging = new DocumentStagingService();
+        ReflectionTestUtils.setField(staging, "stagingDir", stagingDir.toString());
+        staging.init();
+        stagingService = spy(staging);
+
+        service = new BulkUploadService(documentService, stagingService, ingestionScheduler);
+        ReflectionTestUtils.setField(service, "maxFiles", 5);
+        ReflectionTestUtils.setField(service, "maxFileBytes", MAX_FILE_BYTES);
+        ReflectionTestUtils.setField(service, "maxTotalBytes", 1000L);
+
+        // Echo what was staged and skipped, so tests can inspect it
+        when(documentService.createDocuments(anyList(), anyList(), any())).thenAnswer(invocation -> {
+            created.addAll(invocation.getArgument(0));
+            List<SkippedFile> skipped = invocation.getArgument(1);
+            return BulkUploadResponse.builder().documents(List.of()).skipped(skipped).build();
+        });
+    }
+
+    @Test
+    void nonPdfEntryIsSkippedAndTheRestStaged() throws IOException {
+        BulkUploadResponse response = service.uploadZip(zip(
+            deflated("docs/readme.txt", 10),
+            deflated("docs/a.pdf", 10)), user);
+
+        assertThat(response.getSkipped()).extracting(SkippedFile::getFileName, SkippedFile::getReason)
+            .containsExactly(tuple("readme.txt", "unsupported_type"));
+        assertThat(created).extracting(StagedFile::getFileName).containsExactly("a.pdf");
+        assertThat(created.get(0).getSize()).isEqualTo(10);
+    }
+
+    @Test
+    void entryDeclaredTooLargeIsSkippedWithoutStaging() throws IOException {
+        BulkUploadResponse response = service.uploadZip(zip(
+            stored("big.pdf", (int) MAX_FILE_BYTES + 1),
+            stored("small.pdf", 10)), user);
+
+        assertThat(response.getSkipped()).extracting(SkippedFile::getReason).containsExactly("too_large");
+        assertThat(created).extracting(StagedFile::getFileName).containsExactly("small.pdf");
+        verify(stagingService, never()).stage(eq("big.pdf"), any(), anyLong());
+    }
+
+    @Test
+    void oversizeEntryOfUnknownSizeIsSkippedAndItsPartialFileRemoved() throws IOException {
+        BulkUploadResponse response = service.uploadZip(zip(
+            deflated("big.pdf", (int) MAX_FILE_BYTES + 1),
+            deflated("small.pdf", 10)), user);
+
+        assertThat(response.getSkipped()).extracting(SkippedFile::getFileName).containsExactly("big.pdf");
+        assertThat(response.getSkipped()).extracting(SkippedFile::getReason).containsExactly("too_large");
+        assertThat(created).extracting(StagedFile::getFileName).containsExactly("small.pdf");
+        assertThat(stagedFiles()).containsExactly(created.get(0).getPath());
+    }
+
+    @Test
+    void archiveOverTheTotalBudgetFailsAndDeletesStagedFiles() throws IOException {
+        ReflectionTestUtils.setField(service, "maxTotalBytes", 150L);
+
+        assertThatThrownBy(() -> service.uploadZip(zip(
+            deflated("a.pdf", 80),
+            deflated("b.pdf", 80)), user))
+            .isInstanceOf(ValidationException.class);
+
+        assertThat(stagedFiles()).isEmpty();
+        verify(documentService, never()).createDocuments(anyList(), anyList(), any());
+    }
+
+    @Test
+    void skippedEntriesCountTowardTheTotalBudget() throws IOException {
+        ReflectionTestUtils.setField(service, "maxTotalBytes", 150L);
+
+        assertThatThrownBy(() -> service.uploadZip(zip(
+            deflated("a.pdf", 80),
+            deflated("notes.txt", 80)), user))
+            .isInstanceOf(ValidationException.class);
+
+        assertThat(stagedFiles()).isEmpty();
+    }
+
+    @Test
+    void macosxFoldersAndDotFilesAreIgnoredAndNotCounted() throws IOException {
+        ReflectionTestUtils.setField(service, "maxFiles", 1);
+
+        BulkUploadResponse response = service.uploadZip(zip(
+            directory("__MACOSX/"),
+            deflated("__MACOSX/._a.pdf", 10),
+            deflated(".DS_Store", 10),
+            deflated("docs/.hidden.pdf", 10),
+            deflated("a.pdf", 10)), user);
+
+        assertThat(response.getSkipped()).isEmpty();
+        assertThat(created).extracting(StagedFile::getFileName).containsExactly("a.pdf");
+    }
+
+    @Test
+    void archiveWithTooManyFilesFailsAndDeletesStagedFiles() throws IOException {
+        ReflectionTestUtils.setField(service, "maxFiles", 2);
+
+        assertThatThrownBy(() -> service.uploadZip(zip(
+            deflated("a.pdf", 10),
+            deflated("b.pdf", 10),
+            deflated("c.txt", 10)), user))
+            .isInstanceOf(ValidationException.class);
+
+        assertThat(stagedFiles()).isEmpty();
+        verify(documentService, never()).createDocuments(anyList(), anyList(), any());
+    }
+
+    private List<Path> stagedFiles() throws IOException {
+        try (Stream<Path> files = Files.list(stagingDir)) {
+            return files.toList();
+        }
+    }
+
+    // ==================== In-memory zips ====================
+
+    private record Entry(String name, byte[] content, boolean stored) {
+    }
+
+    // Deflated entries carry their size only after the data, so it reads as unknown (-1)
+    private static Entry deflated(String name, int size) {
+        return new Entry(name, new byte[size], false);
+    }
+
+    // Stored entries declare their size in the local header
+    private static Entry stored(String name, int size) {
+        return new Entry(name, new byte[size], true);
+    }
+
+    private static Entry directory(String name) {
+        return new Entry(name, null, false);
+    }
+
+    private static InputStream zip(Entry... entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Entry entry : entries) {
+                ZipEntry zipEntry = new ZipEntry(entry.name());
+                if (entry.stored()) {
+                    CRC32 crc = new CRC32();
+                    crc.update(entry.content());
+                    zipEntry.setMethod(ZipEntry.STORED);
+                    zipEntry.setSize(entry.content().length);
+                    zipEntry.setCompressedSize(entry.content().length);
+                    zipEntry.setCrc(crc.getValue());
+                }
+                zip.putNextEntry(zipEntry);
+                if (entry.content() != null) {
+                    zip.write(entry.content());
+                }
+                zip.closeEntry();
+            }
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
+}
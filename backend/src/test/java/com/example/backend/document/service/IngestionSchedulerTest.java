@@ -0,0 +1,186 @@
+package com.example.backend.document.service;
+
+import com.example.backend.common.exception.TooManyRequestsException;
+import com.example.backend.common.metrics.RagMetrics;
+import com.example.backend.document.event.DocumentCreatedEvent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class IngestionSchedulerTest {
+
+    private static final long SMALL = 1_000;
+    private static final long LARGE = 10_000_000;
+
+    private final DocumentProcessingService processingService = mock(DocumentProcessingService.class);
+    private final DocumentStagingService stagingService = mock(DocumentStagingService.class);
+    private final ManualExecutor executor = new ManualExecutor();
+    private final List<Long> processed = new ArrayList<>();
+    private IngestionScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RagMetrics metrics = new RagMetrics(registry, ObservationRegistry.NOOP);
+        ReflectionTestUtils.setField(metrics, "tenantTagLimit", 100);
+
+        scheduler = new IngestionScheduler(processingService, stagingService, executor, registry, metrics);
+        ReflectionTestUtils.setField(scheduler, "maxConcurrent", 1);
+        ReflectionTestUtils.setField(scheduler, "perTenantMaxConcurrent", 1);
+        ReflectionTestUtils.setField(scheduler, "perTenantMaxQueued", 200);
+        ReflectionTestUtils.setField(scheduler, "maxQueuedBytes", 1_000_000_000L);
+        ReflectionTestUtils.setField(scheduler, "smallDocumentBytes", 1_048_576L);
+        ReflectionTestUtils.setField(scheduler, "smallDocumentMaxWaitSeconds", 60L);
+
+        doAnswer(invocation -> processed.add(invocation.getArgument(0)))
+            .when(processingService).processDocument(any(), any(), any(), any(), anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void capsRunningJobsPerTenant() {
+        ReflectionTestUtils.setField(scheduler, "maxConcurrent", 8);
+        ReflectionTestUtils.setField(scheduler, "perTenantMaxConcurrent", 2);
+
+        for (long id = 1; id <= 5; id++) {
+            scheduler.submit(event(id, 1L, LARGE));
+        }
+        scheduler.submit(event(6, 2L, LARGE));
+
+        assertThat(executor.tasks).hasSize(3);
+    }
+
+    @Test
+    void tenantsTakeTurns() {
+        scheduler.submit(event(1, 1L, LARGE));
+        scheduler.submit(event(2, 1L, LARGE));
+        scheduler.submit(event(3, 1L, LARGE));
+        scheduler.submit(event(11, 2L, LARGE));
+        scheduler.submit(event(12, 2L, LARGE));
+
+        executor.runAll();
+
+        // Tenant 1 was alone in the ring for its first two; after that the tenants alternate
+        assertThat(processed).containsExactly(1L, 2L, 11L, 3L, 12L);
+    }
+
+    @Test
+    void smallDocumentsGoFirst() {
+        scheduler.submit(event(1, 1L, LARGE));
+        scheduler.submit(event(2, 1L, LARGE));
+        scheduler.submit(event(3, 1L, SMALL));
+
+        executor.runAll();
+
+        assertThat(processed).containsExactly(1L, 3L, 2L);
+    }
+
+    @Test
+    void agedLargeDocumentIsNotOvertaken() {
+        ReflectionTestUtils.setField(scheduler, "smallDocumentMaxWaitSeconds", 0L);
+
+        scheduler.submit(event(1, 1L, LARGE));
+        scheduler.submit(event(2, 1L, LARGE));
+        scheduler.submit(event(3, 1L, SMALL));
+
+        executor.runAll();
+
+        assertThat(processed).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void refusesUploadsBeyondTheTenantQueue() {
+        ReflectionTestUtils.setField(scheduler, "perTenantMaxQueued", 2);
+        scheduler.submit(event(1, 1L, LARGE));
+        scheduler.submit(event(2, 1L, LARGE));
+        scheduler.submit(event(3, 1L, LARGE));
+
+        assertThatThrownBy(() -> scheduler.checkCapacity(1L, 1, 0)).isInstanceOf(TooManyRequestsException.class);
+        scheduler.checkCapacity(2L, 2, 0);
+    }
+
+    @Test
+    void refusesUploadsBeyondTheMemoryBudget() {
+        ReflectionTestUtils.setField(scheduler, "maxQueuedBytes", 100L);
+
+        assertThatThrownBy(() -> scheduler.checkCapacity(1L, 1, 101)).isInstanceOf(TooManyRequestsException.class);
+        scheduler.checkCapacity(1L, 1, 100);
+    }
+
+    @Test
+    void refusedJobIsRequeuedAndDispatchPausesUntilACompletion() {
+        ReflectionTestUtils.setField(scheduler, "maxConcurrent", 4);
+        ReflectionTestUtils.setField(scheduler, "perTenantMaxConcurrent", 4);
+
+        scheduler.submit(event(1, 1L, LARGE));
+        executor.reject = true;
+        scheduler.submit(event(2, 1L, LARGE));
+        executor.reject = false;
+        scheduler.submit(event(3, 1L, LARGE));
+
+        // Paused: nothing more is handed over until job 1 completes
+        assertThat(executor.tasks).hasSize(1);
+
+        executor.runAll();
+
+        assertThat(processed).containsExactly(1L, 2L, 3L);
+        verify(processingService, never()).markAsFailed(any(), anyString());
+    }
+
+    @Test
+    void refusedJobWithNothingRunningIsDroppedAndItsFileDeleted() {
+        Path staged = Path.of("upload-1.tmp");
+        executor.reject = true;
+
+        scheduler.submit(new DocumentCreatedEvent(7L, staged, "a.pdf", LARGE, "users/1/a.pdf", 1L, "c1"));
+
+        verify(processingService).markAsFailed(eq(7L), anyString());
+        verify(stagingService).delete(staged);
+        scheduler.checkCapacity(1L, 200, 0);
+    }
+
+    private DocumentCreatedEvent event(long documentId, Long tenantId, long size) {
+        return new DocumentCreatedEvent(documentId, null, "doc.pdf", "application/pdf", size,
+            "users/" + tenantId + "/doc.pdf", tenantId, "collection-" + tenantId);
+    }
+
+    // Runs tasks only when asked, so the test controls when jobs complete
+    private static class ManualExecutor implements Executor {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private boolean reject = false;
+
+        @Override
+        public void execute(Runnable task) {
+            if (reject) {
+                throw new RejectedExecutionException("full");
+            }
+            tasks.add(task);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.poll().run();
+            }
+        }
+    }
+}
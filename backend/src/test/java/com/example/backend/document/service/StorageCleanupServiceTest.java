@@ -0,0 +1,99 @@
+package com.example.backend.document.service;
+
+import com.example.backend.common.infrastructure.storage.S3Service;
+import com.example.backend.common.infrastructure.storage.S3Service.DeleteResult;
+import com.example.backend.document.model.PendingStorageDeletion;
+import com.example.backend.document.repository.PendingStorageDeletionRepository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StorageCleanupServiceTest {
+
+    private final S3Service s3Service = mock(S3Service.class);
+    private final PendingStorageDeletionRepository pendingRepository = mock(PendingStorageDeletionRepository.class);
+    private StorageCleanupService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new StorageCleanupService(s3Service, pendingRepository);
+        ReflectionTestUtils.setField(service, "maxAttempts", 2);
+        ReflectionTestUtils.setField(service, "initialBackoffMs", 0L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void keysStillFailingAfterRetriesAreStored() {
+        when(s3Service.deleteFiles(anyList()))
+            .thenReturn(result(List.of("a", "b")))
+            .thenReturn(result(List.of("b")));
+        when(pendingRepository.findByFilePathIn(anyList())).thenReturn(List.of());
+
+        List<String> remaining = service.deleteFiles(7L, List.of("a", "b", "c"));
+
+        assertThat(remaining).containsExactly("b");
+        ArgumentCaptor<List<PendingStorageDeletion>> saved = ArgumentCaptor.forClass(List.class);
+        verify(pendingRepository).saveAll(saved.capture());
+        assertThat(saved.getValue()).singleElement().satisfies(row -> {
+            assertThat(row.getFilePath()).isEqualTo("b");
+            assertThat(row.getUserId()).isEqualTo(7L);
+        });
+    }
+
+    @Test
+    void nothingIsStoredWhenEverythingIsDeleted() {
+        when(s3Service.deleteFiles(anyList())).thenReturn(result(List.of()));
+
+        service.deleteFiles(7L, List.of("a"));
+
+        verify(pendingRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sweepRemovesDeletedRowsAndKeepsFailingOnes() {
+        PendingStorageDeletion gone = row("a");
+        PendingStorageDeletion stuck = row("b");
+        when(pendingRepository.findByLastAttemptAtBeforeOrderByLastAttemptAtAsc(any(), any()))
+            .thenReturn(List.of(gone, stuck));
+        when(s3Service.deleteFiles(List.of("a", "b"))).thenReturn(result(List.of("b")));
+
+        service.retryPending();
+
+        ArgumentCaptor<List<PendingStorageDeletion>> deleted = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<PendingStorageDeletion>> kept = ArgumentCaptor.forClass(List.class);
+        verify(pendingRepository).deleteAll(deleted.capture());
+        verify(pendingRepository).saveAll(kept.capture());
+        assertThat(deleted.getValue()).containsExactly(gone);
+        assertThat(kept.getValue()).containsExactly(stuck);
+        assertThat(stuck.getAttempts()).isEqualTo(4);
+        assertThat(stuck.getLastAttemptAt()).isAfter(LocalDateTime.now().minusMinutes(1));
+    }
+
+    private static PendingStorageDeletion row(String filePath) {
+        return PendingStorageDeletion.builder()
+            .filePath(filePath)
+            .attempts(3)
+            .lastAttemptAt(LocalDateTime.now().minusHours(1))
+            .build();
+    }
+
+    private static DeleteResult result(List<String> failedKeys) {
+        DeleteResult result = new DeleteResult();
+        result.setFailedKeys(failedKeys);
+        return result;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.backend.query.service;
+
+import com.example.backend.common.infrastructure.vectordb.SparseVectorEncoder;
+import com.example.backend.query.dto.PublicQueryRequest.HistoryMessage;
+import com.example.backend.query.service.ContextAssemblyService.AssembledContext;
+import com.example.backend.query.service.QueryService.RelevantDocument;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextAssemblyServiceTest {
+
+    private ContextAssemblyService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ContextAssemblyService(new SparseVectorEncoder());
+        ReflectionTestUtils.setField(service, "maxPromptTokens", 6000);
+        ReflectionTestUtils.setField(service, "maxChunkTokens", 2500);
+        ReflectionTestUtils.setField(service, "mmrLambda", 0.7);
+    }
+
+    @Test
+    void mmrSkipsNearDuplicateChunk() {
+        RelevantDocument first = chunk("Returns are accepted within 14 days of delivery", "1", 0);
+        RelevantDocument duplicate = chunk("Returns are accepted within 14 days of delivery", "2", 0);
+        RelevantDocument other = chunk("Shipping to Eilat takes three business days", "3", 0);
+
+        AssembledContext context = service.assemble(List.of(first, duplicate, other), List.of(), 100, 2);
+
+        assertThat(context.getDocuments()).containsExactly(first, other);
+    }
+
+    @Test
+    void chunksOverBudgetAreSkippedButBestIsAlwaysKept() {
+        ReflectionTestUtils.setField(service, "maxChunkTokens", 30);
+        RelevantDocument large = chunk("warranty terms ".repeat(40), "1", 0);
+        RelevantDocument tooLarge = chunk("delivery options ".repeat(40), "2", 0);
+        RelevantDocument small = chunk("Open Sunday to Thursday", "3", 0);
+
+        AssembledContext context = service.assemble(List.of(large, tooLarge, small), List.of(), 100, 3);
+
+        assertThat(context.getDocuments()).containsExactly(large);
+
+        AssembledContext fitting = service.assemble(List.of(small, tooLarge), List.of(), 100, 3);
+        assertThat(fitting.getDocuments()).containsExactly(small);
+    }
+
+    @Test
+    void oldestHistoryIsDroppedFirst() {
+        ReflectionTestUtils.setField(service, "maxPromptTokens", 140);
+        List<HistoryMessage> history = List.of(
+            new HistoryMessage("user", "first question ".repeat(10)),
+            new HistoryMessage("assistant", "first answer ".repeat(10)),
+            new HistoryMessage("user", "second question"));
+
+        AssembledContext context = service.assemble(List.of(), history, 100, 5);
+
+        assertThat(context.getHistory()).extracting(HistoryMessage::getContent)
+            .containsExactly("first answer ".repeat(10), "second question");
+    }
+
+    @Test
+    void adjacentChunksAreMergedWithoutTheirOverlap() {
+        String overlap = "the warranty covers parts and labour";
+        RelevantDocument first = chunk("Every product has a two year warranty, and " + overlap, "7", 3);
+        RelevantDocument second = chunk(overlap + " at any authorised service centre.", "7", 4);
+
+        AssembledContext context = service.assemble(List.of(first, second), List.of(), 100, 5);
+
+        assertThat(context.getDocuments()).hasSize(1);
+        RelevantDocument merged = context.getDocuments().get(0);
+        assertThat(merged.getText()).isEqualTo(
+            "Every product has a two year warranty, and " + overlap + " at any authorised service centre.");
+        assertThat(merged.getChunkIndex()).isEqualTo(4);
+    }
+
+    @Test
+    void shortCoincidentalMatchIsNotTreatedAsOverlap() {
+        RelevantDocument first = chunk("Delivery is free on orders over 200 shekels.", "7", 0);
+        RelevantDocument second = chunk(". Express delivery costs extra.", "7", 1);
+
+        AssembledContext context = service.assemble(List.of(first, second), List.of(), 100, 5);
+
+        assertThat(context.getDocuments().get(0).getText())
+            .isEqualTo("Delivery is free on orders over 200 shekels.\n. Express delivery costs extra.");
+    }
+
+    @Test
+    void nonAdjacentChunksStaySeparate() {
+        RelevantDocument first = chunk("Chapter one text about returns", "7", 0);
+        RelevantDocument third = chunk("Chapter three text about shipping", "7", 2);
+
+        AssembledContext context = service.assemble(List.of(first, third), List.of(), 100, 5);
+
+        assertThat(context.getDocuments()).containsExactly(first, third);
+    }
+
+    private RelevantDocument chunk(String text, String documentId, int chunkIndex) {
+        RelevantDocument document = new RelevantDocument();
+        document.setText(text);
+        document.setScore(0.8);
+        document.setDocumentName("doc-" + documentId + ".pdf");
+        document.setDocumentId(documentId);
+        document.setChunkIndex(chunkIndex);
+        return document;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.backend.query.service;
+
+import com.example.backend.common.infrastructure.vectordb.SparseVectorEncoder;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RerankServiceTest {
+
+    private RerankService rerankService;
+
+    @BeforeEach
+    void setUp() {
+        rerankService = new RerankService(new SparseVectorEncoder());
+        ReflectionTestUtils.setField(rerankService, "enabled", true);
+        ReflectionTestUtils.setField(rerankService, "retrievalWeight", 0.6);
+        ReflectionTestUtils.setField(rerankService, "phraseBonus", 0.15);
+    }
+
+    @Test
+    void lexicalMatchLiftsLowerCosineChunk() {
+        List<EmbeddingMatch<TextSegment>> candidates = List.of(
+            match("1", 0.82, "Our opening hours are Sunday to Thursday"),
+            match("2", 0.78, "The refund policy allows returns within 14 days"),
+            match("3", 0.75, "Contact us by phone or email"));
+
+        List<EmbeddingMatch<TextSegment>> reranked = rerankService.rerank("refund policy", candidates, 3);
+
+        assertThat(reranked).extracting(EmbeddingMatch::embeddingId).startsWith("2");
+    }
+
+    @Test
+    void verbatimPhraseWinsOverScatteredTerms() {
+        List<EmbeddingMatch<TextSegment>> candidates = List.of(
+            match("1", 0.80, "The policy on a refund is described below"),
+            match("2", 0.80, "Read the refund policy before ordering"));
+
+        List<EmbeddingMatch<TextSegment>> reranked = rerankService.rerank("refund policy", candidates, 2);
+
+        assertThat(reranked).extracting(EmbeddingMatch::embeddingId).containsExactly("2", "1");
+    }
+
+    @Test
+    void keepsBestMaxResults() {
+        List<EmbeddingMatch<TextSegment>> candidates = List.of(
+            match("1", 0.9, "shipping costs"),
+            match("2", 0.8, "shipping times"),
+            match("3", 0.7, "warranty"));
+
+        assertThat(rerankService.rerank("shipping", candidates, 2)).hasSize(2)
+            .extracting(EmbeddingMatch::embeddingId).doesNotContain("3");
+    }
+
+    @Test
+    void disabledKeepsRetrievalOrder() {
+        ReflectionTestUtils.setField(rerankService, "enabled", false);
+        List<EmbeddingMatch<TextSegment>> candidates = List.of(
+            match("1", 0.9, "opening hours"),
+            match("2", 0.8, "refund policy"));
+
+        List<EmbeddingMatch<TextSegment>> reranked = rerankService.rerank("refund policy", candidates, 1);
+
+        assertThat(reranked).extracting(EmbeddingMatch::embeddingId).containsExactly("1");
+    }
+
+    private EmbeddingMatch<TextSegment> match(String id, double score, String text) {
+        return new EmbeddingMatch<>(score, id, null, TextSegment.from(text));
+    }
+}
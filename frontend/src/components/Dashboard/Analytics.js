@@ -120,24 +120,34 @@ const Analytics = () => {
   };
 
   // download neat excel file of anaytics AI
+  // The file is built by a background export job; poll it, then download from S3
   const handleDownloadAnalysis = async () => {
     if (!analysis) return;
 
+    setMessage('⏳ מכין קובץ Excel...');
+
     try {
-      const response = await analyticsAPI.downloadExcelAnalysis();
-      
-      const blob = new Blob([response.data], { 
-        type: 'application/vnd.openxmlformats-officedocument.spreadsheetml.sheet' 
-      });
-      
-      const url = window.URL.createObjectURL(blob);
+      const startResponse = await analyticsAPI.startExport('xlsx');
+      let job = startResponse.data.job;
+
+      while (job.status === 'QUEUED' || job.status === 'RUNNING') {
+        await new Promise(resolve => setTimeout(resolve, 2000));
+        const statusResponse = await analyticsAPI.getExport(job.id);
+        job = statusResponse.data.job;
+      }
+
+      if (job.status !== 'COMPLETED') {
+        setMessage('❌ ' + (job.errorMessage || 'שגיאה בהורדת קובץ Excel'));
+        return;
+      }
+
+      const urlResponse = await analyticsAPI.getExportDownloadUrl(job.id);
+
       const link = document.createElement('a');
-      link.href = url;
-      link.download = 'analyzed_questions.xlsx';
+      link.href = urlResponse.data.url;
       document.body.appendChild(link);
       link.click();
       document.body.removeChild(link);
-      window.URL.revokeObjectURL(url);
       
       setMessage('✅ קובץ Excel הורד בהצלחה');
     } catch (error) {
@@ -73,16 +73,14 @@ const DocumentsList = ({ documents, onUploadNew, onDelete, onDeleteAll, onReorde
     try {
       setDownloading(prev => ({ ...prev, [documentId]: true }));
       
-      const response = await documentAPI.downloadDocument(documentId);
-      const blob = new Blob([response.data], { type: 'application/pdf' });
-      const url = window.URL.createObjectURL(blob);
+      // Download straight from S3 via a presigned URL (attachment disposition)
+      const response = await documentAPI.getDownloadUrl(documentId, true);
       const link = document.createElement('a');
-      link.href = url;
+      link.href = response.data.url;
       link.download = fileName;
       document.body.appendChild(link);
       link.click();
       document.body.removeChild(link);
-      window.URL.revokeObjectURL(url);
       
     } catch (error) {
       console.error('Error downloading document:', error);
@@ -166,7 +166,10 @@ export const documentAPI = {
   reorderDocuments: (documentIds) => api.put('/documents/reorder', {
     documentIds
   }),
-  getDownloadUrl: (documentId) => api.get(`/documents/${documentId}/download-url`),
+  getDownloadUrl: (documentId, attachment = false) =>
+    api.get(`/documents/${documentId}/download-url`, { params: { attachment } }),
+  getDownloadUrls: (documentIds, attachment = false) =>
+    api.post('/documents/download-urls', { documentIds }, { params: { attachment } }),
   downloadDocument: (documentId) => {
     return api.get(`/documents/${documentId}/download`, {
       responseType: 'blob'
@@ -187,11 +190,20 @@ export const analyticsAPI = {
   
   analyzeQuestions: () => api.get('/analytics/analyze'),
   
-  downloadExcelAnalysis: () => {
+  // format: 'xlsx' or 'csv'
+  downloadExcelAnalysis: (format = 'xlsx') => {
     return api.get('/analytics/download-excel', {
+      params: { format },
       responseType: 'blob'
     });
-  }
+  },
+
+  // Background export: start, poll, then get a download URL
+  startExport: (format = 'xlsx') => api.post('/analytics/exports', null, { params: { format } }),
+
+  getExport: (jobId) => api.get(`/analytics/exports/${jobId}`),
+
+  getExportDownloadUrl: (jobId) => api.get(`/analytics/exports/${jobId}/download-url`)
 };
 
 export default api;
\ No newline at end of file
@@ -156,6 +156,7 @@ services:
   backend:
     image: esterovrani/custom-site-chat-backend:latest
     container_name: spring-backend
+    # Actuator (health, prometheus) listens on MANAGEMENT_PORT (8081), reachable only inside the compose network
     ports:
       - "${SERVER_PORT:-8080}:8080"
     env_file:            
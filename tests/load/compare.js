@@ -0,0 +1,33 @@
+#!/usr/bin/env node
+// Compare two load-test summaries: node compare.js results/before-summary.json results/after-summary.json
+
+const fs = require('fs');
+
+const [beforeFile, afterFile] = process.argv.slice(2);
+if (!beforeFile || !afterFile) {
+    console.error('Usage: node compare.js <before-summary.json> <after-summary.json>');
+    process.exit(2);
+}
+
+const before = JSON.parse(fs.readFileSync(beforeFile, 'utf8'));
+const after = JSON.parse(fs.readFileSync(afterFile, 'utf8'));
+
+const change = (a, b) => (a ? `${(((b - a) / a) * 100).toFixed(1)}%` : 'n/a').padStart(8);
+const ms = x => (x === undefined ? 'n/a' : `${Math.round(x)}ms`).padStart(9);
+const rate = x => `${x.toFixed(2)}/s`.padStart(9);
+
+console.log(`${before.label} -> ${after.label}`);
+console.log('Latency');
+for (const name of Object.keys(after.latency)) {
+    for (const p of ['p50', 'p95', 'p99']) {
+        const a = (before.latency[name] || {})[p];
+        const b = after.latency[name][p];
+        console.log(`  ${(name + ' ' + p).padEnd(22)} ${ms(a)} -> ${ms(b)} ${change(a, b)}`);
+    }
+}
+console.log('Throughput');
+for (const name of Object.keys(after.throughput)) {
+    const a = before.throughput[name] || 0;
+    const b = after.throughput[name];
+    console.log(`  ${name.padEnd(22)} ${rate(a)} -> ${rate(b)} ${change(a, b)}`);
+}
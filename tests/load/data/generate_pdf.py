@@ -0,0 +1,74 @@
+#!/usr/bin/env python3
+"""
+Writes the text-only PDF used by the load test (no dependencies).
+
+    python3 generate_pdf.py [pages] [output]    (defaults: 8 policy.pdf)
+
+The text is the shipping / returns / warranty page from the JMH benchmarks, so the
+widget questions in the k6 scenario find matching chunks.
+"""
+import sys
+import textwrap
+from pathlib import Path
+
+SOURCE = Path(__file__).resolve().parents[3] / "backend/src/jmh/resources/benchmark/english.txt"
+LINES_PER_PAGE = 48
+
+
+def escape(line):
+    return line.replace("\\", "\\\\").replace("(", "\\(").replace(")", "\\)")
+
+
+def page_stream(lines):
+    body = ["BT", "/F1 10 Tf", "12 TL", "50 780 Td"]
+    for line in lines:
+        body.append(f"({escape(line)}) '")
+    body.append("ET")
+    return "\n".join(body).encode("latin-1")
+
+
+def build(pages):
+    paragraphs = SOURCE.read_text(encoding="utf-8").split("\n")
+    lines = []
+    while len(lines) < pages * LINES_PER_PAGE:
+        for paragraph in paragraphs:
+            lines.extend(textwrap.wrap(paragraph, 95) or [""])
+    lines = lines[:pages * LINES_PER_PAGE]
+
+    objects = []
+    kids = []
+    for p in range(pages):
+        content = page_stream(lines[p * LINES_PER_PAGE:(p + 1) * LINES_PER_PAGE])
+        content_id = len(objects) + 4
+        page_id = content_id + 1
+        objects.append(b"<< /Length %d >>\nstream\n" % len(content) + content + b"\nendstream")
+        objects.append(b"<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 842] "
+                       b"/Resources << /Font << /F1 3 0 R >> >> /Contents %d 0 R >>" % content_id)
+        kids.append(f"{page_id} 0 R")
+
+    header = [
+        b"<< /Type /Catalog /Pages 2 0 R >>",
+        f"<< /Type /Pages /Kids [{' '.join(kids)}] /Count {pages} >>".encode(),
+        b"<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica >>",
+    ]
+    objects = header + objects
+
+    out = bytearray(b"%PDF-1.4\n")
+    offsets = []
+    for number, obj in enumerate(objects, start=1):
+        offsets.append(len(out))
+        out += b"%d 0 obj\n" % number + obj + b"\nendobj\n"
+
+    xref = len(out)
+    out += b"xref\n0 %d\n0000000000 65535 f \n" % (len(objects) + 1)
+    for offset in offsets:
+        out += b"%010d 00000 n \n" % offset
+    out += b"trailer\n<< /Size %d /Root 1 0 R >>\nstartxref\n%d\n%%%%EOF\n" % (len(objects) + 1, xref)
+    return bytes(out)
+
+
+if __name__ == "__main__":
+    pages = int(sys.argv[1]) if len(sys.argv) > 1 else 8
+    output = Path(sys.argv[2]) if len(sys.argv) > 2 else Path(__file__).with_name("policy.pdf")
+    output.write_bytes(build(pages))
+    print(f"Wrote {output} ({pages} pages)")
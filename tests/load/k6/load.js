@@ -0,0 +1,257 @@
+// Offline load test: widget queries + document upload/ingestion against the stubbed stack.
+//
+// Env (all optional):
+//   BASE_URL     backend (http://localhost:8080)
+//   STUB_URL     OpenAI stub, read in teardown for the model call counts (http://localhost:8089)
+//   TENANTS      users created in setup, each with a seed document (4)
+//   DURATION     length of the measured phase (5m)
+//   QUERY_RATE   widget questions per second, spread over the tenants (5)
+//   UPLOAD_RATE  document uploads per minute (6)
+//   RUN_LABEL    name of the result files, e.g. "before" / "after" (run)
+//
+// Reports p50/p95/p99 and throughput to stdout and results/<RUN_LABEL>-summary.json.
+
+import http from 'k6/http';
+import { check, fail, sleep } from 'k6';
+import { Counter, Rate, Trend } from 'k6/metrics';
+import exec from 'k6/execution';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const STUB_URL = __ENV.STUB_URL || 'http://localhost:8089';
+const TENANTS = parseInt(__ENV.TENANTS || '4', 10);
+const DURATION = __ENV.DURATION || '5m';
+const QUERY_RATE = parseInt(__ENV.QUERY_RATE || '5', 10);
+const UPLOAD_RATE = parseInt(__ENV.UPLOAD_RATE || '6', 10);
+const RUN_LABEL = __ENV.RUN_LABEL || 'run';
+
+const PDF = open('../data/policy.pdf', 'b');
+
+const QUESTIONS = [
+    'How long does standard delivery take?',
+    'How much does express delivery cost?',
+    'Can I return a product after 14 days?',
+    'What is the cancellation fee for a return?',
+    'Which products cannot be returned?',
+    'How long is the warranty on the PX-2040?',
+    'What is the service center phone number?',
+    'Can I pay in installments?',
+    'Is in-store pickup available?',
+    'What should I do if the product arrives damaged?',
+    'כמה זמן לוקח משלוח רגיל?',
+    'האם אפשר להחזיר מוצר שנפתח?',
+    'מה מספר הטלפון של מוקד השירות?',
+];
+
+const queryLatency = new Trend('query_latency', true);
+const uploadLatency = new Trend('upload_latency', true);
+const ingestionTime = new Trend('ingestion_time', true);
+const queries = new Counter('queries');
+const documentsIngested = new Counter('documents_ingested');
+const queryErrors = new Rate('query_errors');
+const ingestionErrors = new Rate('ingestion_errors');
+const stubChatCalls = new Counter('stub_chat_calls');
+const stubEmbeddingRequests = new Counter('stub_embedding_requests');
+const stubEmbeddingInputs = new Counter('stub_embedding_inputs');
+
+export const options = {
+    setupTimeout: '10m',
+    summaryTrendStats: ['avg', 'min', 'med', 'p(95)', 'p(99)', 'max'],
+    scenarios: {
+        widget_query: {
+            executor: 'constant-arrival-rate',
+            exec: 'widgetQuery',
+            rate: QUERY_RATE,
+            timeUnit: '1s',
+            duration: DURATION,
+            preAllocatedVUs: Math.max(10, QUERY_RATE * 4),
+            maxVUs: Math.max(50, QUERY_RATE * 20),
+        },
+        upload_ingest: {
+            executor: 'constant-arrival-rate',
+            exec: 'uploadAndIngest',
+            rate: UPLOAD_RATE,
+            timeUnit: '1m',
+            duration: DURATION,
+            preAllocatedVUs: Math.max(2, UPLOAD_RATE),
+            maxVUs: Math.max(10, UPLOAD_RATE * 5),
+        },
+    },
+    thresholds: {
+        query_errors: ['rate<0.01'],
+        ingestion_errors: ['rate<0.01'],
+    },
+};
+
+function json(body) {
+    return { headers: { 'Content-Type': 'application/json' }, body: JSON.stringify(body) };
+}
+
+function authorized(token) {
+    return { headers: { Authorization: `Bearer ${token}` } };
+}
+
+function createTenant(index) {
+    const suffix = `${Date.now()}${index}`;
+    const email = `load${suffix}@example.com`;
+    const signup = json({ email, password: 'LoadTest123', username: `load${suffix}`, firstName: 'Load', lastName: 'Test' });
+    const signupRes = http.post(`${BASE_URL}/auth/signup`, signup.body, { headers: signup.headers });
+    if (signupRes.status !== 200) fail(`signup failed: ${signupRes.status} ${signupRes.body}`);
+
+    const verify = json({ email, verificationCode: '999999' });
+    const verifyRes = http.post(`${BASE_URL}/auth/verify`, verify.body, { headers: verify.headers });
+    const token = verifyRes.json('token');
+    if (!token) fail(`verify failed: ${verifyRes.status} ${verifyRes.body}`);
+
+    const infoRes = http.get(`${BASE_URL}/api/collection/info`, authorized(token));
+    const secretKey = infoRes.json('data.secretKey');
+    if (!secretKey) fail(`no collection for tenant: ${infoRes.status} ${infoRes.body}`);
+
+    return { token, secretKey };
+}
+
+// Upload and poll until the document is COMPLETED or FAILED; returns ingestion ms or -1
+function ingest(tenant, name) {
+    const started = Date.now();
+    const uploadRes = http.post(`${BASE_URL}/api/documents/upload`,
+        { file: http.file(PDF, name, 'application/pdf') },
+        { headers: { Authorization: `Bearer ${tenant.token}` }, tags: { name: 'upload' } });
+    uploadLatency.add(uploadRes.timings.duration);
+
+    const documentId = uploadRes.status === 200 ? uploadRes.json('document.id') : null;
+    if (!documentId) {
+        return -1;
+    }
+
+    for (let attempt = 0; attempt < 300; attempt++) {
+        sleep(1);
+        const statusRes = http.get(`${BASE_URL}/api/documents/${documentId}`,
+            Object.assign(authorized(tenant.token), { tags: { name: 'document-status' } }));
+        const status = statusRes.json('data.processingStatus');
+        if (status === 'COMPLETED') return Date.now() - started;
+        if (status === 'FAILED') return -1;
+    }
+    return -1;
+}
+
+export function setup() {
+    const tenants = [];
+    for (let i = 0; i < TENANTS; i++) {
+        const tenant = createTenant(i);
+        if (ingest(tenant, `seed-${i}.pdf`) < 0) fail(`seed document for tenant ${i} failed to ingest`);
+        tenants.push(tenant);
+    }
+    return { tenants };
+}
+
+export function widgetQuery(data) {
+    const iteration = exec.scenario.iterationInTest;
+    const tenant = data.tenants[iteration % data.tenants.length];
+    const question = QUESTIONS[iteration % QUESTIONS.length];
+
+    // Every third question is a follow-up, which adds the LLM rewrite step
+    const history = iteration % 3 === 0
+        ? [{ role: 'user', content: QUESTIONS[(iteration + 1) % QUESTIONS.length] },
+           { role: 'assistant', content: 'Orders are dispatched within three business days.' }]
+        : [];
+
+    const request = json({ secretKey: tenant.secretKey, question, history });
+    const res = http.post(`${BASE_URL}/api/query/ask`, request.body,
+        { headers: request.headers, tags: { name: 'query' }, timeout: '60s' });
+
+    const ok = check(res, {
+        'query 200': r => r.status === 200,
+        'query answered': r => r.status === 200 && r.json('success') === true,
+    });
+    queryLatency.add(res.timings.duration);
+    queryErrors.add(!ok);
+    queries.add(1);
+}
+
+export function uploadAndIngest(data) {
+    const iteration = exec.scenario.iterationInTest;
+    const tenant = data.tenants[iteration % data.tenants.length];
+
+    const elapsed = ingest(tenant, `load-${iteration}.pdf`);
+    ingestionErrors.add(elapsed < 0);
+    if (elapsed >= 0) {
+        ingestionTime.add(elapsed);
+        documentsIngested.add(1);
+    }
+}
+
+// Model calls the backend made during the run (setup included), from the stub's counters
+export function teardown() {
+    const res = http.get(`${STUB_URL}/stats`);
+    if (res.status !== 200) return;
+    const stats = res.json('stats');
+    stubChatCalls.add(stats.chat + stats.stream);
+    stubEmbeddingRequests.add(stats.embeddings);
+    stubEmbeddingInputs.add(stats.inputs);
+}
+
+function trendLine(name, metric) {
+    if (!metric) return `  ${name.padEnd(16)} (no data)`;
+    const v = metric.values;
+    const ms = x => `${Math.round(x)}ms`.padStart(9);
+    return `  ${name.padEnd(16)} p50 ${ms(v.med)}  p95 ${ms(v['p(95)'])}  p99 ${ms(v['p(99)'])}  max ${ms(v.max)}`;
+}
+
+function rateLine(name, metric) {
+    if (!metric) return `  ${name.padEnd(16)} (no data)`;
+    return `  ${name.padEnd(16)} ${metric.values.count} total, ${metric.values.rate.toFixed(2)}/s`;
+}
+
+export function handleSummary(data) {
+    const m = data.metrics;
+    const count = name => (m[name] ? m[name].values.count : 0);
+    const stub = {
+        chatCalls: count('stub_chat_calls'),
+        embeddingRequests: count('stub_embedding_requests'),
+        embeddingInputs: count('stub_embedding_inputs'),
+    };
+
+    const report = {
+        label: RUN_LABEL,
+        finishedAt: new Date().toISOString(),
+        config: { TENANTS, DURATION, QUERY_RATE, UPLOAD_RATE },
+        latency: {},
+        throughput: {
+            queries: m.queries ? m.queries.values.rate : 0,
+            documentsIngested: m.documents_ingested ? m.documents_ingested.values.rate : 0,
+            httpRequests: m.http_reqs ? m.http_reqs.values.rate : 0,
+        },
+        errors: {
+            query: m.query_errors ? m.query_errors.values.rate : null,
+            ingestion: m.ingestion_errors ? m.ingestion_errors.values.rate : null,
+        },
+        stub,
+    };
+    for (const name of ['query_latency', 'upload_latency', 'ingestion_time']) {
+        if (m[name]) {
+            const v = m[name].values;
+            report.latency[name] = { p50: v.med, p95: v['p(95)'], p99: v['p(99)'], max: v.max, avg: v.avg };
+        }
+    }
+
+    const text = [
+        '',
+        `=== Load test "${RUN_LABEL}" (${DURATION}, ${QUERY_RATE} q/s, ${UPLOAD_RATE} uploads/min, ${TENANTS} tenants) ===`,
+        'Latency',
+        trendLine('query', m.query_latency),
+        trendLine('upload request', m.upload_latency),
+        trendLine('ingestion', m.ingestion_time),
+        'Throughput',
+        rateLine('queries', m.queries),
+        rateLine('ingested docs', m.documents_ingested),
+        'Errors',
+        `  query ${((report.errors.query || 0) * 100).toFixed(2)}%, ingestion ${((report.errors.ingestion || 0) * 100).toFixed(2)}%`,
+        `Model calls: ${stub.chatCalls} chat, ${stub.embeddingRequests} embedding requests (${stub.embeddingInputs} inputs)`,
+        '',
+    ].join('\n');
+
+    return {
+        stdout: text,
+        [`results/${RUN_LABEL}-summary.json`]: JSON.stringify(report, null, 2),
+        [`results/${RUN_LABEL}-k6.json`]: JSON.stringify(data),
+    };
+}
@@ -0,0 +1,214 @@
+// Deterministic stand-in for the OpenAI API (chat completions + embeddings), for load tests.
+// No dependencies: node server.js
+//
+// Same request -> same response and same simulated latency, so runs are reproducible.
+//
+// Env:
+//   PORT                     (8089)
+//   CHAT_LATENCY_MS          time to the first token / full response (800)
+//   CHAT_TOKENS_PER_SECOND   streaming speed after the first token (60)
+//   CHAT_ANSWER_WORDS        length of generated answers (120)
+//   EMBEDDING_LATENCY_MS     per embeddings request (150)
+//   EMBEDDING_LATENCY_PER_INPUT_MS  extra per input in a batch (2)
+//   JITTER_PCT               +/- latency spread, derived from the request hash (20)
+//   ERROR_RATE               share of requests answered with 429 (0)
+
+const http = require('http');
+
+const config = {
+    port: int('PORT', 8089),
+    chatLatencyMs: int('CHAT_LATENCY_MS', 800),
+    tokensPerSecond: int('CHAT_TOKENS_PER_SECOND', 60),
+    answerWords: int('CHAT_ANSWER_WORDS', 120),
+    embeddingLatencyMs: int('EMBEDDING_LATENCY_MS', 150),
+    embeddingLatencyPerInputMs: int('EMBEDDING_LATENCY_PER_INPUT_MS', 2),
+    jitterPct: int('JITTER_PCT', 20),
+    errorRate: parseFloat(process.env.ERROR_RATE || '0'),
+};
+
+const stats = { chat: 0, stream: 0, embeddings: 0, inputs: 0, errors: 0 };
+
+function int(name, fallback) {
+    const value = parseInt(process.env[name], 10);
+    return Number.isNaN(value) ? fallback : value;
+}
+
+// FNV-1a, 32 bit
+function hash(text) {
+    let h = 0x811c9dc5;
+    for (let i = 0; i < text.length; i++) {
+        h ^= text.charCodeAt(i);
+        h = Math.imul(h, 0x01000193);
+    }
+    return h >>> 0;
+}
+
+// Latency with a jitter that depends only on the request
+function latency(baseMs, key) {
+    const spread = ((hash(key) % 2001) / 1000 - 1) * config.jitterPct / 100;
+    return Math.max(0, Math.round(baseMs * (1 + spread)));
+}
+
+function shouldFail(key) {
+    return config.errorRate > 0 && (hash('error:' + key) % 10000) / 10000 < config.errorRate;
+}
+
+function tokenize(text) {
+    return text.toLowerCase().split(/[^\p{L}\p{N}]+/u).filter(Boolean);
+}
+
+// Feature hashing: texts sharing words get similar vectors, so retrieval behaves sensibly
+function embed(text, dimensions) {
+    const vector = new Float64Array(dimensions);
+    const tokens = tokenize(text);
+    if (tokens.length === 0) {
+        vector[0] = 1;
+    }
+    for (const token of tokens) {
+        const h = hash(token);
+        vector[h % dimensions] += (h & 0x80000000) ? -1 : 1;
+    }
+    let norm = 0;
+    for (const v of vector) norm += v * v;
+    norm = Math.sqrt(norm) || 1;
+    return Array.from(vector, v => Number((v / norm).toFixed(6)));
+}
+
+const estimateTokens = text => Math.ceil(text.length / 4);
+
+function messageText(message) {
+    if (typeof message.content === 'string') return message.content;
+    if (Array.isArray(message.content)) return message.content.map(part => part.text || '').join(' ');
+    return '';
+}
+
+// Rewrite requests get the question back; everything else gets an answer built from the prompt words
+function answer(messages) {
+    const system = messages.filter(m => m.role === 'system').map(messageText).join(' ');
+    const user = messages.filter(m => m.role === 'user').map(messageText);
+    const last = user[user.length - 1] || '';
+
+    if (/rewrit/i.test(system)) {
+        const lines = last.trim().split('\n').filter(Boolean);
+        return lines[lines.length - 1].replace(/^[^:]*:\s*/, '');
+    }
+
+    const words = tokenize(last);
+    if (words.length === 0) return 'stub answer';
+    const offset = hash(last) % words.length;
+    const out = [];
+    for (let i = 0; i < config.answerWords; i++) {
+        out.push(words[(offset + i) % words.length]);
+    }
+    return out.join(' ') + '.';
+}
+
+function readBody(req) {
+    return new Promise((resolve, reject) => {
+        const chunks = [];
+        req.on('data', chunk => chunks.push(chunk));
+        req.on('end', () => {
+            try {
+                resolve(JSON.parse(Buffer.concat(chunks).toString('utf8') || '{}'));
+            } catch (e) {
+                reject(e);
+            }
+        });
+        req.on('error', reject);
+    });
+}
+
+const sleep = ms => new Promise(resolve => setTimeout(resolve, ms));
+
+function json(res, status, body) {
+    res.writeHead(status, { 'Content-Type': 'application/json' });
+    res.end(JSON.stringify(body));
+}
+
+function rateLimited(res) {
+    stats.errors++;
+    json(res, 429, { error: { message: 'Rate limit reached (stub)', type: 'rate_limit_exceeded' } });
+}
+
+async function chat(req, res) {
+    const body = await readBody(req);
+    const messages = body.messages || [];
+    const key = JSON.stringify(messages);
+    const model = body.model || 'gpt-4o';
+    const id = 'chatcmpl-stub-' + hash(key).toString(16);
+    const created = Math.floor(Date.now() / 1000);
+
+    if (shouldFail(key)) return rateLimited(res);
+
+    const content = answer(messages);
+    const promptTokens = estimateTokens(messages.map(messageText).join('\n'));
+    const completionTokens = estimateTokens(content);
+    const usage = { prompt_tokens: promptTokens, completion_tokens: completionTokens, total_tokens: promptTokens + completionTokens };
+
+    await sleep(latency(config.chatLatencyMs, key));
+
+    if (!body.stream) {
+        stats.chat++;
+        return json(res, 200, {
+            id, object: 'chat.completion', created, model,
+            choices: [{ index: 0, message: { role: 'assistant', content }, finish_reason: 'stop' }],
+            usage,
+        });
+    }
+
+    stats.stream++;
+    res.writeHead(200, { 'Content-Type': 'text/event-stream', 'Cache-Control': 'no-cache', Connection: 'keep-alive' });
+    const send = data => res.write('data: ' + JSON.stringify(data) + '\n\n');
+    const chunk = (delta, finish) => ({
+        id, object: 'chat.completion.chunk', created, model,
+        choices: [{ index: 0, delta, finish_reason: finish }],
+    });
+
+    send(chunk({ role: 'assistant', content: '' }, null));
+    const tokenDelay = config.tokensPerSecond > 0 ? 1000 / config.tokensPerSecond : 0;
+    for (const word of content.split(' ')) {
+        send(chunk({ content: word + ' ' }, null));
+        if (tokenDelay > 0) await sleep(tokenDelay);
+    }
+    send({ ...chunk({}, 'stop'), usage });
+    res.end('data: [DONE]\n\n');
+}
+
+async function embeddings(req, res) {
+    const body = await readBody(req);
+    const inputs = Array.isArray(body.input) ? body.input : [body.input || ''];
+    const dimensions = body.dimensions || 3072;
+    const key = inputs.join('\u0000');
+
+    if (shouldFail(key)) return rateLimited(res);
+
+    await sleep(latency(config.embeddingLatencyMs + config.embeddingLatencyPerInputMs * inputs.length, key));
+
+    stats.embeddings++;
+    stats.inputs += inputs.length;
+    const tokens = inputs.reduce((sum, input) => sum + estimateTokens(String(input)), 0);
+    json(res, 200, {
+        object: 'list',
+        model: body.model || 'text-embedding-3-large',
+        data: inputs.map((input, index) => ({ object: 'embedding', index, embedding: embed(String(input), dimensions) })),
+        usage: { prompt_tokens: tokens, total_tokens: tokens },
+    });
+}
+
+const server = http.createServer(async (req, res) => {
+    try {
+        const path = req.url.split('?')[0].replace(/\/+$/, '');
+        if (req.method === 'POST' && path.endsWith('/chat/completions')) return await chat(req, res);
+        if (req.method === 'POST' && path.endsWith('/embeddings')) return await embeddings(req, res);
+        if (req.method === 'GET' && path === '/health') return json(res, 200, { status: 'ok' });
+        if (req.method === 'GET' && path === '/stats') return json(res, 200, { config, stats });
+        json(res, 404, { error: { message: 'Not found: ' + req.method + ' ' + path } });
+    } catch (e) {
+        json(res, 400, { error: { message: e.message } });
+    }
+});
+
+server.keepAliveTimeout = 65000;
+server.listen(config.port, () => {
+    console.log('OpenAI stub on :' + config.port + ' ' + JSON.stringify(config));
+});